@@ -11,7 +11,7 @@ REM Crear nuevamente el directorio bin
 mkdir bin
 
 echo Compilando proyecto...
-javac -d bin -cp src src/modelo/*.java src/servicio/*.java src/gui/*.java src/principal/*.java
+javac -d bin -cp src src/modelo/*.java src/servicio/*.java src/persistencia/*.java src/gui/*.java src/principal/*.java
 
 echo Compilacion completada
 echo Los archivos .class se regeneraron correctamente en bin/
@@ -0,0 +1,139 @@
+package gui;
+
+import javax.swing.JComponent;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.HierarchyListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Cálculos de un panel que se hacen fuera del hilo de eventos de Swing
+ *
+ * El panel se arma con marcadores y registra aquí sus cálculos; cada uno corre
+ * en un {@link SwingWorker} (varios en paralelo) mientras el panel está a la
+ * vista, y su resultado se aplica en el hilo de eventos al terminar. Si el
+ * panel deja de verse (cambio de pestaña, ventana oculta) los cálculos en
+ * curso se cancelan y se vuelven a lanzar cuando reaparece; los que ya
+ * terminaron no se repiten. Los refrescos periódicos corren igual, solo
+ * mientras el panel está a la vista.
+ */
+final class CargadorPanel implements HierarchyListener {
+    private final JComponent panel;
+    private final List<Carga<?>> cargas = new ArrayList<>();
+    private final List<Timer> refrescos = new ArrayList<>();
+
+    private CargadorPanel(JComponent panel) {
+        this.panel = panel;
+    }
+
+    /**
+     * Registra un cálculo del panel; se llama desde el hilo de eventos
+     *
+     * @param calculo se ejecuta en segundo plano
+     * @param aplicar recibe el resultado en el hilo de eventos
+     */
+    static <T> void cargar(JComponent panel, Callable<T> calculo, Consumer<? super T> aplicar) {
+        Carga<T> carga = new Carga<>(calculo, aplicar);
+        cargador(panel).cargas.add(carga);
+        if (panel.isShowing()) {
+            carga.iniciar();
+        }
+    }
+
+    /**
+     * Ejecuta {@code accion} en el hilo de eventos cada {@code milis} mientras
+     * el panel está a la vista; debe ser una lectura barata (por ejemplo de
+     * {@link servicio.MetricasNegocio})
+     */
+    static void refrescarCada(JComponent panel, int milis, Runnable accion) {
+        Timer refresco = new Timer(milis, e -> accion.run());
+        cargador(panel).refrescos.add(refresco);
+        if (panel.isShowing()) {
+            refresco.start();
+        }
+    }
+
+    private static CargadorPanel cargador(JComponent panel) {
+        CargadorPanel cargador = (CargadorPanel) panel.getClientProperty(CargadorPanel.class);
+        if (cargador == null) {
+            cargador = new CargadorPanel(panel);
+            panel.putClientProperty(CargadorPanel.class, cargador);
+            panel.addHierarchyListener(cargador);
+        }
+        return cargador;
+    }
+
+    @Override
+    public void hierarchyChanged(HierarchyEvent e) {
+        if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) == 0) {
+            return;
+        }
+        boolean visible = panel.isShowing();
+        for (Carga<?> carga : cargas) {
+            if (visible) {
+                carga.iniciar();
+            } else {
+                carga.cancelar();
+            }
+        }
+        for (Timer refresco : refrescos) {
+            if (visible) {
+                refresco.setInitialDelay(0); // Al reaparecer se actualiza de inmediato
+                refresco.restart();
+            } else {
+                refresco.stop();
+            }
+        }
+    }
+
+    private static final class Carga<T> {
+        private final Callable<T> calculo;
+        private final Consumer<? super T> aplicar;
+        private SwingWorker<T, Void> trabajador;
+        private boolean terminada;
+
+        Carga(Callable<T> calculo, Consumer<? super T> aplicar) {
+            this.calculo = calculo;
+            this.aplicar = aplicar;
+        }
+
+        void iniciar() {
+            if (terminada || trabajador != null) {
+                return;
+            }
+            trabajador = new SwingWorker<T, Void>() {
+                @Override
+                protected T doInBackground() throws Exception {
+                    return calculo.call();
+                }
+
+                @Override
+                protected void done() {
+                    if (trabajador != this || isCancelled()) {
+                        return; // Reemplazado o cancelado
+                    }
+                    trabajador = null;
+                    try {
+                        aplicar.accept(get());
+                        terminada = true;
+                    } catch (InterruptedException | ExecutionException e) {
+                        System.err.println("Error al cargar datos del panel: " + e.getMessage());
+                    }
+                }
+            };
+            trabajador.execute();
+        }
+
+        void cancelar() {
+            if (trabajador != null) {
+                trabajador.cancel(true);
+                trabajador = null;
+            }
+        }
+    }
+}
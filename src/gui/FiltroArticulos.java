@@ -0,0 +1,152 @@
+package gui;
+
+import servicio.ArticuloServicio;
+import javax.swing.JLabel;
+import javax.swing.JTextField;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Filtro por nombre que busca mientras se escribe sobre una tabla de artículos
+ *
+ * Cada tecla reinicia una espera corta; al vencer, la búsqueda corre en un
+ * {@link SwingWorker} contra el índice de nombres del servicio y reemplaza la
+ * búsqueda anterior, que se cancela y cuyos resultados se descartan. Primero
+ * llega una pantalla de resultados y después el resto por tandas, que se
+ * agregan al final de {@link ModeloTablaArticulos} sin reconstruir la tabla.
+ * Con el campo vacío vuelven todos los artículos.
+ */
+final class FiltroArticulos implements DocumentListener {
+    private static final int ESPERA_TECLAS_MILIS = 150;
+    private static final int PRIMERA_TANDA = 100; // Más de lo que entra en pantalla
+    private static final int TAMANO_TANDA = 1000;
+    private static final int LIMITE_RESULTADOS = 10000;
+
+    private final JTextField campo;
+    private final ModeloTablaArticulos modelo;
+    private final ArticuloServicio articuloServicio;
+    private final JLabel estado;
+    private final Timer espera;
+    private Busqueda busqueda;
+
+    /**
+     * Conecta el campo a la tabla; se llama desde el hilo de eventos
+     *
+     * @param estado muestra la cantidad de resultados
+     */
+    static void conectar(JTextField campo, ModeloTablaArticulos modelo, ArticuloServicio articuloServicio,
+                         JLabel estado) {
+        campo.getDocument().addDocumentListener(new FiltroArticulos(campo, modelo, articuloServicio, estado));
+        estado.setText(modelo.getRowCount() + " artículos");
+    }
+
+    private FiltroArticulos(JTextField campo, ModeloTablaArticulos modelo, ArticuloServicio articuloServicio,
+                            JLabel estado) {
+        this.campo = campo;
+        this.modelo = modelo;
+        this.articuloServicio = articuloServicio;
+        this.estado = estado;
+        this.espera = new Timer(ESPERA_TECLAS_MILIS, e -> buscar());
+        this.espera.setRepeats(false);
+    }
+
+    @Override
+    public void insertUpdate(DocumentEvent e) {
+        espera.restart();
+    }
+
+    @Override
+    public void removeUpdate(DocumentEvent e) {
+        espera.restart();
+    }
+
+    @Override
+    public void changedUpdate(DocumentEvent e) {
+        // Solo cambios de atributos: el texto es el mismo
+    }
+
+    private void buscar() {
+        if (busqueda != null) {
+            busqueda.cancel(true);
+        }
+        estado.setText("Buscando...");
+        busqueda = new Busqueda(campo.getText().trim());
+        busqueda.execute();
+    }
+
+    private final class Busqueda extends SwingWorker<Integer, List<String>> {
+        private final String texto;
+        private boolean primeraTanda = true; // Reemplaza las filas de la búsqueda anterior
+
+        Busqueda(String texto) {
+            this.texto = texto;
+        }
+
+        @Override
+        protected Integer doInBackground() {
+            boolean soloDisponibles = modelo.isSoloDisponibles();
+            if (texto.isEmpty()) {
+                List<String> todos = Arrays.asList(articuloServicio.getCodigosArticulos(soloDisponibles));
+                publish(todos);
+                return todos.size();
+            }
+            List<String> primeros = articuloServicio.buscarCodigosPorNombre(texto, PRIMERA_TANDA, soloDisponibles);
+            publish(primeros);
+            if (primeros.size() < PRIMERA_TANDA || isCancelled()) {
+                return primeros.size();
+            }
+            // El resto, sin repetir lo ya mostrado aunque el catálogo haya cambiado entretanto
+            Set<String> mostrados = new HashSet<>(primeros);
+            List<String> resto = new ArrayList<>();
+            for (String codigo : articuloServicio.buscarCodigosPorNombre(texto, LIMITE_RESULTADOS, soloDisponibles)) {
+                if (!mostrados.contains(codigo)) {
+                    resto.add(codigo);
+                }
+            }
+            for (int desde = 0; desde < resto.size() && !isCancelled(); desde += TAMANO_TANDA) {
+                publish(resto.subList(desde, Math.min(desde + TAMANO_TANDA, resto.size())));
+            }
+            return primeros.size() + resto.size();
+        }
+
+        @Override
+        protected void process(List<List<String>> tandas) {
+            if (busqueda != this) {
+                return; // Llegó otra tecla
+            }
+            for (List<String> tanda : tandas) {
+                if (primeraTanda) {
+                    modelo.mostrar(tanda);
+                    primeraTanda = false;
+                } else {
+                    modelo.agregar(tanda);
+                }
+            }
+        }
+
+        @Override
+        protected void done() {
+            // Sigue siendo la búsqueda vigente: algún process() puede llegar después de done()
+            if (busqueda != this || isCancelled()) {
+                return;
+            }
+            try {
+                int encontrados = get();
+                estado.setText(!texto.isEmpty() && encontrados >= LIMITE_RESULTADOS
+                        ? "Primeros " + encontrados + " artículos"
+                        : encontrados + " artículos");
+            } catch (InterruptedException | ExecutionException e) {
+                estado.setText("Error en la búsqueda");
+                System.err.println("Error al buscar artículos: " + e.getMessage());
+            }
+        }
+    }
+}
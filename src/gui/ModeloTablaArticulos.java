@@ -0,0 +1,202 @@
+package gui;
+
+import modelo.*;
+import servicio.*;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Modelo de tabla de artículos que lee cada celda del servicio al dibujarla
+ *
+ * Solo guarda los códigos ordenados de las filas; nombre, precio y stock se
+ * consultan en el artículo cuando la tabla los pide, es decir, solo para las
+ * filas visibles, y sin dejar en memoria los artículos del catálogo mapeado
+ * (ver {@link ArticuloServicio#consultarArticulo(String)}). El precio se entrega en centavos y lo formatea
+ * {@link RenderizadorImporte}. Las filas pueden ser todos los artículos
+ * ({@link #recargar()}) o los de una búsqueda, que llegan por tandas
+ * ({@link #mostrar(List)} y {@link #agregar(List)}).
+ */
+class ModeloTablaArticulos extends AbstractTableModel {
+    enum Columna {
+        CODIGO(String.class),
+        NOMBRE(String.class),
+        DESCRIPCION(String.class),
+        PRECIO(Long.class),
+        STOCK(Integer.class),
+        PLANTAS(Integer.class),
+        ESTADO(String.class),
+        CANTIDAD(Integer.class), // Editable; 1 mientras no se cambie
+        ACCION(String.class); // Botón de la fila; muestra la etiqueta de acción
+
+        private final Class<?> tipo;
+
+        Columna(Class<?> tipo) {
+            this.tipo = tipo;
+        }
+    }
+
+    private final ArticuloServicio articuloServicio;
+    private final boolean soloDisponibles;
+    private final String[] titulos;
+    private final Columna[] columnas;
+    private final String etiquetaAccion;
+    private List<String> codigos = new ArrayList<>();
+    private final Map<String, Integer> filaPorCodigo = new HashMap<>();
+    private final Map<String, Integer> cantidades = new HashMap<>();
+    // Último artículo leído: la tabla pide las celdas de una fila seguidas
+    private String codigoLeido;
+    private Articulo articuloLeido;
+
+    ModeloTablaArticulos(ArticuloServicio articuloServicio, boolean soloDisponibles,
+                         String[] titulos, Columna[] columnas, String etiquetaAccion) {
+        this.articuloServicio = articuloServicio;
+        this.soloDisponibles = soloDisponibles;
+        this.titulos = titulos;
+        this.columnas = columnas;
+        this.etiquetaAccion = etiquetaAccion;
+        recargar();
+    }
+
+    /**
+     * Vuelve a leer la lista de códigos (altas, bajas o cambios de disponibilidad)
+     */
+    void recargar() {
+        mostrar(Arrays.asList(articuloServicio.getCodigosArticulos(soloDisponibles)));
+    }
+
+    /**
+     * Reemplaza las filas por estos códigos, en este orden
+     */
+    void mostrar(List<String> codigosMostrados) {
+        codigoLeido = null;
+        codigos = new ArrayList<>(codigosMostrados);
+        filaPorCodigo.clear();
+        for (int fila = 0; fila < codigos.size(); fila++) {
+            filaPorCodigo.put(codigos.get(fila), fila);
+        }
+        fireTableDataChanged();
+    }
+
+    /**
+     * Agrega filas al final; la tabla solo repinta las nuevas si están a la vista
+     */
+    void agregar(List<String> codigosAgregados) {
+        if (codigosAgregados.isEmpty()) {
+            return;
+        }
+        int primera = codigos.size();
+        for (String codigo : codigosAgregados) {
+            filaPorCodigo.put(codigo, codigos.size());
+            codigos.add(codigo);
+        }
+        fireTableRowsInserted(primera, codigos.size() - 1);
+    }
+
+    boolean isSoloDisponibles() {
+        return soloDisponibles;
+    }
+
+    /**
+     * Avisa a la tabla que cambiaron solo estos artículos
+     */
+    void articulosCambiados(Collection<String> codigosCambiados) {
+        codigoLeido = null;
+        for (String codigo : codigosCambiados) {
+            Integer fila = filaPorCodigo.get(codigo);
+            if (fila != null) {
+                fireTableRowsUpdated(fila, fila);
+            }
+        }
+    }
+
+    String getCodigo(int fila) {
+        return codigos.get(fila);
+    }
+
+    int getColumna(Columna columna) {
+        for (int i = 0; i < columnas.length; i++) {
+            if (columnas[i] == columna) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int getRowCount() {
+        return codigos.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnas.length;
+    }
+
+    @Override
+    public String getColumnName(int columna) {
+        return titulos[columna];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int columna) {
+        return columnas[columna].tipo;
+    }
+
+    @Override
+    public boolean isCellEditable(int fila, int columna) {
+        return columnas[columna] == Columna.CANTIDAD || columnas[columna] == Columna.ACCION;
+    }
+
+    @Override
+    public Object getValueAt(int fila, int columna) {
+        String codigo = codigos.get(fila);
+        switch (columnas[columna]) {
+            case CODIGO:
+                return codigo;
+            case CANTIDAD:
+                return cantidades.getOrDefault(codigo, 1);
+            case ACCION:
+                return etiquetaAccion;
+            default:
+                break;
+        }
+
+        if (!codigo.equals(codigoLeido)) {
+            codigoLeido = codigo;
+            articuloLeido = articuloServicio.consultarArticulo(codigo);
+        }
+        Articulo articulo = articuloLeido;
+        if (articulo == null) {
+            return null; // Eliminado desde la última recarga
+        }
+        switch (columnas[columna]) {
+            case NOMBRE:
+                return articulo.getNombre();
+            case DESCRIPCION:
+                return articulo.getDescripcion();
+            case PRECIO:
+                return articulo.getPrecioCentavos();
+            case STOCK:
+                return articulo.getTotalStock();
+            case PLANTAS:
+                return articulo.getCantidadPlantas();
+            case ESTADO:
+                return articuloServicio.tieneBajoStock(articulo) ? "BAJO STOCK" : "NORMAL";
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public void setValueAt(Object valor, int fila, int columna) {
+        if (columnas[columna] == Columna.CANTIDAD && valor instanceof Integer) {
+            cantidades.put(codigos.get(fila), (Integer) valor);
+            fireTableCellUpdated(fila, columna);
+        }
+    }
+}
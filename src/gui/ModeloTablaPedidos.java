@@ -0,0 +1,109 @@
+package gui;
+
+import modelo.*;
+import javax.swing.table.AbstractTableModel;
+import java.util.*;
+
+/**
+ * Modelo de la tabla de pedidos del director de ventas
+ *
+ * Las filas son referencias a los pedidos, ordenadas por número; cliente,
+ * estado y monto se leen del pedido cuando la tabla dibuja la celda. El monto
+ * se entrega en centavos y lo formatea {@link RenderizadorImporte}.
+ */
+class ModeloTablaPedidos extends AbstractTableModel {
+    private static final String[] COLUMNAS = {"Número", "Cliente", "Fecha", "Estado", "Monto", "Completo", "Acciones"};
+    private static final Class<?>[] TIPOS = {String.class, String.class, String.class, String.class,
+            Long.class, String.class, String.class};
+
+    private final List<Pedido> pedidos = new ArrayList<>();
+    private final Map<String, Integer> filaPorNumero = new HashMap<>();
+
+    ModeloTablaPedidos(List<Pedido> pedidos) {
+        recargar(pedidos);
+    }
+
+    void recargar(List<Pedido> nuevos) {
+        pedidos.clear();
+        pedidos.addAll(nuevos);
+        pedidos.sort(Comparator.comparing(Pedido::getNumeroPedido));
+        filaPorNumero.clear();
+        for (int fila = 0; fila < pedidos.size(); fila++) {
+            filaPorNumero.put(pedidos.get(fila).getNumeroPedido(), fila);
+        }
+        fireTableDataChanged();
+    }
+
+    /**
+     * Agrega un pedido nuevo al final (los números son crecientes)
+     */
+    void pedidoAgregado(Pedido pedido) {
+        if (filaPorNumero.containsKey(pedido.getNumeroPedido())) {
+            return;
+        }
+        int fila = pedidos.size();
+        pedidos.add(pedido);
+        filaPorNumero.put(pedido.getNumeroPedido(), fila);
+        fireTableRowsInserted(fila, fila);
+    }
+
+    /**
+     * Avisa a la tabla que cambiaron solo estos pedidos
+     */
+    void pedidosCambiados(Collection<String> numeros) {
+        for (String numero : numeros) {
+            Integer fila = filaPorNumero.get(numero);
+            if (fila != null) {
+                fireTableRowsUpdated(fila, fila);
+            }
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return pedidos.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNAS.length;
+    }
+
+    @Override
+    public String getColumnName(int columna) {
+        return COLUMNAS[columna];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int columna) {
+        return TIPOS[columna];
+    }
+
+    @Override
+    public boolean isCellEditable(int fila, int columna) {
+        return columna == 6; // Solo la columna de acciones
+    }
+
+    @Override
+    public Object getValueAt(int fila, int columna) {
+        Pedido pedido = pedidos.get(fila);
+        switch (columna) {
+            case 0:
+                return pedido.getNumeroPedido();
+            case 1:
+                return pedido.getCliente().getNombre();
+            case 2:
+                return pedido.getFechaPedido().toString();
+            case 3:
+                return pedido.getEstado().toString();
+            case 4:
+                return pedido.getMontoTotalCentavos(); // Se bloquea el pedido adentro
+            case 5:
+                synchronized (pedido) { // Recorre las líneas, que otro hilo puede estar agregando
+                    return pedido.estaCompleto() ? "Sí" : "No";
+                }
+            default:
+                return "Gestionar";
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package gui;
+
+import modelo.Dinero;
+import javax.swing.JTable;
+import javax.swing.table.TableCellRenderer;
+import java.awt.Component;
+
+/**
+ * Muestra un importe en centavos como "$1234.50" y delega el resto del
+ * dibujo (colores, fuente, bordes) en el renderizador de la tabla
+ */
+class RenderizadorImporte implements TableCellRenderer {
+    private final TableCellRenderer delegado;
+
+    RenderizadorImporte(TableCellRenderer delegado) {
+        this.delegado = delegado;
+    }
+
+    @Override
+    public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                   boolean hasFocus, int row, int column) {
+        Object texto = value instanceof Long
+                ? String.format("$%.2f", Dinero.aDecimal((Long) value))
+                : value;
+        return delegado.getTableCellRendererComponent(table, texto, isSelected, hasFocus, row, column);
+    }
+}
@@ -6,25 +6,50 @@ import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableCellRenderer;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Ventana principal para el cliente - Versión corregida
  */
 public class VentanaCliente extends JFrame {
     private Cliente cliente;
+    private ClienteServicio clienteServicio;
     private PedidoServicio pedidoServicio;
     private ArticuloServicio articuloServicio;
     private VentanaPrincipal ventanaPrincipal;
     private JTabbedPane tabbedPane;
+    private ModeloTablaArticulos catalogoModel;
+    private final BusEventos.Suscripcion<EventoDominio.StockCambiado> suscripcionStock;
     
-    public VentanaCliente(Cliente cliente, PedidoServicio pedidoServicio, ArticuloServicio articuloServicio, VentanaPrincipal ventanaPrincipal) {
+    public VentanaCliente(Cliente cliente, ClienteServicio clienteServicio, PedidoServicio pedidoServicio,
+                          ArticuloServicio articuloServicio, VentanaPrincipal ventanaPrincipal) {
         this.cliente = cliente;
+        this.clienteServicio = clienteServicio;
         this.pedidoServicio = pedidoServicio;
         this.articuloServicio = articuloServicio;
         this.ventanaPrincipal = ventanaPrincipal;
         
         initializeComponents();
+        
+        // El stock del catálogo se redibuja solo en las filas que cambian
+        suscripcionStock = articuloServicio.getBusEventos().suscribir(EventoDominio.StockCambiado.class,
+            SwingUtilities::invokeLater, true, eventos -> {
+                Set<String> codigos = new HashSet<>();
+                for (EventoDominio.StockCambiado evento : eventos) {
+                    codigos.add(evento.getCodigoArticulo());
+                }
+                catalogoModel.articulosCambiados(codigos);
+            });
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                suscripcionStock.cancelar();
+            }
+        });
     }
     
     private void initializeComponents() {
@@ -78,29 +103,36 @@ public class VentanaCliente extends JFrame {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
         
-        // Título
+        // Título y filtro por nombre
         JLabel titleLabel = new JLabel("CATÁLOGO DE PRODUCTOS");
         titleLabel.setFont(new Font("Arial", Font.BOLD, 18));
         titleLabel.setHorizontalAlignment(SwingConstants.CENTER);
-        panel.add(titleLabel, BorderLayout.NORTH);
-        
-        // Tabla de productos con colores mejorados
+        JTextField filtroField = new JTextField(30);
+        JLabel resultadosLabel = new JLabel();
+        JPanel filtroPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        filtroPanel.add(new JLabel("🔍 Buscar:"));
+        filtroPanel.add(filtroField);
+        filtroPanel.add(resultadosLabel);
+        JPanel northPanel = new JPanel(new BorderLayout());
+        northPanel.add(titleLabel, BorderLayout.NORTH);
+        northPanel.add(filtroPanel, BorderLayout.SOUTH);
+        panel.add(northPanel, BorderLayout.NORTH);
+        
+        // Tabla de productos con colores mejorados; las celdas se leen del
+        // servicio solo para las filas visibles (Cantidad y Agregar son editables)
         String[] columns = {"Código", "Nombre", "Descripción", "Precio", "Stock", "Cantidad", "Agregar"};
-        DefaultTableModel model = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return column == 5 || column == 6; // Cantidad y Agregar son editables
-            }
-            
-            @Override
-            public Class<?> getColumnClass(int columnIndex) {
-                if (columnIndex == 5) return Integer.class; // Columna Cantidad
-                return String.class;
-            }
+        ModeloTablaArticulos.Columna[] columnas = {
+            ModeloTablaArticulos.Columna.CODIGO, ModeloTablaArticulos.Columna.NOMBRE,
+            ModeloTablaArticulos.Columna.DESCRIPCION, ModeloTablaArticulos.Columna.PRECIO,
+            ModeloTablaArticulos.Columna.STOCK, ModeloTablaArticulos.Columna.CANTIDAD,
+            ModeloTablaArticulos.Columna.ACCION
         };
+        catalogoModel = new ModeloTablaArticulos(articuloServicio, true, columns, columnas, "Agregar al Carrito");
         
-        JTable table = new JTable(model);
+        JTable table = new JTable(catalogoModel);
         configurarTablaConColores(table);
+        table.setDefaultRenderer(Number.class, table.getDefaultRenderer(Object.class));
+        table.getColumn("Precio").setCellRenderer(new RenderizadorImporte(table.getDefaultRenderer(Object.class)));
         
         // Configurar editor para la columna Cantidad (Spinner)
         table.getColumn("Cantidad").setCellEditor(new DefaultCellEditor(new JTextField()) {
@@ -122,21 +154,6 @@ public class VentanaCliente extends JFrame {
         table.getColumn("Agregar").setCellRenderer(new ButtonRenderer());
         table.getColumn("Agregar").setCellEditor(new ButtonEditor(new JCheckBox(), table, this));
         
-        // Llenar tabla con artículos
-        List<Articulo> articulos = articuloServicio.getArticulosDisponibles();
-        for (Articulo articulo : articulos) {
-            Object[] row = {
-                articulo.getCodigo(),
-                articulo.getNombre(),
-                articulo.getDescripcion(),
-                String.format("$%.2f", articulo.getPrecio()),
-                articulo.getTotalStock(),
-                1, // Cantidad por defecto
-                "Agregar al Carrito"
-            };
-            model.addRow(row);
-        }
-        
         // Panel de botones
         JPanel buttonPanel = new JPanel(new FlowLayout());
         JButton crearPedidoBtn = new JButton("🛒 Crear Pedido Directo");
@@ -151,6 +168,14 @@ public class VentanaCliente extends JFrame {
         panel.add(scrollPane, BorderLayout.CENTER);
         panel.add(buttonPanel, BorderLayout.SOUTH);
         
+        // Búsqueda mientras se escribe; el índice de nombres se arma en segundo
+        // plano para que la primera tecla no espere a recorrer el catálogo
+        FiltroArticulos.conectar(filtroField, catalogoModel, articuloServicio, resultadosLabel);
+        CargadorPanel.cargar(panel, () -> {
+            articuloServicio.prepararBusquedaPorNombre();
+            return null;
+        }, listo -> { });
+        
         return panel;
     }
     
@@ -301,10 +326,14 @@ public class VentanaCliente extends JFrame {
                     "Confirmar eliminación", JOptionPane.YES_NO_OPTION);
                 if (confirmacion == JOptionPane.YES_OPTION) {
                     // Eliminar de la lista del cliente
-                    cliente.getDireccionesEnvio().remove(selectedIndex);
-                    // Actualizar la lista visual
-                    listModel.remove(selectedIndex);
-                    JOptionPane.showMessageDialog(this, "Dirección eliminada exitosamente");
+                    if (clienteServicio.quitarDireccionEnvio(cliente.getCodigo(), selectedIndex)) {
+                        // Actualizar la lista visual
+                        listModel.remove(selectedIndex);
+                        JOptionPane.showMessageDialog(this, "Dirección eliminada exitosamente");
+                    } else {
+                        JOptionPane.showMessageDialog(this, "No se pudo eliminar la dirección",
+                            "Error", JOptionPane.ERROR_MESSAGE);
+                    }
                 }
             } else {
                 JOptionPane.showMessageDialog(this, "Seleccione una dirección para eliminar", 
@@ -330,7 +359,8 @@ public class VentanaCliente extends JFrame {
         // Configurar botón con máximo contraste FORZADO
         configurarBotonConMaximoContraste(volverBtn, new Color(220, 20, 60), Color.WHITE);
         volverBtn.addActionListener(e -> {
-            this.setVisible(false);
+            suscripcionStock.cancelar();
+            dispose();
             ventanaPrincipal.setVisible(true);
         });
         
@@ -489,17 +519,15 @@ public class VentanaCliente extends JFrame {
         gbc.gridx = 0; gbc.gridy = 3;
         panel.add(new JLabel("Artículo:"), gbc);
         
-        JComboBox<Articulo> articuloCombo = new JComboBox<>();
-        List<Articulo> articulos = articuloServicio.getArticulosDisponibles();
-        for (Articulo articulo : articulos) {
-            articuloCombo.addItem(articulo);
-        }
+        // Solo los códigos; nombre y precio se leen al dibujar cada opción
+        JComboBox<String> articuloCombo = new JComboBox<>(articuloServicio.getCodigosArticulos(true));
+        articuloCombo.setPrototypeDisplayValue("XXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXXX"); // Sin medir cada opción
         articuloCombo.setRenderer(new DefaultListCellRenderer() {
             @Override
             public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
                 super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
-                if (value instanceof Articulo) {
-                    Articulo art = (Articulo) value;
+                Articulo art = value instanceof String ? articuloServicio.consultarArticulo((String) value) : null;
+                if (art != null) {
                     setText(art.getNombre() + " - $" + String.format("%.2f", art.getPrecio()));
                 }
                 return this;
@@ -545,8 +573,8 @@ public class VentanaCliente extends JFrame {
                         JOptionPane.showMessageDialog(dialog, "Debe ingresar una dirección de envío");
                         return;
                     }
-                    // Agregar la nueva dirección al cliente
-                    cliente.agregarDireccionEnvio(direccionEnvio);
+                    // Agregar la nueva dirección al cliente (si ya la tenía, se usa igual)
+                    clienteServicio.agregarDireccionEnvio(cliente.getCodigo(), direccionEnvio);
                     
                     // Mensaje informativo
                     JOptionPane.showMessageDialog(dialog, 
@@ -560,7 +588,13 @@ public class VentanaCliente extends JFrame {
                     direccionEnvio = (String) direccionCombo.getSelectedItem();
                 }
                 
-                Articulo articuloSeleccionado = (Articulo) articuloCombo.getSelectedItem();
+                String codigoSeleccionado = (String) articuloCombo.getSelectedItem();
+                Articulo articuloSeleccionado = codigoSeleccionado != null
+                    ? articuloServicio.consultarArticulo(codigoSeleccionado) : null;
+                if (articuloSeleccionado == null) {
+                    JOptionPane.showMessageDialog(dialog, "Debe seleccionar un artículo disponible");
+                    return;
+                }
                 int cantidadOrdenada = (Integer) cantidadSpinner.getValue();
                 
                 // Crear el pedido según especificaciones académicas
@@ -724,8 +758,8 @@ public class VentanaCliente extends JFrame {
                     JOptionPane.showMessageDialog(dialog, "Debe ingresar una dirección de envío");
                     return;
                 }
-                // Agregar la nueva dirección al cliente
-                cliente.agregarDireccionEnvio(nuevaDireccion);
+                // Agregar la nueva dirección al cliente (si ya la tenía, se usa igual)
+                clienteServicio.agregarDireccionEnvio(cliente.getCodigo(), nuevaDireccion);
                 direccionEnvio = nuevaDireccion;
                 
                 // Mensaje informativo
@@ -831,15 +865,17 @@ public class VentanaCliente extends JFrame {
         String[] columns = {"Artículo", "Código", "Cantidad", "Precio Unit.", "Subtotal"};
         DefaultTableModel model = new DefaultTableModel(columns, 0);
         
-        for (DetallePedido detalle : pedido.getDetalles()) {
-            Object[] row = {
-                detalle.getArticulo().getNombre(),
-                detalle.getArticulo().getCodigo(),
-                detalle.getCantidadOrdenada(),
-                String.format("$%.2f", detalle.getArticulo().getPrecio()),
-                String.format("$%.2f", detalle.getSubtotal())
-            };
-            model.addRow(row);
+        synchronized (pedido) { // Las líneas son una vista del pedido, no una copia
+            for (DetallePedido detalle : pedido.getDetalles()) {
+                Object[] row = {
+                    detalle.getArticulo().getNombre(),
+                    detalle.getArticulo().getCodigo(),
+                    detalle.getCantidadOrdenada(),
+                    String.format("$%.2f", detalle.getArticulo().getPrecio()),
+                    String.format("$%.2f", detalle.getSubtotal())
+                };
+                model.addRow(row);
+            }
         }
         
         JTable table = new JTable(model);
@@ -890,11 +926,15 @@ public class VentanaCliente extends JFrame {
             String nuevaDireccion = direccionField.getText().trim();
             if (!nuevaDireccion.isEmpty()) {
                 // Agregar al cliente
-                cliente.agregarDireccionEnvio(nuevaDireccion);
-                // Actualizar la lista visual
-                listModel.addElement(nuevaDireccion);
-                JOptionPane.showMessageDialog(dialog, "Dirección agregada exitosamente");
-                dialog.dispose();
+                if (clienteServicio.agregarDireccionEnvio(cliente.getCodigo(), nuevaDireccion)) {
+                    // Actualizar la lista visual
+                    listModel.addElement(nuevaDireccion);
+                    JOptionPane.showMessageDialog(dialog, "Dirección agregada exitosamente");
+                    dialog.dispose();
+                } else {
+                    JOptionPane.showMessageDialog(dialog, "La dirección ya está registrada",
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                }
             } else {
                 JOptionPane.showMessageDialog(dialog, "La dirección no puede estar vacía", 
                     "Error", JOptionPane.ERROR_MESSAGE);
@@ -941,11 +981,15 @@ public class VentanaCliente extends JFrame {
             String direccionEditada = direccionField.getText().trim();
             if (!direccionEditada.isEmpty()) {
                 // Actualizar en el cliente
-                cliente.getDireccionesEnvio().set(index, direccionEditada);
-                // Actualizar la lista visual
-                listModel.setElementAt(direccionEditada, index);
-                JOptionPane.showMessageDialog(dialog, "Dirección actualizada exitosamente");
-                dialog.dispose();
+                if (clienteServicio.reemplazarDireccionEnvio(cliente.getCodigo(), index, direccionEditada)) {
+                    // Actualizar la lista visual
+                    listModel.setElementAt(direccionEditada, index);
+                    JOptionPane.showMessageDialog(dialog, "Dirección actualizada exitosamente");
+                    dialog.dispose();
+                } else {
+                    JOptionPane.showMessageDialog(dialog, "No se pudo actualizar la dirección",
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                }
             } else {
                 JOptionPane.showMessageDialog(dialog, "La dirección no puede estar vacía", 
                     "Error", JOptionPane.ERROR_MESSAGE);
@@ -5,17 +5,28 @@ import servicio.*;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
 
 /**
  * Ventana principal para el Director de Ventas
  */
 public class VentanaDirectorVentas extends JFrame {
+    private static final int REFRESCO_TABLERO_MILIS = 1000;
     private PedidoServicio pedidoServicio;
     private ClienteServicio clienteServicio;
     private ArticuloServicio articuloServicio;
     private VentanaPrincipal ventanaPrincipal;
     private JTabbedPane tabbedPane;
+    private ModeloTablaPedidos pedidosModel;
+    private final BusEventos.Suscripcion<EventoDominio> suscripcionPedidos;
     
     public VentanaDirectorVentas(PedidoServicio pedidoServicio, ClienteServicio clienteServicio, ArticuloServicio articuloServicio, VentanaPrincipal ventanaPrincipal) {
         this.pedidoServicio = pedidoServicio;
@@ -24,6 +35,36 @@ public class VentanaDirectorVentas extends JFrame {
         this.ventanaPrincipal = ventanaPrincipal;
         
         initializeComponents();
+        
+        // Una sola suscripción; la pestaña de pedidos se recrea y cambia el modelo
+        suscripcionPedidos = pedidoServicio.getBusEventos().suscribir(EventoDominio.class,
+            SwingUtilities::invokeLater, true, this::pedidosCambiados);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                suscripcionPedidos.cancelar();
+            }
+        });
+    }
+    
+    /**
+     * Refresca solo las filas de los pedidos tocados por los eventos
+     */
+    private void pedidosCambiados(List<EventoDominio> eventos) {
+        Set<String> numeros = new HashSet<>();
+        for (EventoDominio evento : eventos) {
+            if (evento instanceof EventoDominio.PedidoCreado) {
+                Pedido pedido = pedidoServicio.buscarPedido(((EventoDominio.PedidoCreado) evento).getNumeroPedido());
+                if (pedido != null) {
+                    pedidosModel.pedidoAgregado(pedido);
+                }
+            } else if (evento instanceof EventoDominio.PedidoModificado) {
+                numeros.add(((EventoDominio.PedidoModificado) evento).getNumeroPedido());
+            } else if (evento instanceof EventoDominio.EstadoPedidoCambiado) {
+                numeros.add(((EventoDominio.EstadoPedidoCambiado) evento).getNumeroPedido());
+            }
+        }
+        pedidosModel.pedidosCambiados(numeros);
     }
     
     private void initializeComponents() {
@@ -78,40 +119,51 @@ public class VentanaDirectorVentas extends JFrame {
         JPanel panel = new JPanel(new GridLayout(2, 3, 20, 20));
         panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
         
-        // Estadísticas generales
-        panel.add(createStatsCard("👥 CLIENTES", 
-            String.valueOf(clienteServicio.getCantidadClientes()),
+        // Estadísticas generales, leídas de los contadores y refrescadas cada segundo
+        MetricasNegocio metricas = pedidoServicio.getMetricas();
+        panel.add(createStatsCard(panel, "👥 CLIENTES", 
+            () -> String.valueOf(metricas.getCantidadClientes()),
             "Total registrados",
             new Color(52, 152, 219)));
         
-        panel.add(createStatsCard("🛒 PEDIDOS", 
-            String.valueOf(pedidoServicio.getCantidadPedidos()),
+        panel.add(createStatsCard(panel, "🛒 PEDIDOS", 
+            () -> String.valueOf(metricas.getCantidadPedidos()),
             "Total procesados",
             new Color(46, 204, 113)));
         
-        panel.add(createStatsCard("📦 ARTÍCULOS", 
-            String.valueOf(articuloServicio.getCantidadArticulos()),
+        panel.add(createStatsCard(panel, "📦 ARTÍCULOS", 
+            () -> String.valueOf(metricas.getCantidadArticulos()),
             "En catálogo",
             new Color(155, 89, 182)));
         
-        panel.add(createStatsCard("⏳ PENDIENTES", 
-            String.valueOf(pedidoServicio.getPedidosPendientes().size()),
+        panel.add(createStatsCard(panel, "⏳ PENDIENTES", 
+            () -> String.valueOf(metricas.getCantidadPedidosPendientes()),
             "Pedidos por procesar",
             new Color(243, 156, 18)));
         
-        panel.add(createStatsCard("⚠️ BAJO STOCK", 
-            String.valueOf(articuloServicio.getArticulosConBajoStock().size()),
+        panel.add(createStatsCard(panel, "⚠️ BAJO STOCK", 
+            () -> String.valueOf(metricas.getCantidadArticulosConBajoStock()),
             "Artículos críticos",
             new Color(231, 76, 60)));
         
-        panel.add(createStatsCard("💰 SALDOS", 
-            String.format("$%.0f", clienteServicio.getTotalSaldosClientes()),
+        panel.add(createStatsCard(panel, "💰 SALDOS", 
+            () -> String.format("$%.0f", metricas.getTotalSaldos()),
             "Total en cuentas",
             new Color(26, 188, 156)));
         
         return panel;
     }
     
+    /**
+     * Tarjeta cuyo valor se vuelve a leer cada segundo mientras el tablero está a la vista
+     */
+    private JPanel createStatsCard(JPanel contenedor, String title, Supplier<String> valor, String description, Color color) {
+        JPanel card = createStatsCard(title, valor.get(), description, color);
+        JLabel valueLabel = (JLabel) ((BorderLayout) card.getLayout()).getLayoutComponent(BorderLayout.CENTER);
+        CargadorPanel.refrescarCada(contenedor, REFRESCO_TABLERO_MILIS, () -> valueLabel.setText(valor.get()));
+        return card;
+    }
+    
     private JPanel createStatsCard(String title, String value, String description, Color color) {
         JPanel card = new JPanel(new BorderLayout());
         card.setBackground(color);
@@ -233,132 +285,214 @@ public class VentanaDirectorVentas extends JFrame {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
         
-        // Título
+        // Título y botones
+        JPanel topPanel = new JPanel(new BorderLayout());
         JLabel titleLabel = new JLabel("GESTIÓN DE PEDIDOS");
         titleLabel.setFont(new Font("Arial", Font.BOLD, 18));
         titleLabel.setHorizontalAlignment(SwingConstants.CENTER);
-        panel.add(titleLabel, BorderLayout.NORTH);
+        
+        JPanel buttonPanel = new JPanel(new FlowLayout());
+        JButton procesarPendientesBtn = new JButton("⚡ Procesar Pendientes");
+        configurarBotonConMaximoContraste(procesarPendientesBtn, new Color(34, 139, 34), Color.WHITE);
+        procesarPendientesBtn.addActionListener(e -> procesarPedidosPendientes(procesarPendientesBtn));
+        buttonPanel.add(procesarPendientesBtn);
+        
+        JButton asignarStockBtn = new JButton("🎯 Asignar Stock");
+        configurarBotonConMaximoContraste(asignarStockBtn, new Color(70, 130, 180), Color.WHITE);
+        asignarStockBtn.addActionListener(e -> asignarStockPendiente(asignarStockBtn));
+        buttonPanel.add(asignarStockBtn);
+        
+        topPanel.add(titleLabel, BorderLayout.CENTER);
+        topPanel.add(buttonPanel, BorderLayout.EAST);
+        panel.add(topPanel, BorderLayout.NORTH);
         
         // Tabla de pedidos
-        String[] columns = {"Número", "Cliente", "Fecha", "Estado", "Monto", "Completo", "Acciones"};
-        DefaultTableModel model = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return column == 6; // Solo la columna de acciones
-            }
-        };
+        pedidosModel = new ModeloTablaPedidos(pedidoServicio.listarPedidos());
         
-        JTable table = new JTable(model);
+        JTable table = new JTable(pedidosModel);
         configurarTablaConColores(table);
+        table.setDefaultRenderer(Number.class, table.getDefaultRenderer(Object.class));
+        table.getColumn("Monto").setCellRenderer(new RenderizadorImporte(table.getDefaultRenderer(Object.class)));
         
         // Configurar editor y renderer para la columna de botones "Acciones"
         table.getColumn("Acciones").setCellRenderer(new PedidoDirectorButtonRenderer());
         table.getColumn("Acciones").setCellEditor(new PedidoDirectorButtonEditor(new JCheckBox(), table, this));
         
-        // Llenar tabla con pedidos
-        List<Pedido> pedidos = pedidoServicio.listarPedidos();
-        for (Pedido pedido : pedidos) {
-            Object[] row = {
-                pedido.getNumeroPedido(),
-                pedido.getCliente().getNombre(),
-                pedido.getFechaPedido().toString(),
-                pedido.getEstado().toString(),
-                String.format("$%.2f", pedido.getMontoTotal()),
-                pedido.estaCompleto() ? "Sí" : "No",
-                "Gestionar"
-            };
-            model.addRow(row);
-        }
-        
         JScrollPane scrollPane = new JScrollPane(table);
         panel.add(scrollPane, BorderLayout.CENTER);
         
         return panel;
     }
     
+    /**
+     * Procesa en lote todos los pedidos pendientes sin bloquear la interfaz
+     */
+    private void procesarPedidosPendientes(JButton procesarBtn) {
+        int pendientes = pedidoServicio.getCantidadPedidosPorEstado(EstadoPedido.PENDIENTE);
+        if (pendientes == 0) {
+            JOptionPane.showMessageDialog(this, "No hay pedidos pendientes");
+            return;
+        }
+        int confirmacion = JOptionPane.showConfirmDialog(this,
+            "¿Procesar los " + pendientes + " pedidos pendientes?",
+            "Procesar Pendientes", JOptionPane.YES_NO_OPTION);
+        if (confirmacion != JOptionPane.YES_OPTION) {
+            return;
+        }
+        ejecutarLote(procesarBtn, "Resultado del Procesamiento", "procesamiento-pendientes",
+            () -> new ProcesadorLotes(pedidoServicio).procesarPendientes());
+    }
+    
+    /**
+     * Reparte el stock escaso entre los pedidos pendientes según el objetivo
+     * elegido y procesa los pedidos asignados
+     */
+    private void asignarStockPendiente(JButton asignarBtn) {
+        int pendientes = pedidoServicio.getCantidadPedidosPorEstado(EstadoPedido.PENDIENTE);
+        if (pendientes == 0) {
+            JOptionPane.showMessageDialog(this, "No hay pedidos pendientes");
+            return;
+        }
+        String[] opciones = {"Más pedidos completos", "Más ingresos", "Cancelar"};
+        int opcion = JOptionPane.showOptionDialog(this,
+            "¿Qué priorizar al repartir el stock entre los " + pendientes + " pedidos pendientes?",
+            "Asignar Stock", JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE,
+            null, opciones, opciones[0]);
+        if (opcion != 0 && opcion != 1) {
+            return;
+        }
+        AsignadorStock.Objetivo objetivo = opcion == 0
+            ? AsignadorStock.Objetivo.MAX_PEDIDOS : AsignadorStock.Objetivo.MAX_INGRESOS;
+        ejecutarLote(asignarBtn, "Resultado de la Asignación", "asignacion-stock",
+            () -> new AsignadorStock(pedidoServicio).asignar(objetivo));
+    }
+    
+    /**
+     * Corre el lote en un hilo de fondo con el botón deshabilitado; si el lote
+     * falla, el botón se vuelve a habilitar y se muestra el error
+     */
+    private void ejecutarLote(JButton boton, String titulo, String nombreHilo,
+                              Supplier<List<ProcesadorLotes.ResultadoProcesamiento>> lote) {
+        boton.setEnabled(false);
+        
+        Thread hilo = new Thread(() -> {
+            try {
+                mostrarResultadoLote(lote.get(), boton, titulo);
+            } catch (RuntimeException ex) {
+                String mensaje = "Error al procesar el lote: " + ex.getMessage();
+                SwingUtilities.invokeLater(() -> {
+                    boton.setEnabled(true);
+                    tabbedPane.setComponentAt(2, createPedidosPanel());
+                    JOptionPane.showMessageDialog(this, mensaje, titulo, JOptionPane.ERROR_MESSAGE);
+                });
+            }
+        }, nombreHilo);
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+    
+    /**
+     * Resume los resultados de un lote y actualiza la pestaña de pedidos;
+     * se llama desde el hilo de fondo
+     */
+    private void mostrarResultadoLote(List<ProcesadorLotes.ResultadoProcesamiento> resultados,
+                                      JButton boton, String titulo) {
+        int procesados = 0;
+        StringBuilder rechazados = new StringBuilder();
+        int mostrados = 0;
+        for (ProcesadorLotes.ResultadoProcesamiento resultado : resultados) {
+            if (resultado.isProcesado()) {
+                procesados++;
+            } else if (mostrados++ < 15) {
+                rechazados.append("\n• ").append(resultado);
+            }
+        }
+        int noProcesados = resultados.size() - procesados;
+        String mensaje = "Procesados: " + procesados + "\nNo procesados: " + noProcesados
+            + (noProcesados > 0 ? "\n" + rechazados + (noProcesados > 15 ? "\n..." : "") : "");
+        
+        SwingUtilities.invokeLater(() -> {
+            boton.setEnabled(true);
+            tabbedPane.setComponentAt(2, createPedidosPanel());
+            JOptionPane.showMessageDialog(this, mensaje, titulo,
+                noProcesados > 0 ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+        });
+    }
+    
     private JPanel createReportesPanel() {
         JPanel panel = new JPanel(new GridLayout(2, 2, 20, 20));
         panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
         
         // Reporte de ventas
-        JPanel ventasPanel = new JPanel(new BorderLayout());
-        ventasPanel.setBorder(BorderFactory.createTitledBorder("📊 Reportes de Ventas"));
-        
-        JTextArea ventasArea = new JTextArea();
-        ventasArea.setEditable(false);
-        ventasArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
-        
-        StringBuilder ventasInfo = new StringBuilder();
-        ventasInfo.append("RESUMEN DE VENTAS\n\n");
-        
-        var estadisticas = pedidoServicio.getEstadisticasPorEstado();
-        for (var entry : estadisticas.entrySet()) {
-            ventasInfo.append(String.format("%-15s: %d pedidos%n", entry.getKey(), entry.getValue()));
-        }
-        
-        ventasArea.setText(ventasInfo.toString());
-        ventasPanel.add(new JScrollPane(ventasArea), BorderLayout.CENTER);
+        JPanel ventasPanel = createReportePanel(panel, "📊 Reportes de Ventas", () -> {
+            StringBuilder ventasInfo = new StringBuilder();
+            ventasInfo.append("RESUMEN DE VENTAS\n\n");
+            
+            var estadisticas = pedidoServicio.getEstadisticasPorEstado();
+            for (var entry : estadisticas.entrySet()) {
+                ventasInfo.append(String.format("%-15s: %d pedidos%n", entry.getKey(), entry.getValue()));
+            }
+            
+            LocalDate hoy = LocalDate.now();
+            ventasInfo.append("\nVENTAS (sin cancelados)\n");
+            ventasInfo.append(String.format("%-15s: $%.2f%n", "Hoy", pedidoServicio.getTotalVentasPorFecha(hoy)));
+            ventasInfo.append(String.format("%-15s: $%.2f%n", "Últimos 7 días",
+                pedidoServicio.getTotalVentasEntreFechas(hoy.minusDays(6), hoy)));
+            ventasInfo.append(String.format("%-15s: $%.2f%n", "Últimos 30 días",
+                pedidoServicio.getTotalVentasEntreFechas(hoy.minusDays(29), hoy)));
+            return ventasInfo.toString();
+        });
         
         // Top artículos
-        JPanel topPanel = new JPanel(new BorderLayout());
-        topPanel.setBorder(BorderFactory.createTitledBorder("🏆 Top Artículos"));
-        
-        JTextArea topArea = new JTextArea();
-        topArea.setEditable(false);
-        topArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
-        
-        StringBuilder topInfo = new StringBuilder();
-        topInfo.append("ARTÍCULOS MÁS PEDIDOS\n\n");
-        
-        List<Articulo> topArticulos = pedidoServicio.getArticulosMasPedidos(5);
-        for (int i = 0; i < topArticulos.size(); i++) {
-            Articulo articulo = topArticulos.get(i);
-            topInfo.append(String.format("%d. %s (%s)%n", 
-                i + 1, articulo.getNombre(), articulo.getCodigo()));
-        }
-        
-        topArea.setText(topInfo.toString());
-        topPanel.add(new JScrollPane(topArea), BorderLayout.CENTER);
+        JPanel topPanel = createReportePanel(panel, "🏆 Top Artículos", () -> {
+            StringBuilder topInfo = new StringBuilder();
+            topInfo.append("ARTÍCULOS MÁS PEDIDOS\n");
+            
+            RankingArticulos ranking = pedidoServicio.getRankingArticulos();
+            String[] titulos = {"Hoy", "Últimos 7 días", "Últimos 30 días", "Histórico"};
+            RankingArticulos.Ventana[] ventanas = {RankingArticulos.Ventana.HOY,
+                RankingArticulos.Ventana.ULTIMOS_7_DIAS, RankingArticulos.Ventana.ULTIMOS_30_DIAS,
+                RankingArticulos.Ventana.HISTORICO};
+            for (int v = 0; v < ventanas.length; v++) {
+                topInfo.append("\n").append(titulos[v]).append(":\n");
+                List<Articulo> topArticulos = pedidoServicio.getArticulosMasPedidos(5, ventanas[v]);
+                if (topArticulos.isEmpty()) {
+                    topInfo.append("  (sin pedidos)\n");
+                }
+                for (int i = 0; i < topArticulos.size(); i++) {
+                    Articulo articulo = topArticulos.get(i);
+                    topInfo.append(String.format("%d. %s (%s) - %d uds%n", 
+                        i + 1, articulo.getNombre(), articulo.getCodigo(),
+                        ranking.getUnidades(ventanas[v], articulo.getCodigo())));
+                }
+            }
+            return topInfo.toString();
+        });
         
         // Alertas
-        JPanel alertasPanel = new JPanel(new BorderLayout());
-        alertasPanel.setBorder(BorderFactory.createTitledBorder("⚠️ Alertas"));
-        
-        JTextArea alertasArea = new JTextArea();
-        alertasArea.setEditable(false);
-        alertasArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
-        
-        StringBuilder alertasInfo = new StringBuilder();
-        alertasInfo.append("ALERTAS DEL SISTEMA\n\n");
-        
-        List<Articulo> bajoStock = articuloServicio.getArticulosConBajoStock();
-        alertasInfo.append("Artículos con bajo stock: ").append(bajoStock.size()).append("\n");
-        
-        List<Cliente> saldoVencido = clienteServicio.getClientesConSaldoVencido();
-        alertasInfo.append("Clientes con saldo vencido: ").append(saldoVencido.size()).append("\n");
-        
-        alertasInfo.append("Pedidos pendientes: ").append(pedidoServicio.getPedidosPendientes().size()).append("\n");
-        
-        alertasArea.setText(alertasInfo.toString());
-        alertasPanel.add(new JScrollPane(alertasArea), BorderLayout.CENTER);
+        JPanel alertasPanel = createReportePanel(panel, "⚠️ Alertas", () -> {
+            StringBuilder alertasInfo = new StringBuilder();
+            alertasInfo.append("ALERTAS DEL SISTEMA\n\n");
+            
+            alertasInfo.append("Artículos con bajo stock: ").append(articuloServicio.getCantidadArticulosConBajoStock()).append("\n");
+            
+            List<Cliente> saldoVencido = clienteServicio.getClientesConSaldoVencido();
+            alertasInfo.append("Clientes con saldo vencido: ").append(saldoVencido.size()).append("\n");
+            
+            alertasInfo.append("Pedidos pendientes: ").append(pedidoServicio.getMetricas().getCantidadPedidosPendientes()).append("\n");
+            return alertasInfo.toString();
+        });
         
         // Estadísticas generales
-        JPanel statsPanel = new JPanel(new BorderLayout());
-        statsPanel.setBorder(BorderFactory.createTitledBorder("📈 Estadísticas"));
-        
-        JTextArea statsArea = new JTextArea();
-        statsArea.setEditable(false);
-        statsArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
-        
-        StringBuilder statsInfo = new StringBuilder();
-        statsInfo.append("ESTADÍSTICAS GENERALES\n\n");
-        statsInfo.append("Total clientes: ").append(clienteServicio.getCantidadClientes()).append("\n");
-        statsInfo.append("Total artículos: ").append(articuloServicio.getCantidadArticulos()).append("\n");
-        statsInfo.append("Total pedidos: ").append(pedidoServicio.getCantidadPedidos()).append("\n");
-        statsInfo.append("Plantas activas: ").append(articuloServicio.getResumenStockPorPlanta().size()).append("\n");
-        
-        statsArea.setText(statsInfo.toString());
-        statsPanel.add(new JScrollPane(statsArea), BorderLayout.CENTER);
+        JPanel statsPanel = createReportePanel(panel, "📈 Estadísticas", () -> {
+            StringBuilder statsInfo = new StringBuilder();
+            statsInfo.append("ESTADÍSTICAS GENERALES\n\n");
+            statsInfo.append("Total clientes: ").append(clienteServicio.getCantidadClientes()).append("\n");
+            statsInfo.append("Total artículos: ").append(articuloServicio.getCantidadArticulos()).append("\n");
+            statsInfo.append("Total pedidos: ").append(pedidoServicio.getCantidadPedidos()).append("\n");
+            statsInfo.append("Plantas activas: ").append(articuloServicio.getCantidadPlantasActivas()).append("\n");
+            return statsInfo.toString();
+        });
         
         panel.add(ventasPanel);
         panel.add(topPanel);
@@ -368,6 +502,26 @@ public class VentanaDirectorVentas extends JFrame {
         return panel;
     }
     
+    /**
+     * Recuadro de texto de un reporte; muestra "Cargando..." hasta que el
+     * contenido se calcula en segundo plano
+     */
+    private JPanel createReportePanel(JPanel contenedor, String titulo, Callable<String> contenido) {
+        JPanel reportePanel = new JPanel(new BorderLayout());
+        reportePanel.setBorder(BorderFactory.createTitledBorder(titulo));
+        
+        JTextArea area = new JTextArea("Cargando...");
+        area.setEditable(false);
+        area.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        reportePanel.add(new JScrollPane(area), BorderLayout.CENTER);
+        
+        CargadorPanel.cargar(contenedor, contenido, texto -> {
+            area.setText(texto);
+            area.setCaretPosition(0);
+        });
+        return reportePanel;
+    }
+    
     private JPanel createInventarioPanel() {
         JPanel inventarioPanel = new JPanel(new BorderLayout());
         inventarioPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
@@ -378,27 +532,19 @@ public class VentanaDirectorVentas extends JFrame {
         titleLabel.setHorizontalAlignment(SwingConstants.CENTER);
         inventarioPanel.add(titleLabel, BorderLayout.NORTH);
         
-        // Tabla de artículos
+        // Tabla de artículos: las celdas se leen del servicio solo para las filas visibles
         String[] columns = {"Código", "Nombre", "Precio", "Stock Total", "Estado", "Plantas"};
-        DefaultTableModel model = new DefaultTableModel(columns, 0);
+        ModeloTablaArticulos.Columna[] columnas = {
+            ModeloTablaArticulos.Columna.CODIGO, ModeloTablaArticulos.Columna.NOMBRE,
+            ModeloTablaArticulos.Columna.PRECIO, ModeloTablaArticulos.Columna.STOCK,
+            ModeloTablaArticulos.Columna.ESTADO, ModeloTablaArticulos.Columna.PLANTAS
+        };
+        ModeloTablaArticulos model = new ModeloTablaArticulos(articuloServicio, false, columns, columnas, null);
         
         JTable table = new JTable(model);
         configurarTablaConColores(table);
-        
-        // Llenar tabla con artículos
-        List<Articulo> articulos = articuloServicio.listarArticulos();
-        for (Articulo articulo : articulos) {
-            String estado = articuloServicio.getArticulosConBajoStock().contains(articulo) ? "BAJO STOCK" : "NORMAL";
-            Object[] row = {
-                articulo.getCodigo(),
-                articulo.getNombre(),
-                String.format("$%.2f", articulo.getPrecio()),
-                articulo.getTotalStock(),
-                estado,
-                articulo.getCantidadPorPlanta().size()
-            };
-            model.addRow(row);
-        }
+        table.setDefaultRenderer(Number.class, table.getDefaultRenderer(Object.class));
+        table.getColumn("Precio").setCellRenderer(new RenderizadorImporte(table.getDefaultRenderer(Object.class)));
         
         JScrollPane scrollPane = new JScrollPane(table);
         inventarioPanel.add(scrollPane, BorderLayout.CENTER);
@@ -418,7 +564,8 @@ public class VentanaDirectorVentas extends JFrame {
         configurarBotonConMaximoContraste(actualizarBtn, new Color(70, 130, 180), Color.WHITE);
         
         volverBtn.addActionListener(e -> {
-            this.setVisible(false);
+            suscripcionPedidos.cancelar();
+            dispose();
             ventanaPrincipal.setVisible(true);
         });
         
@@ -529,17 +676,18 @@ public class VentanaDirectorVentas extends JFrame {
                     cliente.setLimiteCredito(limite);
                     cliente.setPorcentajeDescuento(descuento);
                     
-                    // Actualizar direcciones de envío
-                    cliente.getDireccionesEnvio().clear(); // Limpiar direcciones existentes
+                    // Actualizar direcciones de envío: reemplazan a las existentes
+                    List<String> nuevasDirecciones = new ArrayList<>();
                     if (!direccionesTexto.isEmpty()) {
                         String[] direcciones = direccionesTexto.split("\n");
                         for (String direccion : direcciones) {
                             String dir = direccion.trim();
-                            if (!dir.isEmpty()) {
-                                cliente.agregarDireccionEnvio(dir);
+                            if (!dir.isEmpty() && !nuevasDirecciones.contains(dir)) {
+                                nuevasDirecciones.add(dir);
                             }
                         }
                     }
+                    cliente.setDireccionesEnvio(nuevasDirecciones);
                     
                     if (clienteServicio.actualizarCliente(cliente)) {
                         JOptionPane.showMessageDialog(dialog, "Cliente actualizado exitosamente");
@@ -760,15 +908,17 @@ public class VentanaDirectorVentas extends JFrame {
         String[] columns = {"Artículo", "Código", "Cantidad", "Precio Unit.", "Subtotal"};
         DefaultTableModel model = new DefaultTableModel(columns, 0);
         
-        for (DetallePedido detalle : pedido.getDetalles()) {
-            Object[] row = {
-                detalle.getArticulo().getNombre(),
-                detalle.getArticulo().getCodigo(),
-                detalle.getCantidadOrdenada(),
-                String.format("$%.2f", detalle.getArticulo().getPrecio()),
-                String.format("$%.2f", detalle.getSubtotal())
-            };
-            model.addRow(row);
+        synchronized (pedido) { // Las líneas son una vista del pedido, no una copia
+            for (DetallePedido detalle : pedido.getDetalles()) {
+                Object[] row = {
+                    detalle.getArticulo().getNombre(),
+                    detalle.getArticulo().getCodigo(),
+                    detalle.getCantidadOrdenada(),
+                    String.format("$%.2f", detalle.getArticulo().getPrecio()),
+                    String.format("$%.2f", detalle.getSubtotal())
+                };
+                model.addRow(row);
+            }
         }
         
         JTable table = new JTable(model);
@@ -824,14 +974,19 @@ public class VentanaDirectorVentas extends JFrame {
                 "¿Está seguro de cancelar este pedido?",
                 "Confirmar Cancelación", JOptionPane.YES_NO_OPTION);
             if (confirmacion == JOptionPane.YES_OPTION) {
-                if (pedidoServicio.cancelarPedido(pedido.getNumeroPedido())) {
-                    JOptionPane.showMessageDialog(dialog, "Pedido cancelado exitosamente");
-                    estadoLabel.setText(pedido.getEstado().toString());
-                    // Actualizar la tabla de pedidos
-                    tabbedPane.setComponentAt(2, createPedidosPanel());
-                    dialog.dispose();
-                } else {
-                    JOptionPane.showMessageDialog(dialog, "No se pudo cancelar el pedido");
+                try {
+                    if (pedidoServicio.cancelarPedido(pedido.getNumeroPedido())) {
+                        JOptionPane.showMessageDialog(dialog, "Pedido cancelado exitosamente");
+                        estadoLabel.setText(pedido.getEstado().toString());
+                        // Actualizar la tabla de pedidos
+                        tabbedPane.setComponentAt(2, createPedidosPanel());
+                        dialog.dispose();
+                    } else {
+                        JOptionPane.showMessageDialog(dialog, "No se pudo cancelar el pedido");
+                    }
+                } catch (IllegalStateException ex) {
+                    JOptionPane.showMessageDialog(dialog, "Error: " + ex.getMessage(),
+                        "Error", JOptionPane.ERROR_MESSAGE);
                 }
             }
         });
@@ -868,7 +1023,15 @@ public class VentanaDirectorVentas extends JFrame {
         );
         
         if (estadoSeleccionado != null && estadoSeleccionado != pedido.getEstado()) {
-            if (pedidoServicio.cambiarEstadoPedido(pedido.getNumeroPedido(), estadoSeleccionado)) {
+            boolean cambiado;
+            try {
+                cambiado = pedidoServicio.cambiarEstadoPedido(pedido.getNumeroPedido(), estadoSeleccionado);
+            } catch (IllegalStateException ex) {
+                JOptionPane.showMessageDialog(parentDialog, "Error: " + ex.getMessage(),
+                    "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            if (cambiado) {
                 JOptionPane.showMessageDialog(parentDialog, 
                     "Estado cambiado exitosamente a: " + estadoSeleccionado.toString());
                 // Actualizar la tabla de pedidos
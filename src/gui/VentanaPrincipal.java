@@ -205,7 +205,7 @@ public class VentanaPrincipal extends JFrame {
             Cliente cliente = clienteServicio.buscarCliente(codigoCliente.trim());
             
             if (cliente != null) {
-                VentanaCliente ventanaCliente = new VentanaCliente(cliente, pedidoServicio, articuloServicio, this);
+                VentanaCliente ventanaCliente = new VentanaCliente(cliente, clienteServicio, pedidoServicio, articuloServicio, this);
                 ventanaCliente.setVisible(true);
                 this.setVisible(false);
             } else {
@@ -285,14 +285,14 @@ public class VentanaPrincipal extends JFrame {
         // Inventario
         stats.append("📦 INVENTARIO:\n");
         stats.append("Total artículos: ").append(articuloServicio.getCantidadArticulos()).append("\n");
-        stats.append("Disponibles: ").append(articuloServicio.getArticulosDisponibles().size()).append("\n");
-        stats.append("Con bajo stock: ").append(articuloServicio.getArticulosConBajoStock().size()).append("\n");
-        stats.append("Plantas activas: ").append(articuloServicio.getResumenStockPorPlanta().size()).append("\n\n");
+        stats.append("Disponibles: ").append(articuloServicio.getCantidadArticulosDisponibles()).append("\n");
+        stats.append("Con bajo stock: ").append(articuloServicio.getCantidadArticulosConBajoStock()).append("\n");
+        stats.append("Plantas activas: ").append(articuloServicio.getCantidadPlantasActivas()).append("\n\n");
         
         // Pedidos
         stats.append("🛒 PEDIDOS:\n");
         stats.append("Total: ").append(pedidoServicio.getCantidadPedidos()).append("\n");
-        stats.append("Pendientes: ").append(pedidoServicio.getPedidosPendientes().size()).append("\n");
+        stats.append("Pendientes: ").append(pedidoServicio.getCantidadPedidosPorEstado(EstadoPedido.PENDIENTE)).append("\n");
         stats.append("Incompletos: ").append(pedidoServicio.getPedidosIncompletos().size()).append("\n");
         
         JTextArea textArea = new JTextArea(stats.toString());
@@ -5,17 +5,27 @@ import servicio.*;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
 
 /**
  * Ventana principal para el Proveedor
  */
 public class VentanaProveedor extends JFrame {
+    private static final int REFRESCO_TABLERO_MILIS = 1000;
     private ArticuloServicio articuloServicio;
     private PedidoServicio pedidoServicio;
     private VentanaPrincipal ventanaPrincipal;
     private JTabbedPane tabbedPane;
+    // Tabla de artículos; se actualizan solo las filas cuyo stock cambia
+    private ModeloTablaArticulos articulosModel;
+    private final BusEventos.Suscripcion<EventoDominio.StockCambiado> suscripcionStock;
     
     public VentanaProveedor(ArticuloServicio articuloServicio, PedidoServicio pedidoServicio, VentanaPrincipal ventanaPrincipal) {
         this.articuloServicio = articuloServicio;
@@ -23,6 +33,31 @@ public class VentanaProveedor extends JFrame {
         this.ventanaPrincipal = ventanaPrincipal;
         
         initializeComponents();
+        
+        // Los cambios de stock llegan agrupados y ya combinados por artículo y planta
+        suscripcionStock = articuloServicio.getBusEventos().suscribir(EventoDominio.StockCambiado.class,
+            SwingUtilities::invokeLater, true, this::stockCambiado);
+        // Cada visita abre una ventana nueva; la que se cierra deja de escuchar el bus
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                suscripcionStock.cancelar();
+            }
+        });
+    }
+    
+    /**
+     * Redibuja solo las filas de los artículos cuyo stock cambió
+     */
+    private void stockCambiado(List<EventoDominio.StockCambiado> eventos) {
+        if (articulosModel == null) {
+            return;
+        }
+        Set<String> codigos = new HashSet<>();
+        for (EventoDominio.StockCambiado evento : eventos) {
+            codigos.add(evento.getCodigoArticulo());
+        }
+        articulosModel.articulosCambiados(codigos);
     }
     
     private void initializeComponents() {
@@ -77,45 +112,51 @@ public class VentanaProveedor extends JFrame {
         JPanel panel = new JPanel(new GridLayout(2, 3, 20, 20));
         panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
         
-        // Estadísticas del proveedor
-        panel.add(createStatsCard("📦 ARTÍCULOS", 
-            String.valueOf(articuloServicio.getCantidadArticulos()),
+        // Estadísticas del proveedor, leídas de los contadores y refrescadas cada segundo
+        MetricasNegocio metricas = pedidoServicio.getMetricas();
+        panel.add(createStatsCard(panel, "📦 ARTÍCULOS", 
+            () -> String.valueOf(metricas.getCantidadArticulos()),
             "Total en catálogo",
             new Color(52, 152, 219)));
         
-        panel.add(createStatsCard("🏭 PLANTAS", 
-            String.valueOf(articuloServicio.getResumenStockPorPlanta().size()),
+        panel.add(createStatsCard(panel, "🏭 PLANTAS", 
+            () -> String.valueOf(metricas.getCantidadPlantasActivas()),
             "Manufactureras activas",
             new Color(46, 204, 113)));
         
-        panel.add(createStatsCard("📈 DISPONIBLES", 
-            String.valueOf(articuloServicio.getArticulosDisponibles().size()),
+        panel.add(createStatsCard(panel, "📈 DISPONIBLES", 
+            () -> String.valueOf(metricas.getCantidadArticulosDisponibles()),
             "Con stock disponible",
             new Color(155, 89, 182)));
         
-        panel.add(createStatsCard("⚠️ BAJO STOCK", 
-            String.valueOf(articuloServicio.getArticulosConBajoStock().size()),
+        panel.add(createStatsCard(panel, "⚠️ BAJO STOCK", 
+            () -> String.valueOf(metricas.getCantidadArticulosConBajoStock()),
             "Requieren reabastecimiento",
             new Color(231, 76, 60)));
         
-        // Calcular total de unidades en stock
-        int totalStock = articuloServicio.listarArticulos().stream()
-            .mapToInt(Articulo::getTotalStock)
-            .sum();
-        
-        panel.add(createStatsCard("📊 STOCK TOTAL", 
-            String.valueOf(totalStock),
+        panel.add(createStatsCard(panel, "📊 STOCK TOTAL", 
+            () -> String.valueOf(metricas.getTotalUnidadesStock()),
             "Unidades en inventario",
             new Color(243, 156, 18)));
         
-        panel.add(createStatsCard("🔄 DEMANDA", 
-            String.valueOf(pedidoServicio.getPedidosPendientes().size()),
+        panel.add(createStatsCard(panel, "🔄 DEMANDA", 
+            () -> String.valueOf(metricas.getCantidadPedidosPendientes()),
             "Pedidos pendientes",
             new Color(26, 188, 156)));
         
         return panel;
     }
     
+    /**
+     * Tarjeta cuyo valor se vuelve a leer cada segundo mientras el tablero está a la vista
+     */
+    private JPanel createStatsCard(JPanel contenedor, String title, Supplier<String> valor, String description, Color color) {
+        JPanel card = createStatsCard(title, valor.get(), description, color);
+        JLabel valueLabel = (JLabel) ((BorderLayout) card.getLayout()).getLayoutComponent(BorderLayout.CENTER);
+        CargadorPanel.refrescarCada(contenedor, REFRESCO_TABLERO_MILIS, () -> valueLabel.setText(valor.get()));
+        return card;
+    }
+    
     private JPanel createStatsCard(String title, String value, String description, Color color) {
         JPanel card = new JPanel(new BorderLayout());
         card.setBackground(color);
@@ -157,41 +198,45 @@ public class VentanaProveedor extends JFrame {
         
         JPanel buttonPanel = new JPanel(new FlowLayout());
         JButton nuevoArticuloBtn = new JButton("➕ Nuevo Artículo");
+        JButton importarBtn = new JButton("📥 Importar CSV");
         JButton actualizarBtn = new JButton("🔄 Actualizar");
         
         // Configurar botones con máximo contraste FORZADO
         configurarBotonConMaximoContraste(nuevoArticuloBtn, new Color(138, 43, 226), Color.WHITE);
+        configurarBotonConMaximoContraste(importarBtn, new Color(34, 139, 34), Color.WHITE);
         configurarBotonConMaximoContraste(actualizarBtn, new Color(70, 130, 180), Color.WHITE);
         
         nuevoArticuloBtn.addActionListener(e -> mostrarFormularioArticulo(null));
+        importarBtn.addActionListener(e -> importarCatalogo(importarBtn));
         actualizarBtn.addActionListener(e -> actualizarTablaArticulos());
         
         buttonPanel.add(nuevoArticuloBtn);
+        buttonPanel.add(importarBtn);
         buttonPanel.add(actualizarBtn);
         
         topPanel.add(titleLabel, BorderLayout.CENTER);
         topPanel.add(buttonPanel, BorderLayout.EAST);
         panel.add(topPanel, BorderLayout.NORTH);
         
-        // Tabla de artículos
+        // Tabla de artículos: las celdas se leen del servicio solo para las filas visibles
         String[] columns = {"Código", "Nombre", "Precio", "Stock Total", "Plantas", "Estado", "Acciones"};
-        DefaultTableModel model = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return column == 6; // Solo la columna de acciones
-            }
+        ModeloTablaArticulos.Columna[] columnas = {
+            ModeloTablaArticulos.Columna.CODIGO, ModeloTablaArticulos.Columna.NOMBRE,
+            ModeloTablaArticulos.Columna.PRECIO, ModeloTablaArticulos.Columna.STOCK,
+            ModeloTablaArticulos.Columna.PLANTAS, ModeloTablaArticulos.Columna.ESTADO,
+            ModeloTablaArticulos.Columna.ACCION
         };
+        articulosModel = new ModeloTablaArticulos(articuloServicio, false, columns, columnas, "Gestionar");
         
-        JTable table = new JTable(model);
+        JTable table = new JTable(articulosModel);
         configurarTablaConColores(table);
+        table.setDefaultRenderer(Number.class, table.getDefaultRenderer(Object.class));
+        table.getColumn("Precio").setCellRenderer(new RenderizadorImporte(table.getDefaultRenderer(Object.class)));
         
         // Configurar editor y renderer para la columna de botones "Acciones"
         table.getColumn("Acciones").setCellRenderer(new ArticuloButtonRenderer());
         table.getColumn("Acciones").setCellEditor(new ArticuloButtonEditor(new JCheckBox(), table, this));
         
-        // Llenar tabla
-        actualizarTablaArticulos(model);
-        
         JScrollPane scrollPane = new JScrollPane(table);
         panel.add(scrollPane, BorderLayout.CENTER);
         
@@ -199,30 +244,9 @@ public class VentanaProveedor extends JFrame {
     }
     
     private void actualizarTablaArticulos() {
-        // Actualizar desde botón
-        actualizarTablaArticulos(null);
-    }
-    
-    private void actualizarTablaArticulos(DefaultTableModel model) {
-        if (model != null) {
-            model.setRowCount(0); // Limpiar tabla
-            
-            List<Articulo> articulos = articuloServicio.listarArticulos();
-            for (Articulo articulo : articulos) {
-                boolean bajoStock = articuloServicio.getArticulosConBajoStock().contains(articulo);
-                String estado = bajoStock ? "BAJO STOCK" : "NORMAL";
-                
-                Object[] row = {
-                    articulo.getCodigo(),
-                    articulo.getNombre(),
-                    String.format("$%.2f", articulo.getPrecio()),
-                    articulo.getTotalStock(),
-                    articulo.getCantidadPorPlanta().size(),
-                    estado,
-                    "Gestionar"
-                };
-                model.addRow(row);
-            }
+        // Actualizar desde botón: altas y bajas cambian la lista de filas
+        if (articulosModel != null) {
+            articulosModel.recargar();
         }
     }
     
@@ -244,19 +268,33 @@ public class VentanaProveedor extends JFrame {
         JPanel leftPanel = new JPanel(new BorderLayout());
         leftPanel.setBorder(BorderFactory.createTitledBorder("Artículos"));
         
-        DefaultListModel<String> articulosModel = new DefaultListModel<>();
-        List<Articulo> articulos = articuloServicio.listarArticulos();
-        for (Articulo articulo : articulos) {
-            articulosModel.addElement(String.format("%s - %s (Stock: %d)", 
-                articulo.getCodigo(), articulo.getNombre(), articulo.getTotalStock()));
-        }
+        // Solo los códigos: cada fila se lee al dibujarla, como en las tablas
+        String[] codigos = articuloServicio.getCodigosArticulos(false);
+        AbstractListModel<String> articulosModel = new AbstractListModel<String>() {
+            @Override
+            public int getSize() {
+                return codigos.length;
+            }
+            
+            @Override
+            public String getElementAt(int index) {
+                Articulo articulo = articuloServicio.consultarArticulo(codigos[index]);
+                return articulo == null ? codigos[index] + " - (eliminado)"
+                        : String.format("%s - %s (Stock: %d)",
+                                articulo.getCodigo(), articulo.getNombre(), articulo.getTotalStock());
+            }
+        };
         
         JList<String> articulosList = new JList<>(articulosModel);
+        articulosList.setPrototypeCellValue("XXXXXXXXXX - XXXXXXXXXXXXXXXXXXXXXXXXX (Stock: 000000)"); // Sin medir cada fila
         articulosList.addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
                 int index = articulosList.getSelectedIndex();
-                if (index >= 0 && index < articulos.size()) {
-                    mostrarDetalleInventario(articulos.get(index), splitPane.getRightComponent());
+                if (index >= 0 && index < codigos.length) {
+                    Articulo articulo = articuloServicio.consultarArticulo(codigos[index]);
+                    if (articulo != null) {
+                        mostrarDetalleInventario(articulo, splitPane.getRightComponent());
+                    }
                 }
             }
         });
@@ -300,14 +338,12 @@ public class VentanaProveedor extends JFrame {
             String[] columns = {"Planta", "Stock", "Stock Mínimo", "Estado", "Acciones"};
             DefaultTableModel model = new DefaultTableModel(columns, 0);
             
-            for (String planta : articulo.getCantidadPorPlanta().keySet()) {
-                int stock = articulo.getCantidadPorPlanta().get(planta);
-                int stockMinimo = articulo.getStockMinimoPorPlanta().getOrDefault(planta, 0);
-                String estado = articulo.necesitaReabastecimiento(planta) ? "REABASTECER" : "OK";
+            articulo.recorrerPlantas((plantaId, stock, stockMinimo) -> {
+                String estado = articulo.necesitaReabastecimiento(plantaId) ? "REABASTECER" : "OK";
                 
-                Object[] row = {planta, stock, stockMinimo, estado, "Actualizar"};
+                Object[] row = {RegistroPlantas.getNombre(plantaId), stock, stockMinimo, estado, "Actualizar"};
                 model.addRow(row);
-            }
+            });
             
             JTable table = new JTable(model);
             table.setRowHeight(25);
@@ -345,6 +381,7 @@ public class VentanaProveedor extends JFrame {
         
         // Resumen por plantas
         Map<String, Integer> resumenPlantas = articuloServicio.getResumenStockPorPlanta();
+        Set<Integer> plantasConBajoStock = articuloServicio.getPlantasConBajoStock();
         
         String[] columns = {"Planta", "Total Unidades", "Artículos", "Eficiencia", "Estado"};
         DefaultTableModel model = new DefaultTableModel(columns, 0);
@@ -353,16 +390,14 @@ public class VentanaProveedor extends JFrame {
             String planta = entry.getKey();
             int totalUnidades = entry.getValue();
             
-            List<Articulo> articulosPlanta = articuloServicio.getArticulosPorPlanta(planta);
-            int cantidadArticulos = articulosPlanta.size();
+            int cantidadArticulos = articuloServicio.getCantidadArticulosEnPlanta(planta);
             
             // Calcular eficiencia
             double eficiencia = cantidadArticulos > 0 ? (double) totalUnidades / cantidadArticulos : 0;
             String nivelEficiencia = eficiencia > 100 ? "ALTA" : eficiencia > 50 ? "MEDIA" : "BAJA";
             
             // Verificar si hay artículos con bajo stock en esta planta
-            boolean hayBajoStock = articulosPlanta.stream()
-                .anyMatch(articulo -> articulo.necesitaReabastecimiento(planta));
+            boolean hayBajoStock = plantasConBajoStock.contains(RegistroPlantas.buscarId(planta));
             String estado = hayBajoStock ? "REQUIERE ATENCIÓN" : "OPERATIVA";
             
             Object[] row = {
@@ -394,37 +429,85 @@ public class VentanaProveedor extends JFrame {
         // Panel de alertas de stock
         JPanel stockPanel = new JPanel(new BorderLayout());
         stockPanel.setBorder(BorderFactory.createTitledBorder("🚨 Alertas de Stock Bajo"));
-        
-        List<Articulo> articulosBajoStock = articuloServicio.getArticulosConBajoStock();
-        
-        if (articulosBajoStock.isEmpty()) {
-            JLabel noAlertasLabel = new JLabel("✅ No hay artículos con stock bajo");
-            noAlertasLabel.setHorizontalAlignment(SwingConstants.CENTER);
-            noAlertasLabel.setFont(new Font("Arial", Font.BOLD, 16));
-            noAlertasLabel.setForeground(new Color(0, 128, 0));
-            stockPanel.add(noAlertasLabel, BorderLayout.CENTER);
-        } else {
-            String[] columns = {"Artículo", "Planta", "Stock Actual", "Stock Mínimo", "Déficit"};
-            DefaultTableModel model = new DefaultTableModel(columns, 0);
-            
-            for (Articulo articulo : articulosBajoStock) {
-                for (String planta : articulo.getCantidadPorPlanta().keySet()) {
-                    if (articulo.necesitaReabastecimiento(planta)) {
-                        int stock = articulo.getCantidadPorPlanta().get(planta);
-                        int minimo = articulo.getStockMinimoPorPlanta().getOrDefault(planta, 0);
+        stockPanel.add(createCargandoLabel(), BorderLayout.CENTER);
+        
+        CargadorPanel.cargar(panel, () -> {
+            List<Object[]> filas = new ArrayList<>();
+            for (Articulo articulo : articuloServicio.getArticulosConBajoStock()) {
+                // Solo las plantas que el índice marca como bajas
+                for (int plantaId : articuloServicio.getPlantasConBajoStock(articulo)) {
+                    if (articulo.necesitaReabastecimiento(plantaId)) {
+                        int stock = articulo.getCantidad(plantaId);
+                        int minimo = articulo.getStockMinimo(plantaId);
                         int deficit = minimo - stock;
                         
                         Object[] row = {
                             articulo.getNombre(),
-                            planta,
+                            RegistroPlantas.getNombre(plantaId),
                             stock,
                             minimo,
                             deficit
                         };
-                        model.addRow(row);
+                        filas.add(row);
                     }
                 }
             }
+            return filas;
+        }, filas -> mostrarAlertasStock(stockPanel, filas));
+        
+        // Panel de demanda pendiente
+        JPanel demandaPanel = new JPanel(new BorderLayout());
+        demandaPanel.setBorder(BorderFactory.createTitledBorder("📋 Demanda Pendiente"));
+        demandaPanel.add(createCargandoLabel(), BorderLayout.CENTER);
+        
+        CargadorPanel.cargar(panel, () -> {
+            List<Object[]> filas = new ArrayList<>();
+            Map<Articulo, Integer> demandaPorArticulo = pedidoServicio.getDemandaPendientePorArticulo();
+            for (Map.Entry<Articulo, Integer> entry : demandaPorArticulo.entrySet()) {
+                Articulo articulo = entry.getKey();
+                int demanda = entry.getValue();
+                int stock = articulo.getTotalStock();
+                String estado = stock >= demanda ? "DISPONIBLE" : "INSUFICIENTE";
+                
+                Object[] row = {
+                    articulo.getNombre(),
+                    demanda,
+                    stock,
+                    estado
+                };
+                filas.add(row);
+            }
+            return filas;
+        }, filas -> mostrarDemandaPendiente(demandaPanel, filas));
+        
+        panel.add(stockPanel);
+        panel.add(demandaPanel);
+        
+        return panel;
+    }
+    
+    private JLabel createCargandoLabel() {
+        JLabel cargandoLabel = new JLabel("Cargando...");
+        cargandoLabel.setHorizontalAlignment(SwingConstants.CENTER);
+        cargandoLabel.setFont(new Font("Arial", Font.ITALIC, 14));
+        return cargandoLabel;
+    }
+    
+    private void mostrarAlertasStock(JPanel stockPanel, List<Object[]> filas) {
+        stockPanel.removeAll();
+        
+        if (filas.isEmpty()) {
+            JLabel noAlertasLabel = new JLabel("✅ No hay artículos con stock bajo");
+            noAlertasLabel.setHorizontalAlignment(SwingConstants.CENTER);
+            noAlertasLabel.setFont(new Font("Arial", Font.BOLD, 16));
+            noAlertasLabel.setForeground(new Color(0, 128, 0));
+            stockPanel.add(noAlertasLabel, BorderLayout.CENTER);
+        } else {
+            String[] columns = {"Artículo", "Planta", "Stock Actual", "Stock Mínimo", "Déficit"};
+            DefaultTableModel model = new DefaultTableModel(columns, 0);
+            for (Object[] row : filas) {
+                model.addRow(row);
+            }
             
             JTable table = new JTable(model);
             table.setRowHeight(25);
@@ -448,50 +531,24 @@ public class VentanaProveedor extends JFrame {
             
             stockPanel.add(tablePanel, BorderLayout.CENTER);
         }
+        stockPanel.revalidate();
+        stockPanel.repaint();
+    }
+    
+    private void mostrarDemandaPendiente(JPanel demandaPanel, List<Object[]> filas) {
+        demandaPanel.removeAll();
         
-        // Panel de demanda pendiente
-        JPanel demandaPanel = new JPanel(new BorderLayout());
-        demandaPanel.setBorder(BorderFactory.createTitledBorder("📋 Demanda Pendiente"));
-        
-        List<Pedido> pedidosPendientes = pedidoServicio.getPedidosPendientes();
-        
-        if (pedidosPendientes.isEmpty()) {
+        if (filas.isEmpty()) {
             JLabel noDemandaLabel = new JLabel("✅ No hay pedidos pendientes");
             noDemandaLabel.setHorizontalAlignment(SwingConstants.CENTER);
             noDemandaLabel.setFont(new Font("Arial", Font.BOLD, 16));
             noDemandaLabel.setForeground(new Color(0, 128, 0));
             demandaPanel.add(noDemandaLabel, BorderLayout.CENTER);
         } else {
-            // Calcular demanda por artículo
-            java.util.Map<String, Integer> demandaPorArticulo = new java.util.HashMap<>();
-            
-            for (Pedido pedido : pedidosPendientes) {
-                for (DetallePedido detalle : pedido.getDetalles()) {
-                    String codigo = detalle.getArticulo().getCodigo();
-                    int cantidad = detalle.getCantidadPendiente();
-                    demandaPorArticulo.put(codigo, 
-                        demandaPorArticulo.getOrDefault(codigo, 0) + cantidad);
-                }
-            }
-            
             String[] columns = {"Artículo", "Cantidad Pendiente", "Stock Disponible", "Estado"};
             DefaultTableModel model = new DefaultTableModel(columns, 0);
-            
-            for (Map.Entry<String, Integer> entry : demandaPorArticulo.entrySet()) {
-                Articulo articulo = articuloServicio.buscarArticulo(entry.getKey());
-                if (articulo != null) {
-                    int demanda = entry.getValue();
-                    int stock = articulo.getTotalStock();
-                    String estado = stock >= demanda ? "DISPONIBLE" : "INSUFICIENTE";
-                    
-                    Object[] row = {
-                        articulo.getNombre(),
-                        demanda,
-                        stock,
-                        estado
-                    };
-                    model.addRow(row);
-                }
+            for (Object[] row : filas) {
+                model.addRow(row);
             }
             
             JTable table = new JTable(model);
@@ -501,11 +558,8 @@ public class VentanaProveedor extends JFrame {
             
             demandaPanel.add(new JScrollPane(table), BorderLayout.CENTER);
         }
-        
-        panel.add(stockPanel);
-        panel.add(demandaPanel);
-        
-        return panel;
+        demandaPanel.revalidate();
+        demandaPanel.repaint();
     }
     
     private JPanel createFooterPanel() {
@@ -520,7 +574,8 @@ public class VentanaProveedor extends JFrame {
         configurarBotonConMaximoContraste(actualizarBtn, new Color(70, 130, 180), Color.WHITE);
         
         volverBtn.addActionListener(e -> {
-            this.setVisible(false);
+            suscripcionStock.cancelar();
+            dispose();
             ventanaPrincipal.setVisible(true);
         });
         
@@ -645,6 +700,57 @@ public class VentanaProveedor extends JFrame {
         dialog.setVisible(true);
     }
     
+    /**
+     * Importa artículos y stock desde un CSV sin bloquear la interfaz
+     */
+    private void importarCatalogo(JButton importarBtn) {
+        JFileChooser selector = new JFileChooser();
+        selector.setDialogTitle("Importar catálogo (codigo,nombre,descripcion,precio,planta,cantidad,stockMinimo)");
+        if (selector.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        java.nio.file.Path archivo = selector.getSelectedFile().toPath();
+        importarBtn.setEnabled(false);
+        
+        Thread hilo = new Thread(() -> {
+            String mensaje;
+            int tipo;
+            try {
+                ImportadorCatalogo.ResultadoImportacion resultado =
+                        new ImportadorCatalogo(articuloServicio).importar(archivo);
+                StringBuilder texto = new StringBuilder(resultado.getResumen());
+                List<String> errores = resultado.getErrores();
+                for (int i = 0; i < Math.min(10, errores.size()); i++) {
+                    texto.append("\n").append(errores.get(i));
+                }
+                if (resultado.getCantidadErrores() > 10) {
+                    texto.append("\n...");
+                }
+                mensaje = texto.toString();
+                tipo = resultado.getCantidadErrores() > 0 ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE;
+            } catch (java.io.IOException | RuntimeException ex) {
+                mensaje = "Error al importar: " + ex.getMessage();
+                tipo = JOptionPane.ERROR_MESSAGE;
+            }
+            String mensajeFinal = mensaje;
+            int tipoFinal = tipo;
+            SwingUtilities.invokeLater(() -> {
+                importarBtn.setEnabled(true);
+                actualizarTablaArticulos();
+                JOptionPane.showMessageDialog(this, mensajeFinal, "Importación de catálogo", tipoFinal);
+            });
+        }, "importacion-catalogo");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+    
+    private void mostrarStockNoActualizado(String planta) {
+        JOptionPane.showMessageDialog(this,
+            "No se pudo actualizar el stock en " + planta +
+            "\n(el artículo ya no existe, no admite más plantas o no hay stock suficiente)",
+            "Error", JOptionPane.ERROR_MESSAGE);
+    }
+    
     private void mostrarDialogoActualizarStock(Articulo articulo) {
         List<String> plantas = new java.util.ArrayList<>(articulo.getCantidadPorPlanta().keySet());
         
@@ -662,7 +768,7 @@ public class VentanaProveedor extends JFrame {
             plantas.get(0));
         
         if (plantaSeleccionada != null) {
-            int stockActual = articulo.getCantidadPorPlanta().get(plantaSeleccionada);
+            int stockActual = articulo.getCantidad(plantaSeleccionada);
             
             // Diálogo con opciones claras
             String[] opciones = {"Establecer Nuevo Stock", "Agregar al Stock Actual", "Reducir del Stock Actual", "Cancelar"};
@@ -693,10 +799,13 @@ public class VentanaProveedor extends JFrame {
                         switch (opcion) {
                             case 0: // Establecer nuevo stock
                                 if (cantidadNumerica >= 0) {
-                                    articuloServicio.establecerStock(articulo.getCodigo(), plantaSeleccionada, cantidadNumerica);
+                                    if (!articuloServicio.establecerStock(articulo.getCodigo(), plantaSeleccionada, cantidadNumerica)) {
+                                        mostrarStockNoActualizado(plantaSeleccionada);
+                                        break;
+                                    }
                                     // Verificar que se actualizó correctamente
                                     Articulo articuloActualizado = articuloServicio.buscarArticulo(articulo.getCodigo());
-                                    int stockVerificado = articuloActualizado.getCantidadPorPlanta().get(plantaSeleccionada);
+                                    int stockVerificado = articuloActualizado.getCantidad(plantaSeleccionada);
                                     JOptionPane.showMessageDialog(this, 
                                         "Stock establecido exitosamente\n" +
                                         "Planta: " + plantaSeleccionada + "\n" +
@@ -709,10 +818,13 @@ public class VentanaProveedor extends JFrame {
                                 
                             case 1: // Agregar stock
                                 if (cantidadNumerica > 0) {
-                                    articuloServicio.actualizarStock(articulo.getCodigo(), plantaSeleccionada, cantidadNumerica);
+                                    if (!articuloServicio.actualizarStock(articulo.getCodigo(), plantaSeleccionada, cantidadNumerica)) {
+                                        mostrarStockNoActualizado(plantaSeleccionada);
+                                        break;
+                                    }
                                     // Actualizar referencia del artículo
                                     Articulo articuloActualizado = articuloServicio.buscarArticulo(articulo.getCodigo());
-                                    int nuevoStock = articuloActualizado.getCantidadPorPlanta().get(plantaSeleccionada);
+                                    int nuevoStock = articuloActualizado.getCantidad(plantaSeleccionada);
                                     JOptionPane.showMessageDialog(this, 
                                         "Stock agregado exitosamente\n" +
                                         "Planta: " + plantaSeleccionada + "\n" +
@@ -727,10 +839,13 @@ public class VentanaProveedor extends JFrame {
                                 if (cantidadNumerica > 0) {
                                     int nuevoStock = stockActual - cantidadNumerica;
                                     if (nuevoStock >= 0) {
-                                        articuloServicio.actualizarStock(articulo.getCodigo(), plantaSeleccionada, -cantidadNumerica);
+                                        if (!articuloServicio.actualizarStock(articulo.getCodigo(), plantaSeleccionada, -cantidadNumerica)) {
+                                            mostrarStockNoActualizado(plantaSeleccionada);
+                                            break;
+                                        }
                                         // Actualizar referencia del artículo
                                         Articulo articuloActualizado = articuloServicio.buscarArticulo(articulo.getCodigo());
-                                        int stockFinal = articuloActualizado.getCantidadPorPlanta().get(plantaSeleccionada);
+                                        int stockFinal = articuloActualizado.getCantidad(plantaSeleccionada);
                                         JOptionPane.showMessageDialog(this, 
                                             "Stock reducido exitosamente\n" +
                                             "Planta: " + plantaSeleccionada + "\n" +
@@ -792,8 +907,7 @@ public class VentanaProveedor extends JFrame {
                 int minimo = Integer.parseInt(minimoField.getText().trim());
                 
                 if (!planta.isEmpty()) {
-                    articulo.agregarPlanta(planta, stock, minimo);
-                    articuloServicio.actualizarArticulo(articulo);
+                    articuloServicio.agregarPlanta(articulo.getCodigo(), planta, stock, minimo);
                     JOptionPane.showMessageDialog(dialog, "Planta agregada exitosamente");
                     dialog.dispose();
                 } else {
@@ -993,15 +1107,14 @@ public class VentanaProveedor extends JFrame {
         String[] columns = {"Planta", "Stock Actual", "Stock Mínimo"};
         DefaultTableModel model = new DefaultTableModel(columns, 0);
         
-        Map<String, Integer> stockPorPlanta = articulo.getCantidadPorPlanta();
-        for (Map.Entry<String, Integer> entry : stockPorPlanta.entrySet()) {
+        articulo.recorrerPlantas((plantaId, stock, stockMinimo) -> {
             Object[] row = {
-                entry.getKey(),
-                entry.getValue(),
-                "10" // Stock mínimo ejemplo
+                RegistroPlantas.getNombre(plantaId),
+                stock,
+                stockMinimo
             };
             model.addRow(row);
-        }
+        });
         
         JTable table = new JTable(model);
         configurarTablaConColores(table);
@@ -1078,7 +1191,7 @@ public class VentanaProveedor extends JFrame {
             String nuevoStockStr = JOptionPane.showInputDialog(
                 parentDialog,
                 "Stock actual en " + plantaSeleccionada + ": " + 
-                articulo.getCantidadPorPlanta().get(plantaSeleccionada) + 
+                articulo.getCantidad(plantaSeleccionada) + 
                 "\n\nIngrese el nuevo stock:",
                 "Actualizar Stock"
             );
@@ -1087,7 +1200,13 @@ public class VentanaProveedor extends JFrame {
                 try {
                     int nuevoStock = Integer.parseInt(nuevoStockStr);
                     if (nuevoStock >= 0) {
-                        articuloServicio.establecerStock(articulo.getCodigo(), plantaSeleccionada, nuevoStock);
+                        if (!articuloServicio.establecerStock(articulo.getCodigo(), plantaSeleccionada, nuevoStock)) {
+                            JOptionPane.showMessageDialog(parentDialog,
+                                "No se pudo actualizar el stock en " + plantaSeleccionada +
+                                "\n(el artículo ya no existe o no admite más plantas)",
+                                "Error", JOptionPane.ERROR_MESSAGE);
+                            return;
+                        }
                         JOptionPane.showMessageDialog(parentDialog, 
                             "Stock actualizado exitosamente\n" +
                             "Planta: " + plantaSeleccionada + "\n" +
@@ -1144,7 +1263,7 @@ public class VentanaProveedor extends JFrame {
                             try {
                                 int stockMinimo = Integer.parseInt(stockMinimoStr);
                                 if (stockMinimo >= 0) {
-                                    articulo.agregarPlanta(nombrePlanta, stockInicial, stockMinimo);
+                                    articuloServicio.agregarPlanta(articulo.getCodigo(), nombrePlanta, stockInicial, stockMinimo);
                                     JOptionPane.showMessageDialog(parentDialog, 
                                         "Planta agregada exitosamente\n" +
                                         "Planta: " + nombrePlanta + "\n" +
@@ -1,88 +1,165 @@
 package modelo;
 
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
  * Clase que representa un Artículo en el sistema de pedidos
+ * 
+ * El stock y el stock mínimo se guardan en arreglos primitivos paralelos
+ * indexados por el identificador de planta de {@link RegistroPlantas}. Los
+ * contadores son atómicos: las reducciones usan compare-and-set y nunca dejan
+ * el stock por debajo de cero, sin bloqueos ni objetos Integer intermedios.
+ * Para leerlos sin crear objetos están {@link #recorrerPlantas(VisitantePlanta)}
+ * y los accesos por id o posición de planta.
  */
 public class Articulo {
+    /**
+     * Recibe cada planta del artículo con su stock y su stock mínimo
+     */
+    @FunctionalInterface
+    public interface VisitantePlanta {
+        void visitar(int plantaId, int cantidad, int stockMinimo);
+    }
+    
+    // Los contadores se agrupan en segmentos fijos: al agregar plantas solo se
+    // agregan segmentos nuevos y los contadores existentes nunca se copian
+    private static final int TAMANO_SEGMENTO = 8;
+    // Marca en el arreglo de mínimos para plantas no asignadas al artículo
+    private static final int SIN_PLANTA = Integer.MIN_VALUE;
+    
     private String codigo;
     private String nombre;
     private String descripcion;
-    private Map<String, Integer> cantidadPorPlanta; // Planta -> Cantidad
-    private Map<String, Integer> stockMinimoPorPlanta; // Planta -> Stock mínimo
-    private double precio;
+    private volatile int[] plantasAsignadas; // Ids de planta en orden de asignación
+    private volatile AtomicIntegerArray[] cantidades; // Id de planta -> Cantidad
+    private volatile AtomicIntegerArray[] stockMinimos; // Id de planta -> Stock mínimo
+    private long precio; // Centavos (ver Dinero)
+    private final CopyOnWriteArrayList<ObservadorStock> observadores;
     
     // Constructor
     public Articulo(String codigo, String nombre, String descripcion, double precio) {
         this.codigo = codigo;
         this.nombre = nombre;
         this.descripcion = descripcion;
-        this.precio = precio;
-        this.cantidadPorPlanta = new HashMap<>();
-        this.stockMinimoPorPlanta = new HashMap<>();
+        this.precio = Dinero.deDecimal(precio);
+        this.plantasAsignadas = new int[0];
+        this.cantidades = new AtomicIntegerArray[0];
+        this.stockMinimos = new AtomicIntegerArray[0];
+        this.observadores = new CopyOnWriteArrayList<>();
     }
     
     // Métodos de negocio
     public void agregarPlanta(String nombrePlanta, int cantidadInicial, int stockMinimo) {
-        cantidadPorPlanta.put(nombrePlanta, cantidadInicial);
-        stockMinimoPorPlanta.put(nombrePlanta, stockMinimo);
+        agregarPlanta(RegistroPlantas.obtenerId(nombrePlanta), cantidadInicial, stockMinimo);
+    }
+    
+    public synchronized void agregarPlanta(int plantaId, int cantidadInicial, int stockMinimo) {
+        asignarPlanta(plantaId, stockMinimo);
+        int cantidadAnterior = cantidades[plantaId / TAMANO_SEGMENTO]
+                .getAndSet(plantaId % TAMANO_SEGMENTO, cantidadInicial);
+        notificarCambio(plantaId, cantidadAnterior, cantidadInicial);
     }
     
     public boolean hayDisponibilidad(int cantidadSolicitada) {
-        int totalDisponible = cantidadPorPlanta.values().stream()
-                .mapToInt(Integer::intValue)
-                .sum();
-        return totalDisponible >= cantidadSolicitada;
+        return getTotalStock() >= cantidadSolicitada;
     }
     
     public boolean necesitaReabastecimiento(String planta) {
-        Integer cantidad = cantidadPorPlanta.get(planta);
-        Integer stockMinimo = stockMinimoPorPlanta.get(planta);
-        
-        if (cantidad == null || stockMinimo == null) {
+        return necesitaReabastecimiento(RegistroPlantas.buscarId(planta));
+    }
+    
+    public boolean necesitaReabastecimiento(int plantaId) {
+        if (!tienePlanta(plantaId)) {
             return false;
         }
         
         // Solo considera bajo stock cuando está POR DEBAJO del mínimo
-        return cantidad < stockMinimo;
+        return getCantidad(plantaId) < getStockMinimo(plantaId);
+    }
+    
+    public boolean reducirStock(String planta, int cantidad) {
+        return reducirStock(RegistroPlantas.buscarId(planta), cantidad);
     }
     
-    public void reducirStock(String planta, int cantidad) {
-        Integer stockActual = cantidadPorPlanta.get(planta);
-        if (stockActual != null && stockActual >= cantidad) {
-            cantidadPorPlanta.put(planta, stockActual - cantidad);
+    /**
+     * Reduce el stock de una planta con compare-and-set.
+     * No hace nada (y retorna false) si la planta no tiene stock suficiente.
+     */
+    public boolean reducirStock(int plantaId, int cantidad) {
+        if (!tienePlanta(plantaId)) {
+            return false;
+        }
+        
+        AtomicIntegerArray segmento = cantidades[plantaId / TAMANO_SEGMENTO];
+        int posicion = plantaId % TAMANO_SEGMENTO;
+        while (true) {
+            int stockActual = segmento.get(posicion);
+            if (stockActual < cantidad) {
+                return false;
+            }
+            if (segmento.compareAndSet(posicion, stockActual, stockActual - cantidad)) {
+                notificarCambio(plantaId, stockActual, stockActual - cantidad);
+                return true;
+            }
         }
     }
     
     public void aumentarStock(String planta, int cantidad) {
-        cantidadPorPlanta.put(planta, 
-            cantidadPorPlanta.getOrDefault(planta, 0) + cantidad);
+        aumentarStock(RegistroPlantas.obtenerId(planta), cantidad);
+    }
+    
+    public void aumentarStock(int plantaId, int cantidad) {
+        asegurarPlanta(plantaId);
+        int cantidadAnterior = cantidades[plantaId / TAMANO_SEGMENTO]
+                .getAndAdd(plantaId % TAMANO_SEGMENTO, cantidad);
+        notificarCambio(plantaId, cantidadAnterior, cantidadAnterior + cantidad);
     }
     
     public void establecerStock(String planta, int cantidad) {
         if (cantidad >= 0) {
-            cantidadPorPlanta.put(planta, cantidad);
+            establecerStock(RegistroPlantas.obtenerId(planta), cantidad);
+        }
+    }
+    
+    public void establecerStock(int plantaId, int cantidad) {
+        if (cantidad >= 0) {
+            asegurarPlanta(plantaId);
+            int cantidadAnterior = cantidades[plantaId / TAMANO_SEGMENTO]
+                    .getAndSet(plantaId % TAMANO_SEGMENTO, cantidad);
+            notificarCambio(plantaId, cantidadAnterior, cantidad);
         }
     }
     
     public int getTotalStock() {
-        return cantidadPorPlanta.values().stream()
-                .mapToInt(Integer::intValue)
-                .sum();
+        // Recorrido directo de los contadores, sin streams ni objetos temporales.
+        // Se leen primero las plantas asignadas: sus segmentos ya están publicados
+        int[] ids = plantasAsignadas;
+        AtomicIntegerArray[] segmentos = cantidades;
+        int suma = 0;
+        for (int plantaId : ids) {
+            suma += segmentos[plantaId / TAMANO_SEGMENTO].get(plantaId % TAMANO_SEGMENTO);
+        }
+        return suma;
     }
     
     /**
      * Calcula cuántas unidades faltan para alcanzar el stock mínimo en una planta específica
      */
     public int getUnidadesFaltantesParaMinimo(String planta) {
-        if (!cantidadPorPlanta.containsKey(planta) || !stockMinimoPorPlanta.containsKey(planta)) {
+        return getUnidadesFaltantesParaMinimo(RegistroPlantas.buscarId(planta));
+    }
+    
+    public int getUnidadesFaltantesParaMinimo(int plantaId) {
+        if (!tienePlanta(plantaId)) {
             return 0;
         }
         
-        int stockActual = cantidadPorPlanta.get(planta);
-        int stockMinimo = stockMinimoPorPlanta.get(planta);
+        int stockActual = getCantidad(plantaId);
+        int stockMinimo = getStockMinimo(plantaId);
         
         // Si el stock actual es menor que el mínimo, calcular la diferencia
         return Math.max(0, stockMinimo - stockActual + 1); // +1 para estar por encima del mínimo
@@ -94,8 +171,8 @@ public class Articulo {
     public int getTotalUnidadesFaltantesParaMinimo() {
         int totalFaltante = 0;
         
-        for (String planta : cantidadPorPlanta.keySet()) {
-            totalFaltante += getUnidadesFaltantesParaMinimo(planta);
+        for (int plantaId : plantasAsignadas) {
+            totalFaltante += getUnidadesFaltantesParaMinimo(plantaId);
         }
         
         return totalFaltante;
@@ -108,10 +185,11 @@ public class Articulo {
         StringBuilder reporte = new StringBuilder();
         reporte.append("=== REPORTE DE STOCK: ").append(codigo).append(" - ").append(nombre).append(" ===\n");
         
-        for (String planta : cantidadPorPlanta.keySet()) {
-            int stockActual = cantidadPorPlanta.get(planta);
-            int stockMinimo = stockMinimoPorPlanta.get(planta);
-            int faltante = getUnidadesFaltantesParaMinimo(planta);
+        for (int plantaId : plantasAsignadas) {
+            String planta = RegistroPlantas.getNombre(plantaId);
+            int stockActual = getCantidad(plantaId);
+            int stockMinimo = getStockMinimo(plantaId);
+            int faltante = getUnidadesFaltantesParaMinimo(plantaId);
             
             String estado = stockActual >= stockMinimo ? "✅ OK" : "❌ BAJO";
             
@@ -159,29 +237,177 @@ public class Articulo {
         this.descripcion = descripcion;
     }
     
+    /**
+     * Copia con los nombres de planta, para mostrar; para recorrer el stock
+     * sin crear objetos usar {@link #recorrerPlantas(VisitantePlanta)}
+     */
     public Map<String, Integer> getCantidadPorPlanta() {
-        return new HashMap<>(cantidadPorPlanta);
+        Map<String, Integer> copia = new LinkedHashMap<>();
+        for (int plantaId : plantasAsignadas) {
+            copia.put(RegistroPlantas.getNombre(plantaId), getCantidad(plantaId));
+        }
+        return copia;
     }
     
+    /**
+     * Copia con los nombres de planta, para mostrar (ver {@link #getCantidadPorPlanta()})
+     */
     public Map<String, Integer> getStockMinimoPorPlanta() {
-        return new HashMap<>(stockMinimoPorPlanta);
+        Map<String, Integer> copia = new LinkedHashMap<>();
+        for (int plantaId : plantasAsignadas) {
+            copia.put(RegistroPlantas.getNombre(plantaId), getStockMinimo(plantaId));
+        }
+        return copia;
+    }
+    
+    public void agregarObservador(ObservadorStock observador) {
+        observadores.addIfAbsent(observador);
+    }
+    
+    public void quitarObservador(ObservadorStock observador) {
+        observadores.remove(observador);
+    }
+    
+    /**
+     * Indica si la planta (por su id en {@link RegistroPlantas}) está asignada al artículo
+     */
+    public boolean tienePlanta(int plantaId) {
+        AtomicIntegerArray[] segmentos = stockMinimos;
+        return plantaId >= 0
+                && plantaId / TAMANO_SEGMENTO < segmentos.length
+                && segmentos[plantaId / TAMANO_SEGMENTO].get(plantaId % TAMANO_SEGMENTO) != SIN_PLANTA;
+    }
+    
+    /**
+     * Recorre las plantas asignadas en orden de asignación
+     */
+    public void recorrerPlantas(VisitantePlanta visitante) {
+        for (int plantaId : plantasAsignadas) {
+            visitante.visitar(plantaId, getCantidad(plantaId), getStockMinimo(plantaId));
+        }
+    }
+    
+    /**
+     * Stock de la planta por nombre, o 0 si no está asignada
+     */
+    public int getCantidad(String planta) {
+        return getCantidad(RegistroPlantas.buscarId(planta));
+    }
+    
+    /**
+     * Stock de la planta, o 0 si la planta no está asignada
+     */
+    public int getCantidad(int plantaId) {
+        if (!tienePlanta(plantaId)) {
+            return 0;
+        }
+        return cantidades[plantaId / TAMANO_SEGMENTO].get(plantaId % TAMANO_SEGMENTO);
+    }
+    
+    public int getStockMinimo(String planta) {
+        return getStockMinimo(RegistroPlantas.buscarId(planta));
+    }
+    
+    /**
+     * Stock mínimo de la planta, o 0 si la planta no está asignada
+     */
+    public int getStockMinimo(int plantaId) {
+        if (!tienePlanta(plantaId)) {
+            return 0;
+        }
+        return stockMinimos[plantaId / TAMANO_SEGMENTO].get(plantaId % TAMANO_SEGMENTO);
+    }
+    
+    /**
+     * Cantidad de plantas asignadas al artículo
+     */
+    public int getCantidadPlantas() {
+        return plantasAsignadas.length;
+    }
+    
+    /**
+     * Id de la planta asignada en la posición indicada (0 a getCantidadPlantas() - 1),
+     * en el orden en que se asignaron
+     */
+    public int getPlantaId(int posicion) {
+        return plantasAsignadas[posicion];
     }
     
     public double getPrecio() {
-        return precio;
+        return Dinero.aDecimal(precio);
     }
     
     public void setPrecio(double precio) {
+        this.precio = Dinero.deDecimal(precio);
+    }
+    
+    public long getPrecioCentavos() {
+        return precio;
+    }
+    
+    public void setPrecioCentavos(long precio) {
         this.precio = precio;
     }
     
+    // Métodos auxiliares de los arreglos por planta
+    /**
+     * Asigna la planta sin mínimo si todavía no lo está; la comprobación se
+     * repite bajo el bloqueo para no pisar el mínimo de un agregarPlanta
+     * concurrente
+     */
+    private void asegurarPlanta(int plantaId) {
+        if (!tienePlanta(plantaId)) {
+            synchronized (this) {
+                if (!tienePlanta(plantaId)) {
+                    asignarPlanta(plantaId, 0);
+                }
+            }
+        }
+    }
+    
+    private synchronized void asignarPlanta(int plantaId, int stockMinimo) {
+        int segmentosNecesarios = plantaId / TAMANO_SEGMENTO + 1;
+        if (segmentosNecesarios > cantidades.length) {
+            // Se agregan segmentos nuevos; los existentes se comparten sin copiarse
+            AtomicIntegerArray[] nuevasCantidades = Arrays.copyOf(cantidades, segmentosNecesarios);
+            AtomicIntegerArray[] nuevosMinimos = Arrays.copyOf(stockMinimos, segmentosNecesarios);
+            for (int i = cantidades.length; i < segmentosNecesarios; i++) {
+                nuevasCantidades[i] = new AtomicIntegerArray(TAMANO_SEGMENTO);
+                nuevosMinimos[i] = new AtomicIntegerArray(TAMANO_SEGMENTO);
+                for (int j = 0; j < TAMANO_SEGMENTO; j++) {
+                    nuevosMinimos[i].set(j, SIN_PLANTA);
+                }
+            }
+            cantidades = nuevasCantidades;
+            stockMinimos = nuevosMinimos;
+        }
+        
+        boolean nueva = !tienePlanta(plantaId);
+        stockMinimos[plantaId / TAMANO_SEGMENTO].set(plantaId % TAMANO_SEGMENTO, stockMinimo);
+        if (nueva) {
+            // La planta se publica al final, cuando sus contadores ya existen
+            int[] nuevasPlantas = Arrays.copyOf(plantasAsignadas, plantasAsignadas.length + 1);
+            nuevasPlantas[nuevasPlantas.length - 1] = plantaId;
+            plantasAsignadas = nuevasPlantas;
+            for (ObservadorStock observador : observadores) {
+                observador.plantaAsignada(this, plantaId);
+            }
+        }
+    }
+    
+    private void notificarCambio(int plantaId, int cantidadAnterior, int cantidadNueva) {
+        for (ObservadorStock observador : observadores) {
+            observador.stockCambiado(this, plantaId, cantidadAnterior, cantidadNueva);
+        }
+    }
+    
     @Override
     public String toString() {
         return "Articulo{" +
                 "codigo='" + codigo + '\'' +
                 ", nombre='" + nombre + '\'' +
                 ", descripcion='" + descripcion + '\'' +
-                ", precio=" + precio +
+                ", precio=" + getPrecio() +
                 ", totalStock=" + getTotalStock() +
                 '}';
     }
@@ -0,0 +1,136 @@
+package modelo;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro de ciudades con sus coordenadas
+ *
+ * Igual que {@link RegistroPlantas}, asigna a cada ciudad un identificador
+ * entero denso. Se usa para ubicar plantas y direcciones de envío (por el
+ * nombre de la ciudad que contienen) y medir la distancia entre ellas.
+ * Las principales ciudades del país vienen registradas.
+ */
+public final class Ciudades {
+    private static final double RADIO_TIERRA_KM = 6371.0;
+
+    private static final Map<String, Integer> idsPorNombre = new ConcurrentHashMap<>();
+    private static volatile String[] nombresPorId = new String[0];
+    private static volatile String[] nombresNormalizados = new String[0];
+    private static volatile double[] latitudes = new double[0];
+    private static volatile double[] longitudes = new double[0];
+
+    static {
+        registrar("Bogotá", 4.7110, -74.0721);
+        registrar("Medellín", 6.2442, -75.5812);
+        registrar("Cali", 3.4516, -76.5320);
+        registrar("Barranquilla", 10.9685, -74.7813);
+        registrar("Cartagena", 10.3910, -75.4794);
+        registrar("Bucaramanga", 7.1193, -73.1227);
+        registrar("Cúcuta", 7.8939, -72.5078);
+        registrar("Pereira", 4.8133, -75.6961);
+        registrar("Manizales", 5.0703, -75.5138);
+        registrar("Santa Marta", 11.2408, -74.1990);
+        registrar("Ibagué", 4.4389, -75.2322);
+        registrar("Villavicencio", 4.1420, -73.6266);
+        registrar("Pasto", 1.2136, -77.2811);
+        registrar("Neiva", 2.9273, -75.2819);
+    }
+
+    private Ciudades() {
+    }
+
+    /**
+     * Registra una ciudad o actualiza sus coordenadas
+     */
+    public static synchronized int registrar(String nombre, double latitud, double longitud) {
+        String normalizado = normalizar(nombre);
+        Integer existente = idsPorNombre.get(normalizado);
+        if (existente != null) {
+            latitudes[existente] = latitud;
+            longitudes[existente] = longitud;
+            return existente;
+        }
+
+        int id = nombresPorId.length;
+        String[] nuevosNombres = Arrays.copyOf(nombresPorId, id + 1);
+        String[] nuevosNormalizados = Arrays.copyOf(nombresNormalizados, id + 1);
+        double[] nuevasLatitudes = Arrays.copyOf(latitudes, id + 1);
+        double[] nuevasLongitudes = Arrays.copyOf(longitudes, id + 1);
+        nuevosNombres[id] = nombre;
+        nuevosNormalizados[id] = normalizado;
+        nuevasLatitudes[id] = latitud;
+        nuevasLongitudes[id] = longitud;
+        // Las coordenadas se publican antes que el nombre y el identificador
+        latitudes = nuevasLatitudes;
+        longitudes = nuevasLongitudes;
+        nombresNormalizados = nuevosNormalizados;
+        nombresPorId = nuevosNombres;
+        idsPorNombre.put(normalizado, id);
+        return id;
+    }
+
+    /**
+     * Busca una ciudad por su nombre (sin distinguir mayúsculas ni tildes), o -1
+     */
+    public static int buscarId(String nombre) {
+        Integer id = idsPorNombre.get(normalizar(nombre));
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Ciudad mencionada en un texto como "Calle 1 #2-3, Bogotá" o "Planta Cali".
+     * Si aparecen varias, se toma la que aparece más al final.
+     *
+     * @return id de la ciudad, o -1 si el texto no menciona ninguna registrada
+     */
+    public static int buscarEnTexto(String texto) {
+        if (texto == null) {
+            return -1;
+        }
+        String normalizado = normalizar(texto);
+        String[] nombres = nombresNormalizados;
+        int mejor = -1;
+        int mejorPosicion = -1;
+        for (int id = 0; id < nombres.length; id++) {
+            int posicion = normalizado.lastIndexOf(nombres[id]);
+            if (posicion > mejorPosicion) {
+                mejor = id;
+                mejorPosicion = posicion;
+            }
+        }
+        return mejor;
+    }
+
+    /**
+     * Distancia en línea recta (fórmula del haversine) entre dos ciudades
+     */
+    public static double distanciaKm(int ciudadA, int ciudadB) {
+        double lat1 = Math.toRadians(latitudes[ciudadA]);
+        double lat2 = Math.toRadians(latitudes[ciudadB]);
+        double dLat = lat2 - lat1;
+        double dLon = Math.toRadians(longitudes[ciudadB] - longitudes[ciudadA]);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * RADIO_TIERRA_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    public static String getNombre(int id) {
+        return nombresPorId[id];
+    }
+
+    /**
+     * Cantidad de ciudades registradas; los identificadores van de 0 a este valor - 1
+     */
+    public static int getCantidadCiudades() {
+        return nombresPorId.length;
+    }
+
+    private static String normalizar(String texto) {
+        return Normalizer.normalize(texto, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase();
+    }
+}
@@ -1,48 +1,81 @@
 package modelo;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Clase que representa un Cliente en el sistema de pedidos
+ * 
+ * Saldo y límite de crédito se guardan en centavos y el descuento en puntos
+ * básicos (ver {@link Dinero}), de modo que la verificación de crédito es una
+ * comparación exacta entre enteros. Los métodos con {@code double} son
+ * conversiones para mostrar o cargar datos.
+ *
+ * Las direcciones se entregan como vista de solo lectura, sin copiar; en un
+ * cliente ya registrado se cambian con {@code ClienteServicio}, para que el
+ * cambio quede en el registro de eventos. Los pedidos se recorren con el
+ * cliente bloqueado ({@link #recorrerPedidos(Consumer)}), porque la lista
+ * crece mientras se toman pedidos concurrentes.
  */
 public class Cliente {
     private String codigo;
     private String nombre;
     private List<String> direccionesEnvio;
-    private double saldo;
-    private double limiteCredito;
-    private double porcentajeDescuento;
-    private List<Pedido> pedidos;
+    private List<String> direccionesSoloLectura;
+    private long saldo; // Centavos
+    private long limiteCredito; // Centavos
+    private int descuentoPuntosBasicos;
+    private final List<Pedido> pedidos;
     
     // Constructor
     public Cliente(String codigo, String nombre, double limiteCredito, double porcentajeDescuento) {
         this.codigo = codigo;
         this.nombre = nombre;
         this.direccionesEnvio = new ArrayList<>();
-        this.saldo = 0.0;
-        this.limiteCredito = limiteCredito;
-        this.porcentajeDescuento = porcentajeDescuento;
+        this.direccionesSoloLectura = Collections.unmodifiableList(direccionesEnvio);
+        this.saldo = 0;
+        this.limiteCredito = Dinero.deDecimal(limiteCredito);
+        this.descuentoPuntosBasicos = Dinero.porcentajeAPuntosBasicos(porcentajeDescuento);
         this.pedidos = new ArrayList<>();
     }
     
     // Métodos de negocio
-    public boolean puedeRealizarPedido(double montopedido) {
-        return (saldo + montopedido) <= limiteCredito;
+    /**
+     * Verifica si el pedido (en centavos) entra en el crédito disponible
+     */
+    public boolean puedeRealizarPedido(long montoPedido) {
+        // Sin riesgo de desbordamiento: saldo <= limite - monto equivale a saldo + monto <= limite
+        return saldo <= limiteCredito - montoPedido;
     }
     
-    public void agregarDireccionEnvio(String direccion) {
+    public synchronized void agregarDireccionEnvio(String direccion) {
         if (!direccionesEnvio.contains(direccion)) {
             direccionesEnvio.add(direccion);
         }
     }
     
-    public void agregarPedido(Pedido pedido) {
+    /**
+     * Quita la dirección en la posición indicada de {@link #getDireccionesEnvio()}
+     */
+    public synchronized void quitarDireccionEnvio(int posicion) {
+        direccionesEnvio.remove(posicion);
+    }
+    
+    public synchronized void reemplazarDireccionEnvio(int posicion, String direccion) {
+        direccionesEnvio.set(posicion, direccion);
+    }
+    
+    public synchronized void agregarPedido(Pedido pedido) {
         pedidos.add(pedido);
     }
     
-    public double calcularDescuento(double monto) {
-        return monto * (porcentajeDescuento / 100.0);
+    /**
+     * Descuento del cliente sobre un importe en centavos, redondeado al centavo
+     */
+    public long calcularDescuento(long monto) {
+        return Dinero.aplicarPorcentaje(monto, descuentoPuntosBasicos);
     }
     
     // Getters y Setters
@@ -62,40 +95,78 @@ public class Cliente {
         this.nombre = nombre;
     }
     
+    /**
+     * Vista de solo lectura de las direcciones (no es una copia); fuera del
+     * hilo de eventos hay que recorrerla con el cliente bloqueado
+     */
     public List<String> getDireccionesEnvio() {
-        return new ArrayList<>(direccionesEnvio);
+        return direccionesSoloLectura;
     }
     
-    public void setDireccionesEnvio(List<String> direccionesEnvio) {
+    public synchronized void setDireccionesEnvio(List<String> direccionesEnvio) {
         this.direccionesEnvio = new ArrayList<>(direccionesEnvio);
+        this.direccionesSoloLectura = Collections.unmodifiableList(this.direccionesEnvio);
     }
     
     public double getSaldo() {
-        return saldo;
+        return Dinero.aDecimal(saldo);
     }
     
     public void setSaldo(double saldo) {
+        this.saldo = Dinero.deDecimal(saldo);
+    }
+    
+    public long getSaldoCentavos() {
+        return saldo;
+    }
+    
+    public void setSaldoCentavos(long saldo) {
         this.saldo = saldo;
     }
     
     public double getLimiteCredito() {
-        return limiteCredito;
+        return Dinero.aDecimal(limiteCredito);
     }
     
     public void setLimiteCredito(double limiteCredito) {
+        this.limiteCredito = Dinero.deDecimal(limiteCredito);
+    }
+    
+    public long getLimiteCreditoCentavos() {
+        return limiteCredito;
+    }
+    
+    public void setLimiteCreditoCentavos(long limiteCredito) {
         this.limiteCredito = limiteCredito;
     }
     
     public double getPorcentajeDescuento() {
-        return porcentajeDescuento;
+        return Dinero.puntosBasicosAPorcentaje(descuentoPuntosBasicos);
     }
     
     public void setPorcentajeDescuento(double porcentajeDescuento) {
-        this.porcentajeDescuento = porcentajeDescuento;
+        this.descuentoPuntosBasicos = Dinero.porcentajeAPuntosBasicos(porcentajeDescuento);
+    }
+    
+    public int getDescuentoPuntosBasicos() {
+        return descuentoPuntosBasicos;
+    }
+    
+    public void setDescuentoPuntosBasicos(int descuentoPuntosBasicos) {
+        this.descuentoPuntosBasicos = descuentoPuntosBasicos;
+    }
+    
+    /**
+     * Recorre los pedidos con el cliente bloqueado, sin copiar la lista
+     */
+    public synchronized void recorrerPedidos(Consumer<? super Pedido> accion) {
+        for (Pedido pedido : pedidos) {
+            accion.accept(pedido);
+        }
     }
     
-    public List<Pedido> getPedidos() {
-        return new ArrayList<>(pedidos);
+    public synchronized int getCantidadPedidos() {
+        return pedidos.size();
     }
     
     @Override
@@ -103,9 +174,9 @@ public class Cliente {
         return "Cliente{" +
                 "codigo='" + codigo + '\'' +
                 ", nombre='" + nombre + '\'' +
-                ", saldo=" + saldo +
-                ", limiteCredito=" + limiteCredito +
-                ", porcentajeDescuento=" + porcentajeDescuento +
+                ", saldo=" + getSaldo() +
+                ", limiteCredito=" + getLimiteCredito() +
+                ", porcentajeDescuento=" + getPorcentajeDescuento() +
                 '}';
     }
 }
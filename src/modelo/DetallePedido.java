@@ -1,27 +1,48 @@
 package modelo;
 
+import java.util.Arrays;
+
 /**
  * Clase que representa el detalle de un pedido (línea de pedido)
+ * 
+ * Precio unitario y subtotal se guardan en centavos (ver {@link Dinero}).
+ * Cada cambio de subtotal se avisa al pedido dueño de la línea, que mantiene
+ * su subtotal acumulado sin volver a recorrer las líneas.
+ * 
+ * Al procesar el pedido la línea anota de qué plantas se tomó el stock, para
+ * que una cancelación lo devuelva exactamente a esas plantas. Cada despacho
+ * ocupa un {@code long} (id de planta en los 32 bits altos, cantidad en los
+ * bajos) y la línea sin despachos no reserva ningún arreglo.
  */
 public class DetallePedido {
     private Articulo articulo;
     private int cantidadOrdenada;
     private int cantidadPendiente;
-    private double precioUnitario;
-    private double subtotal;
+    private long precioUnitario; // Centavos
+    private long subtotal; // Centavos
+    private Pedido pedido; // Pedido dueño de la línea, o null si no se agregó a ninguno
+    private long[] despachos; // (plantaId << 32) | cantidad, o null si no hay despachos
     
     // Constructor
     public DetallePedido(Articulo articulo, int cantidadOrdenada) {
         this.articulo = articulo;
         this.cantidadOrdenada = cantidadOrdenada;
         this.cantidadPendiente = cantidadOrdenada; // Inicialmente toda la cantidad está pendiente
-        this.precioUnitario = articulo.getPrecio();
+        this.precioUnitario = articulo.getPrecioCentavos();
         this.subtotal = calcularSubtotal();
     }
     
     // Métodos de negocio
-    private double calcularSubtotal() {
-        return cantidadOrdenada * precioUnitario;
+    private long calcularSubtotal() {
+        return Dinero.multiplicar(precioUnitario, cantidadOrdenada);
+    }
+    
+    private void recalcularSubtotal() {
+        long anterior = subtotal;
+        subtotal = calcularSubtotal();
+        if (pedido != null && subtotal != anterior) {
+            pedido.subtotalCambiado(anterior, subtotal);
+        }
     }
     
     public void actualizarCantidadPendiente(int cantidadEntregada) {
@@ -38,6 +59,51 @@ public class DetallePedido {
         return cantidadOrdenada - cantidadPendiente;
     }
     
+    /**
+     * Anota que se tomaron unidades de una planta; si la planta ya tenía un
+     * despacho en esta línea, se acumula en él
+     */
+    public void registrarDespacho(int plantaId, int cantidad) {
+        if (despachos == null) {
+            despachos = new long[] { empaquetarDespacho(plantaId, cantidad) };
+            return;
+        }
+        for (int i = 0; i < despachos.length; i++) {
+            if (getPlantaDespacho(i) == plantaId) {
+                despachos[i] = empaquetarDespacho(plantaId, getCantidadDespachada(i) + cantidad);
+                return;
+            }
+        }
+        despachos = Arrays.copyOf(despachos, despachos.length + 1);
+        despachos[despachos.length - 1] = empaquetarDespacho(plantaId, cantidad);
+    }
+    
+    /**
+     * Cantidad de plantas de las que se tomó stock para esta línea
+     */
+    public int getCantidadDespachos() {
+        return despachos == null ? 0 : despachos.length;
+    }
+    
+    /**
+     * Id de planta (ver {@link RegistroPlantas}) del despacho en la posición indicada
+     */
+    public int getPlantaDespacho(int posicion) {
+        return (int) (despachos[posicion] >>> 32);
+    }
+    
+    public int getCantidadDespachada(int posicion) {
+        return (int) despachos[posicion];
+    }
+    
+    public void limpiarDespachos() {
+        despachos = null;
+    }
+    
+    private static long empaquetarDespacho(int plantaId, int cantidad) {
+        return ((long) plantaId << 32) | (cantidad & 0xFFFFFFFFL);
+    }
+    
     public double getPorcentajeCompletado() {
         if (cantidadOrdenada == 0) return 0.0;
         return ((double) getCantidadEntregada() / cantidadOrdenada) * 100.0;
@@ -50,8 +116,8 @@ public class DetallePedido {
     
     public void setArticulo(Articulo articulo) {
         this.articulo = articulo;
-        this.precioUnitario = articulo.getPrecio();
-        this.subtotal = calcularSubtotal();
+        this.precioUnitario = articulo.getPrecioCentavos();
+        recalcularSubtotal();
     }
     
     public int getCantidadOrdenada() {
@@ -60,7 +126,7 @@ public class DetallePedido {
     
     public void setCantidadOrdenada(int cantidadOrdenada) {
         this.cantidadOrdenada = cantidadOrdenada;
-        this.subtotal = calcularSubtotal();
+        recalcularSubtotal();
     }
     
     public int getCantidadPendiente() {
@@ -72,26 +138,43 @@ public class DetallePedido {
     }
     
     public double getPrecioUnitario() {
+        return Dinero.aDecimal(precioUnitario);
+    }
+    
+    public long getPrecioUnitarioCentavos() {
         return precioUnitario;
     }
     
-    public void setPrecioUnitario(double precioUnitario) {
+    public void setPrecioUnitarioCentavos(long precioUnitario) {
         this.precioUnitario = precioUnitario;
-        this.subtotal = calcularSubtotal();
+        recalcularSubtotal();
     }
     
     public double getSubtotal() {
+        return Dinero.aDecimal(subtotal);
+    }
+    
+    public long getSubtotalCentavos() {
         return subtotal;
     }
     
+    public Pedido getPedido() {
+        return pedido;
+    }
+    
+    // Solo lo asigna el pedido al agregar o quitar la línea
+    void setPedido(Pedido pedido) {
+        this.pedido = pedido;
+    }
+    
     @Override
     public String toString() {
         return "DetallePedido{" +
                 "articulo=" + articulo.getNombre() +
                 ", cantidadOrdenada=" + cantidadOrdenada +
                 ", cantidadPendiente=" + cantidadPendiente +
-                ", precioUnitario=" + precioUnitario +
-                ", subtotal=" + subtotal +
+                ", precioUnitario=" + getPrecioUnitario() +
+                ", subtotal=" + getSubtotal() +
                 '}';
     }
 }
@@ -0,0 +1,80 @@
+package modelo;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Aritmética de importes en centavos sobre {@code long}
+ *
+ * Los importes del sistema se guardan como cantidades enteras de centavos y
+ * estas operaciones estáticas trabajan solo con primitivos: sumas, productos y
+ * descuentos son exactos y no crean objetos. Los porcentajes se expresan en
+ * puntos básicos (1% = 100 puntos) para que también sean enteros. Las
+ * operaciones fallan con {@link ArithmeticException} ante un desbordamiento en
+ * lugar de dar un importe incorrecto.
+ */
+public final class Dinero {
+    public static final long CENTAVOS_POR_UNIDAD = 100;
+    public static final int PUNTOS_BASICOS_POR_UNIDAD = 10000; // 100%
+
+    private Dinero() {
+    }
+
+    /**
+     * Convierte un importe decimal a centavos, redondeando al más cercano
+     */
+    public static long deDecimal(double importe) {
+        return Math.round(importe * CENTAVOS_POR_UNIDAD);
+    }
+
+    /**
+     * Importe decimal solo para mostrar; los cálculos se hacen en centavos
+     */
+    public static double aDecimal(long centavos) {
+        return centavos / (double) CENTAVOS_POR_UNIDAD;
+    }
+
+    /**
+     * Convierte un texto como "1234.5" a centavos de forma exacta (redondeo
+     * a medio centavo hacia arriba). No es para el camino caliente.
+     *
+     * @throws NumberFormatException si el texto no es un número
+     */
+    public static long parsear(String texto) {
+        return new BigDecimal(texto.trim()).movePointRight(2)
+                .setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    public static int porcentajeAPuntosBasicos(double porcentaje) {
+        return (int) Math.round(porcentaje * 100);
+    }
+
+    public static double puntosBasicosAPorcentaje(int puntosBasicos) {
+        return puntosBasicos / 100.0;
+    }
+
+    public static long sumar(long centavos, long otros) {
+        return Math.addExact(centavos, otros);
+    }
+
+    public static long restar(long centavos, long otros) {
+        return Math.subtractExact(centavos, otros);
+    }
+
+    public static long multiplicar(long centavos, int cantidad) {
+        return Math.multiplyExact(centavos, (long) cantidad);
+    }
+
+    /**
+     * Porcentaje (en puntos básicos) de un importe, redondeado al centavo más
+     * cercano; las mitades se alejan de cero
+     */
+    public static long aplicarPorcentaje(long centavos, int puntosBasicos) {
+        long producto = Math.multiplyExact(centavos, (long) puntosBasicos);
+        long mitad = PUNTOS_BASICOS_POR_UNIDAD / 2;
+        if (producto >= 0) {
+            return (producto + mitad) / PUNTOS_BASICOS_POR_UNIDAD;
+        }
+        return -((-producto + mitad) / PUNTOS_BASICOS_POR_UNIDAD);
+    }
+}
@@ -0,0 +1,116 @@
+package modelo;
+
+/**
+ * Criterio para elegir de qué plantas se descuenta el stock de una línea de pedido
+ *
+ * El descuento se hace por pasos: se pide la siguiente planta, se toma de ella
+ * todo lo que se pueda y se repite hasta cubrir la línea. Cada paso recorre
+ * solo las plantas asignadas al artículo (sus arreglos de ids y contadores)
+ * sin copiar mapas ni crear objetos; la cercanía usa los rangos que
+ * {@link RegistroPlantas} calcula una sola vez por ciudad.
+ */
+public enum EstrategiaSeleccionPlanta {
+    /**
+     * La primera planta (en orden de asignación) que cubre toda la línea;
+     * si ninguna alcanza, las plantas en orden de asignación
+     */
+    PLANTA_UNICA {
+        @Override
+        public int siguientePlanta(Articulo articulo, int cantidadRestante, int ciudadDestino) {
+            int primeraConStock = -1;
+            for (int i = 0; i < articulo.getCantidadPlantas(); i++) {
+                int plantaId = articulo.getPlantaId(i);
+                int stock = articulo.getCantidad(plantaId);
+                if (stock >= cantidadRestante) {
+                    return plantaId;
+                }
+                if (stock > 0 && primeraConStock < 0) {
+                    primeraConStock = plantaId;
+                }
+            }
+            return primeraConStock;
+        }
+    },
+
+    /**
+     * La planta de menor stock que cubre toda la línea; si ninguna alcanza,
+     * la de mayor stock, lo que reparte la línea en la menor cantidad de plantas
+     */
+    MENOS_PLANTAS {
+        @Override
+        public int siguientePlanta(Articulo articulo, int cantidadRestante, int ciudadDestino) {
+            int mejorAjuste = -1;
+            int stockMejorAjuste = Integer.MAX_VALUE;
+            int mayor = -1;
+            int stockMayor = 0;
+            for (int i = 0; i < articulo.getCantidadPlantas(); i++) {
+                int plantaId = articulo.getPlantaId(i);
+                int stock = articulo.getCantidad(plantaId);
+                if (stock >= cantidadRestante && stock < stockMejorAjuste) {
+                    mejorAjuste = plantaId;
+                    stockMejorAjuste = stock;
+                }
+                if (stock > stockMayor) {
+                    mayor = plantaId;
+                    stockMayor = stock;
+                }
+            }
+            return mejorAjuste >= 0 ? mejorAjuste : mayor;
+        }
+    },
+
+    /**
+     * Siempre la planta con más stock, para equilibrar el inventario entre plantas
+     */
+    MAYOR_STOCK {
+        @Override
+        public int siguientePlanta(Articulo articulo, int cantidadRestante, int ciudadDestino) {
+            int mayor = -1;
+            int stockMayor = 0;
+            for (int i = 0; i < articulo.getCantidadPlantas(); i++) {
+                int plantaId = articulo.getPlantaId(i);
+                int stock = articulo.getCantidad(plantaId);
+                if (stock > stockMayor) {
+                    mayor = plantaId;
+                    stockMayor = stock;
+                }
+            }
+            return mayor;
+        }
+    },
+
+    /**
+     * La planta con stock más cercana a la ciudad de la dirección de envío;
+     * sin ciudad conocida se comporta como {@link #PLANTA_UNICA}
+     */
+    MAS_CERCANA {
+        @Override
+        public int siguientePlanta(Articulo articulo, int cantidadRestante, int ciudadDestino) {
+            if (ciudadDestino < 0) {
+                return PLANTA_UNICA.siguientePlanta(articulo, cantidadRestante, ciudadDestino);
+            }
+            int[] rangos = RegistroPlantas.getRangosPorCercania(ciudadDestino);
+            int cercana = -1;
+            int rangoCercana = Integer.MAX_VALUE;
+            for (int i = 0; i < articulo.getCantidadPlantas(); i++) {
+                int plantaId = articulo.getPlantaId(i);
+                // Una planta registrada después del cálculo de rangos va al final
+                int rango = plantaId < rangos.length ? rangos[plantaId] : rangos.length;
+                if (rango < rangoCercana && articulo.getCantidad(plantaId) > 0) {
+                    cercana = plantaId;
+                    rangoCercana = rango;
+                }
+            }
+            return cercana;
+        }
+    };
+
+    /**
+     * Elige la planta de la que se descuenta la siguiente parte de la línea
+     *
+     * @param cantidadRestante unidades que faltan descontar
+     * @param ciudadDestino id de {@link Ciudades} de la dirección de envío, o -1
+     * @return id de una planta del artículo con stock, o -1 si no queda stock
+     */
+    public abstract int siguientePlanta(Articulo articulo, int cantidadRestante, int ciudadDestino);
+}
@@ -0,0 +1,23 @@
+package modelo;
+
+/**
+ * Recibe un aviso cada vez que cambia el stock o el stock mínimo de un artículo
+ * en una planta, y cuando se le asigna una planta nueva. Se invoca de forma
+ * síncrona en el hilo que hizo el cambio.
+ */
+public interface ObservadorStock {
+    /**
+     * @param articulo artículo modificado
+     * @param plantaId id de la planta en {@link RegistroPlantas}
+     * @param cantidadAnterior stock de la planta antes del cambio
+     * @param cantidadNueva stock de la planta después del cambio
+     */
+    void stockCambiado(Articulo articulo, int plantaId, int cantidadAnterior, int cantidadNueva);
+    
+    /**
+     * Se asignó al artículo una planta que no tenía; llega antes del aviso
+     * del stock inicial de esa planta
+     */
+    default void plantaAsignada(Articulo articulo, int plantaId) {
+    }
+}
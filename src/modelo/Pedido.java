@@ -2,19 +2,34 @@ package modelo;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Clase que representa un Pedido en el sistema
+ * 
+ * El monto total se guarda en centavos (ver {@link Dinero}). El pedido lleva
+ * el subtotal bruto acumulado: cada línea avisa cuando cambia su subtotal, de
+ * modo que agregar, quitar o modificar una línea cuesta O(1). El descuento del
+ * cliente se aplica recién al leer el total y el resultado queda guardado
+ * hasta el próximo cambio de líneas.
+ *
+ * Las líneas se leen sin copiarlas: {@link #getDetalles()} es una vista de
+ * solo lectura y {@link #getCantidadDetalles()} / {@link #getDetalle(int)}
+ * permiten recorrerlas por posición. Quien las recorra mientras otro hilo
+ * puede modificar el pedido debe tenerlo bloqueado, como hacen los servicios.
  */
 public class Pedido {
     private String numeroPedido;
     private Cliente cliente;
     private String direccionEnvio;
     private LocalDate fechaPedido;
-    private List<DetallePedido> detalles;
+    private final List<DetallePedido> detalles;
+    private final List<DetallePedido> detallesSoloLectura;
     private EstadoPedido estado;
-    private double montoTotal;
+    private long subtotalBruto; // Centavos, suma de los subtotales de las líneas
+    private long montoTotal; // Centavos, válido solo si montoTotalVigente
+    private boolean montoTotalVigente;
     
     // Constructor
     public Pedido(String numeroPedido, Cliente cliente, String direccionEnvio) {
@@ -23,30 +38,78 @@ public class Pedido {
         this.direccionEnvio = direccionEnvio;
         this.fechaPedido = LocalDate.now();
         this.detalles = new ArrayList<>();
+        this.detallesSoloLectura = Collections.unmodifiableList(detalles);
         this.estado = EstadoPedido.PENDIENTE;
-        this.montoTotal = 0.0;
+        this.subtotalBruto = 0;
+        this.montoTotalVigente = false;
     }
     
     // Métodos de negocio
-    public void agregarDetalle(Articulo articulo, int cantidadOrdenada) {
+    public DetallePedido agregarDetalle(Articulo articulo, int cantidadOrdenada) {
         DetallePedido detalle = new DetallePedido(articulo, cantidadOrdenada);
+        vincular(detalle);
         detalles.add(detalle);
-        calcularMontoTotal();
+        return detalle;
     }
     
-    public void calcularMontoTotal() {
-        montoTotal = detalles.stream()
-                .mapToDouble(detalle -> detalle.getSubtotal())
-                .sum();
-                
-        // Aplicar descuento del cliente
-        double descuento = cliente.calcularDescuento(montoTotal);
-        montoTotal = montoTotal - descuento;
+    /**
+     * Agrega varias líneas de una vez, reservando espacio una sola vez
+     */
+    public void agregarDetalles(List<DetallePedido> nuevos) {
+        ((ArrayList<DetallePedido>) detalles).ensureCapacity(detalles.size() + nuevos.size());
+        for (DetallePedido detalle : nuevos) {
+            vincular(detalle);
+            detalles.add(detalle);
+        }
+    }
+    
+    /**
+     * Quita una línea del pedido
+     *
+     * @return false si la línea no pertenece al pedido
+     */
+    public boolean eliminarDetalle(DetallePedido detalle) {
+        if (detalle.getPedido() != this || !detalles.remove(detalle)) {
+            return false;
+        }
+        detalle.setPedido(null);
+        subtotalCambiado(detalle.getSubtotalCentavos(), 0);
+        return true;
+    }
+    
+    /**
+     * Vuelve a sumar todas las líneas; solo hace falta si se sospecha que el
+     * subtotal acumulado quedó desfasado
+     */
+    public synchronized void calcularMontoTotal() {
+        long subtotal = 0;
+        for (DetallePedido detalle : detalles) {
+            subtotal = Dinero.sumar(subtotal, detalle.getSubtotalCentavos());
+        }
+        subtotalBruto = subtotal;
+        montoTotalVigente = false;
+    }
+    
+    /**
+     * Aviso de una línea del pedido cuyo subtotal cambió
+     */
+    synchronized void subtotalCambiado(long subtotalAnterior, long subtotalNuevo) {
+        subtotalBruto = Dinero.sumar(subtotalBruto, subtotalNuevo - subtotalAnterior);
+        montoTotalVigente = false;
+    }
+    
+    private void vincular(DetallePedido detalle) {
+        if (detalle.getPedido() != null) {
+            throw new IllegalArgumentException("La línea ya pertenece al pedido "
+                    + detalle.getPedido().getNumeroPedido());
+        }
+        detalle.setPedido(this);
+        subtotalCambiado(0, detalle.getSubtotalCentavos());
     }
     
     public boolean puedeSerProcesado() {
         // Verificar límite de crédito
-        if (!cliente.puedeRealizarPedido(montoTotal)) {
+        if (!cliente.puedeRealizarPedido(getMontoTotalCentavos())) {
             return false;
         }
         
@@ -65,11 +128,11 @@ public class Pedido {
      */
     public String motivoNoProcesable() {
         // Verificar límite de crédito
-        if (!cliente.puedeRealizarPedido(montoTotal)) {
+        if (!cliente.puedeRealizarPedido(getMontoTotalCentavos())) {
             return "El cliente ha excedido su límite de crédito. " +
                    "Saldo actual: $" + String.format("%,.0f", cliente.getSaldo()) + 
                    ", Límite: $" + String.format("%,.0f", cliente.getLimiteCredito()) + 
-                   ", Monto pedido: $" + String.format("%,.0f", montoTotal);
+                   ", Monto pedido: $" + String.format("%,.0f", getMontoTotal());
         }
         
         // Verificar disponibilidad de artículos
@@ -86,34 +149,31 @@ public class Pedido {
     }
     
     public void procesarPedido() {
+        procesarPedido(EstrategiaSeleccionPlanta.PLANTA_UNICA);
+    }
+    
+    /**
+     * Procesa el pedido descontando el stock de las plantas que elija la estrategia
+     */
+    public void procesarPedido(EstrategiaSeleccionPlanta estrategia) {
         if (puedeSerProcesado()) {
             estado = EstadoPedido.PROCESADO;
-            cliente.setSaldo(cliente.getSaldo() + montoTotal);
+            cliente.setSaldoCentavos(Dinero.sumar(cliente.getSaldoCentavos(), getMontoTotalCentavos()));
             
-            // Reducir stock de artículos de manera inteligente
+            int ciudadDestino = Ciudades.buscarEnTexto(direccionEnvio);
             for (DetallePedido detalle : detalles) {
                 Articulo articulo = detalle.getArticulo();
                 int cantidadPendiente = detalle.getCantidadOrdenada();
                 
-                // Buscar plantas con suficiente stock primero
-                for (String planta : articulo.getCantidadPorPlanta().keySet()) {
-                    int stockPlanta = articulo.getCantidadPorPlanta().get(planta);
-                    if (stockPlanta >= cantidadPendiente) {
-                        articulo.reducirStock(planta, cantidadPendiente);
-                        cantidadPendiente = 0;
+                while (cantidadPendiente > 0) {
+                    int plantaId = estrategia.siguientePlanta(articulo, cantidadPendiente, ciudadDestino);
+                    if (plantaId < 0) {
                         break;
                     }
-                }
-                
-                // Si no se pudo satisfacer completamente, tomar de múltiples plantas
-                if (cantidadPendiente > 0) {
-                    for (String planta : articulo.getCantidadPorPlanta().keySet()) {
-                        int stockPlanta = articulo.getCantidadPorPlanta().get(planta);
-                        if (stockPlanta > 0 && cantidadPendiente > 0) {
-                            int cantidadTomar = Math.min(stockPlanta, cantidadPendiente);
-                            articulo.reducirStock(planta, cantidadTomar);
-                            cantidadPendiente -= cantidadTomar;
-                        }
+                    int cantidadTomar = Math.min(articulo.getCantidad(plantaId), cantidadPendiente);
+                    if (cantidadTomar > 0 && articulo.reducirStock(plantaId, cantidadTomar)) {
+                        detalle.registrarDespacho(plantaId, cantidadTomar);
+                        cantidadPendiente -= cantidadTomar;
                     }
                 }
                 
@@ -124,7 +184,12 @@ public class Pedido {
     }
     
     public boolean estaCompleto() {
-        return detalles.stream().allMatch(detalle -> detalle.getCantidadPendiente() == 0);
+        for (DetallePedido detalle : detalles) {
+            if (detalle.getCantidadPendiente() != 0) {
+                return false;
+            }
+        }
+        return true;
     }
     
     // Getters y Setters
@@ -160,8 +225,22 @@ public class Pedido {
         this.fechaPedido = fechaPedido;
     }
     
+    /**
+     * Vista de solo lectura de las líneas (no es una copia: refleja los cambios del pedido)
+     */
     public List<DetallePedido> getDetalles() {
-        return new ArrayList<>(detalles);
+        return detallesSoloLectura;
+    }
+    
+    public int getCantidadDetalles() {
+        return detalles.size();
+    }
+    
+    /**
+     * Línea en la posición indicada (0 a getCantidadDetalles() - 1), en orden de alta
+     */
+    public DetallePedido getDetalle(int posicion) {
+        return detalles.get(posicion);
     }
     
     public EstadoPedido getEstado() {
@@ -173,9 +252,33 @@ public class Pedido {
     }
     
     public double getMontoTotal() {
+        return Dinero.aDecimal(getMontoTotalCentavos());
+    }
+    
+    /**
+     * Subtotal bruto menos el descuento del cliente; bloquea el pedido para
+     * que un lector no deje guardado un total calculado con líneas viejas
+     */
+    public synchronized long getMontoTotalCentavos() {
+        if (!montoTotalVigente) {
+            montoTotal = subtotalBruto - cliente.calcularDescuento(subtotalBruto);
+            montoTotalVigente = true;
+        }
         return montoTotal;
     }
     
+    /**
+     * Fija el total tal como estaba guardado; vale hasta el próximo cambio de líneas
+     */
+    public synchronized void setMontoTotalCentavos(long montoTotal) {
+        this.montoTotal = montoTotal;
+        this.montoTotalVigente = true;
+    }
+    
+    public synchronized long getSubtotalBrutoCentavos() {
+        return subtotalBruto;
+    }
+    
     @Override
     public String toString() {
         return "Pedido{" +
@@ -183,7 +286,7 @@ public class Pedido {
                 ", cliente=" + cliente.getNombre() +
                 ", fechaPedido=" + fechaPedido +
                 ", estado=" + estado +
-                ", montoTotal=" + montoTotal +
+                ", montoTotal=" + getMontoTotal() +
                 '}';
     }
 }
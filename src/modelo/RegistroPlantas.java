@@ -0,0 +1,126 @@
+package modelo;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro central de plantas manufactureras
+ *
+ * Asigna a cada planta un identificador entero denso (0, 1, 2, ...) la primera
+ * vez que se usa su nombre. Los artículos guardan su stock en arreglos
+ * indexados por ese identificador, de modo que el nombre de la planta se
+ * almacena y se compara una sola vez en todo el sistema.
+ */
+public final class RegistroPlantas {
+    private static final Map<String, Integer> idsPorNombre = new ConcurrentHashMap<>();
+    private static volatile String[] nombresPorId = new String[0];
+    // Cercanía de cada planta a cada ciudad; se recalcula al registrar plantas o ciudades
+    private static volatile Cercania cercania = new Cercania(0, 0, new int[0][]);
+
+    private RegistroPlantas() {
+    }
+
+    /**
+     * Obtiene el identificador de la planta, registrándola si es nueva
+     */
+    public static int obtenerId(String nombrePlanta) {
+        Integer id = idsPorNombre.get(nombrePlanta);
+        if (id != null) {
+            return id;
+        }
+        return registrar(nombrePlanta);
+    }
+
+    /**
+     * Busca el identificador de una planta ya registrada, o -1 si no existe
+     */
+    public static int buscarId(String nombrePlanta) {
+        Integer id = idsPorNombre.get(nombrePlanta);
+        return id != null ? id : -1;
+    }
+
+    public static String getNombre(int id) {
+        return nombresPorId[id];
+    }
+
+    /**
+     * Cantidad de plantas registradas; los identificadores van de 0 a este valor - 1
+     */
+    public static int getCantidadPlantas() {
+        return nombresPorId.length;
+    }
+
+    /**
+     * Rango de cada planta por distancia a la ciudad indicada (0 = la más
+     * cercana), indexado por id de planta. La ciudad de una planta se toma de
+     * su nombre ("Planta Cali"); las plantas sin ciudad conocida quedan al final.
+     * El arreglo es compartido y no debe modificarse.
+     */
+    public static int[] getRangosPorCercania(int ciudadId) {
+        Cercania actual = cercania;
+        if (actual.plantas != nombresPorId.length || actual.ciudades != Ciudades.getCantidadCiudades()) {
+            actual = calcularCercania();
+        }
+        return actual.rangos[ciudadId];
+    }
+
+    private static synchronized Cercania calcularCercania() {
+        String[] nombres = nombresPorId;
+        int ciudades = Ciudades.getCantidadCiudades();
+        Cercania actual = cercania;
+        if (actual.plantas == nombres.length && actual.ciudades == ciudades) {
+            return actual;
+        }
+
+        int[] ciudadPorPlanta = new int[nombres.length];
+        for (int planta = 0; planta < nombres.length; planta++) {
+            ciudadPorPlanta[planta] = Ciudades.buscarEnTexto(nombres[planta]);
+        }
+        int[][] rangos = new int[ciudades][];
+        Integer[] orden = new Integer[nombres.length];
+        double[] distancias = new double[nombres.length];
+        for (int ciudad = 0; ciudad < ciudades; ciudad++) {
+            for (int planta = 0; planta < nombres.length; planta++) {
+                orden[planta] = planta;
+                distancias[planta] = ciudadPorPlanta[planta] < 0
+                        ? Double.POSITIVE_INFINITY
+                        : Ciudades.distanciaKm(ciudad, ciudadPorPlanta[planta]);
+            }
+            Arrays.sort(orden, (a, b) -> Double.compare(distancias[a], distancias[b]));
+            rangos[ciudad] = new int[nombres.length];
+            for (int rango = 0; rango < orden.length; rango++) {
+                rangos[ciudad][orden[rango]] = rango;
+            }
+        }
+        cercania = new Cercania(nombres.length, ciudades, rangos);
+        return cercania;
+    }
+
+    private static synchronized int registrar(String nombrePlanta) {
+        Integer existente = idsPorNombre.get(nombrePlanta);
+        if (existente != null) {
+            return existente;
+        }
+
+        int id = nombresPorId.length;
+        String[] nuevosNombres = Arrays.copyOf(nombresPorId, id + 1);
+        nuevosNombres[id] = nombrePlanta;
+        // El nombre se publica antes que el identificador
+        nombresPorId = nuevosNombres;
+        idsPorNombre.put(nombrePlanta, id);
+        return id;
+    }
+
+    private static final class Cercania {
+        final int plantas;
+        final int ciudades;
+        final int[][] rangos; // Ciudad -> (id de planta -> rango)
+
+        Cercania(int plantas, int ciudades, int[][] rangos) {
+            this.plantas = plantas;
+            this.ciudades = ciudades;
+            this.rangos = rangos;
+        }
+    }
+}
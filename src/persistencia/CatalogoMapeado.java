@@ -0,0 +1,918 @@
+package persistencia;
+
+import modelo.*;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Catálogo de artículos respaldado por archivos mapeados en memoria
+ *
+ * Cada artículo ocupa un registro de ancho fijo en {@code articulos.dat}:
+ * código, precio, posición de nombre y descripción en el montículo de textos
+ * ({@code textos.dat}) y {@value #PLANTAS_POR_REGISTRO} casillas de planta con
+ * su stock y stock mínimo. Un índice hash de direccionamiento abierto, también
+ * mapeado ({@code articulos.idx}), resuelve código → registro sin tener todos
+ * los códigos en el heap. Los nombres de planta van en {@code plantas.txt}.
+ *
+ * Los artículos solo se convierten en objetos {@link Articulo} cuando se piden
+ * ({@link #materializar(String)}); el resto queda en el caché de páginas del
+ * sistema operativo. El catálogo se registra como {@link ObservadorStock} de
+ * cada artículo materializado y escribe cada cambio de stock en su registro.
+ *
+ * Los totales ({@link #getResumen()}) y los registros con bajo stock se
+ * mantienen con cada escritura y se guardan al cerrar en {@code resumen.dat},
+ * de modo que abrir el catálogo no recorre los registros. Al abrirlo el
+ * resumen se marca como no vigente; si el proceso termina sin cerrar el
+ * catálogo, la próxima apertura lo vuelve a calcular desde los registros.
+ */
+public class CatalogoMapeado implements ObservadorStock, Closeable {
+    public static final int PLANTAS_POR_REGISTRO = 8;
+
+    private static final int MAGIA_REGISTROS = 0x53475041; // "SGPA"
+    private static final int MAGIA_INDICE = 0x53475058;    // "SGPX"
+    private static final int VERSION = 1;
+
+    // Disposición de un registro
+    private static final int TAMANO_REGISTRO = 160;
+    private static final int MAX_BYTES_CODIGO = 24;
+    private static final int POS_ESTADO = 0;
+    private static final int POS_LONGITUD_CODIGO = 1;
+    private static final int POS_CODIGO = 2;
+    private static final int POS_PRECIO = 32; // Centavos
+    private static final int POS_NOMBRE = 40;
+    private static final int POS_DESCRIPCION = 48;
+    private static final int POS_PLANTAS = 56;
+    private static final int TAMANO_CASILLA = 12; // planta, cantidad, mínimo
+    private static final int SIN_PLANTA = -1;
+
+    private static final byte LIBRE = 0;
+    private static final byte ACTIVO = 1;
+    private static final byte ELIMINADO = 2;
+
+    // El registro 0 es el encabezado: magia, versión, registros usados, activos
+    private static final int REGISTROS_POR_REGION = 1 << 16;
+    private static final long TAMANO_REGION = (long) REGISTROS_POR_REGION * TAMANO_REGISTRO;
+
+    // Índice: encabezado [magia][capacidad][ocupadas] y luego una casilla int por entrada
+    private static final int TAMANO_ENCABEZADO_INDICE = 16;
+    private static final int CASILLA_VACIA = 0;
+    private static final int CASILLA_BORRADA = -1;
+    private static final int CAPACIDAD_INICIAL_INDICE = 1 << 12;
+
+    // Resumen: [magia][unidades][disponibles][plantas][artículos por planta...][bajos][registros...]
+    private static final int MAGIA_RESUMEN = 0x53475052; // "SGPR"
+    private static final int FRANJAS = 64;
+
+    private final Path archivoRegistros;
+    private final Path archivoIndice;
+    private final Path archivoPlantas;
+    private final Path archivoResumen;
+    private final FileChannel canalRegistros;
+    private final FileChannel canalTextos;
+
+    private volatile MappedByteBuffer[] regiones = new MappedByteBuffer[0];
+    private volatile MappedByteBuffer indice;
+    private volatile int capacidadIndice;
+
+    // Nombre de planta <-> índice local del catálogo (estable entre ejecuciones)
+    private final Map<String, Integer> indicesPlanta = new ConcurrentHashMap<>();
+    private volatile String[] nombresPlanta = new String[0];
+
+    // Totales del resumen; el aporte de cada registro se cambia con su franja bloqueada
+    private final AtomicLong unidades = new AtomicLong();
+    private final AtomicInteger disponibles = new AtomicInteger();
+    private final Map<Integer, AtomicInteger> articulosPorPlanta = new ConcurrentHashMap<>();
+    private final Set<Integer> registrosBajoStock = ConcurrentHashMap.newKeySet();
+    private final Object[] franjas = new Object[FRANJAS];
+
+    /**
+     * Abre el catálogo del directorio, creándolo si no existe
+     */
+    public CatalogoMapeado(Path directorio) throws IOException {
+        Files.createDirectories(directorio);
+        this.archivoRegistros = directorio.resolve("articulos.dat");
+        this.archivoIndice = directorio.resolve("articulos.idx");
+        this.archivoPlantas = directorio.resolve("plantas.txt");
+        this.archivoResumen = directorio.resolve("resumen.dat");
+        for (int i = 0; i < FRANJAS; i++) {
+            franjas[i] = new Object();
+        }
+
+        boolean nuevo = !Files.exists(archivoRegistros);
+        this.canalRegistros = FileChannel.open(archivoRegistros, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.canalTextos = FileChannel.open(directorio.resolve("textos.dat"), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        asegurarRegion(0);
+        ByteBuffer encabezado = regiones[0];
+        if (nuevo) {
+            encabezado.putInt(0, MAGIA_REGISTROS);
+            encabezado.putInt(4, VERSION);
+            encabezado.putInt(8, 1); // el registro 0 es el propio encabezado
+            encabezado.putInt(12, 0);
+        } else if (encabezado.getInt(0) != MAGIA_REGISTROS || encabezado.getInt(4) != VERSION) {
+            throw new IOException("El archivo no es un catálogo mapeado compatible: " + archivoRegistros);
+        }
+        asegurarRegion((getRegistrosUsados() - 1) / REGISTROS_POR_REGION);
+
+        if (Files.exists(archivoPlantas)) {
+            for (String nombre : Files.readAllLines(archivoPlantas, StandardCharsets.UTF_8)) {
+                registrarNombrePlanta(nombre);
+            }
+        }
+
+        if (!abrirIndice()) {
+            reconstruirIndice(Math.max(CAPACIDAD_INICIAL_INDICE, Integer.highestOneBit(Math.max(1, getCantidadArticulos()) * 4)));
+        }
+        if (nuevo) {
+            Files.deleteIfExists(archivoResumen); // De un catálogo anterior
+        } else if (!cargarResumen()) {
+            recalcularResumen();
+        }
+    }
+
+    // Consultas
+
+    public int getCantidadArticulos() {
+        return regiones[0].getInt(12);
+    }
+
+    public boolean contiene(String codigo) {
+        return buscarRegistro(codigo) > 0;
+    }
+
+    /**
+     * Crea el objeto del artículo a partir de su registro, o null si no existe.
+     * Cada llamada crea un objeto nuevo; quien lo use debe conservarlo.
+     */
+    public Articulo materializar(String codigo) {
+        int registro = buscarRegistro(codigo);
+        if (registro <= 0) {
+            return null;
+        }
+        ByteBuffer region = region(registro);
+        int base = base(registro);
+        Articulo articulo = new Articulo(codigo,
+                leerTexto(region.getLong(base + POS_NOMBRE)),
+                leerTexto(region.getLong(base + POS_DESCRIPCION)),
+                0);
+        articulo.setPrecioCentavos(region.getLong(base + POS_PRECIO));
+        for (int casilla = 0; casilla < PLANTAS_POR_REGISTRO; casilla++) {
+            int posicion = base + POS_PLANTAS + casilla * TAMANO_CASILLA;
+            int plantaLocal = region.getInt(posicion);
+            if (plantaLocal != SIN_PLANTA) {
+                articulo.agregarPlanta(nombresPlanta[plantaLocal],
+                        region.getInt(posicion + 4), region.getInt(posicion + 8));
+            }
+        }
+        return articulo;
+    }
+
+    /**
+     * Recorre los códigos de todos los artículos activos, en orden de registro
+     */
+    public void recorrerCodigos(Consumer<String> accion) {
+        int usados = getRegistrosUsados();
+        for (int registro = 1; registro < usados; registro++) {
+            ByteBuffer region = region(registro);
+            int base = base(registro);
+            if (region.get(base + POS_ESTADO) == ACTIVO) {
+                accion.accept(leerCodigo(region, base));
+            }
+        }
+    }
+
+    /**
+     * Códigos de los artículos con stock total mayor que cero, leídos directo de los registros
+     */
+    public List<String> getCodigosDisponibles() {
+        List<String> codigos = new ArrayList<>();
+        int usados = getRegistrosUsados();
+        for (int registro = 1; registro < usados; registro++) {
+            ByteBuffer region = region(registro);
+            int base = base(registro);
+            if (region.get(base + POS_ESTADO) == ACTIVO && totalStock(region, base) > 0) {
+                codigos.add(leerCodigo(region, base));
+            }
+        }
+        return codigos;
+    }
+
+    /**
+     * Si el artículo existe y tiene stock total mayor que cero, leído de su registro
+     */
+    public boolean tieneStock(String codigo) {
+        int registro = buscarRegistro(codigo);
+        return registro > 0 && totalStock(region(registro), base(registro)) > 0;
+    }
+
+    /**
+     * Recorre código y nombre de los artículos activos sin materializarlos
+     */
+    public void recorrerNombres(BiConsumer<String, String> accion) {
+        int usados = getRegistrosUsados();
+        for (int registro = 1; registro < usados; registro++) {
+            ByteBuffer region = region(registro);
+            int base = base(registro);
+            if (region.get(base + POS_ESTADO) == ACTIVO) {
+                accion.accept(leerCodigo(region, base), leerTexto(region.getLong(base + POS_NOMBRE)));
+            }
+        }
+    }
+
+    /**
+     * Códigos de los artículos con alguna planta bajo su mínimo, en orden de
+     * registro; solo se leen los registros que están en bajo stock
+     */
+    public List<String> getCodigosConBajoStock() {
+        Integer[] registros = registrosBajoStock.toArray(new Integer[0]);
+        Arrays.sort(registros);
+        List<String> codigos = new ArrayList<>(registros.length);
+        for (int registro : registros) {
+            ByteBuffer region = region(registro);
+            int base = base(registro);
+            if (region.get(base + POS_ESTADO) == ACTIVO) {
+                codigos.add(leerCodigo(region, base));
+            }
+        }
+        return codigos;
+    }
+
+    /**
+     * Stock total por nombre de planta, sumado sobre los registros sin materializar artículos
+     */
+    public Map<String, Integer> getResumenStockPorPlanta() {
+        String[] nombres = nombresPlanta;
+        long[] totales = new long[nombres.length];
+        boolean[] activas = new boolean[nombres.length];
+        int usados = getRegistrosUsados();
+        for (int registro = 1; registro < usados; registro++) {
+            ByteBuffer region = region(registro);
+            int base = base(registro);
+            if (region.get(base + POS_ESTADO) != ACTIVO) {
+                continue;
+            }
+            for (int casilla = 0; casilla < PLANTAS_POR_REGISTRO; casilla++) {
+                int posicion = base + POS_PLANTAS + casilla * TAMANO_CASILLA;
+                int plantaLocal = region.getInt(posicion);
+                if (plantaLocal != SIN_PLANTA && plantaLocal < nombres.length) {
+                    totales[plantaLocal] += region.getInt(posicion + 4);
+                    activas[plantaLocal] = true;
+                }
+            }
+        }
+        Map<String, Integer> resumen = new HashMap<>();
+        for (int i = 0; i < nombres.length; i++) {
+            if (activas[i]) {
+                resumen.put(nombres[i], (int) totales[i]);
+            }
+        }
+        return resumen;
+    }
+
+    /**
+     * Unidades, artículos con stock y artículos por planta; sirve para
+     * iniciar contadores que después se mantienen con cada cambio
+     */
+    public Resumen getResumen() {
+        String[] nombres = nombresPlanta;
+        Map<String, Integer> porNombre = new HashMap<>();
+        for (Map.Entry<Integer, AtomicInteger> planta : articulosPorPlanta.entrySet()) {
+            if (planta.getValue().get() > 0 && planta.getKey() < nombres.length) {
+                porNombre.put(nombres[planta.getKey()], planta.getValue().get());
+            }
+        }
+        return new Resumen(unidades.get(), disponibles.get(), porNombre);
+    }
+
+    /**
+     * Indica si el artículo tiene casilla para la planta (ya asignada o libre)
+     */
+    public boolean admitePlanta(Articulo articulo, String planta) {
+        if (articulo.tienePlanta(RegistroPlantas.buscarId(planta))) {
+            return true;
+        }
+        return articulo.getCantidadPlantas() < PLANTAS_POR_REGISTRO;
+    }
+
+    // Modificaciones
+
+    /**
+     * Escribe el artículo completo en su registro, creándolo si es nuevo
+     *
+     * @return false si el código es demasiado largo o el artículo tiene más
+     *         plantas de las que caben en un registro
+     */
+    public synchronized boolean guardar(Articulo articulo) {
+        byte[] codigo = articulo.getCodigo().getBytes(StandardCharsets.UTF_8);
+        if (codigo.length > MAX_BYTES_CODIGO || articulo.getCantidadPlantas() > PLANTAS_POR_REGISTRO) {
+            return false;
+        }
+
+        int registro = buscarRegistro(articulo.getCodigo());
+        boolean nuevo = registro <= 0;
+        if (nuevo) {
+            registro = getRegistrosUsados();
+            try {
+                asegurarRegion(registro / REGISTROS_POR_REGION);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        ByteBuffer region = region(registro);
+        int base = base(registro);
+        // Los textos se anexan; las versiones anteriores quedan sin referencia
+        region.putLong(base + POS_NOMBRE, escribirTexto(articulo.getNombre()));
+        region.putLong(base + POS_DESCRIPCION, escribirTexto(articulo.getDescripcion()));
+        region.putLong(base + POS_PRECIO, articulo.getPrecioCentavos());
+        synchronized (articulo) {
+            synchronized (franja(registro)) {
+                // Un registro nuevo todavía no aporta nada al resumen
+                if (!nuevo) {
+                    contabilizar(region, base, -1);
+                }
+                int plantas = articulo.getCantidadPlantas();
+                for (int casilla = 0; casilla < PLANTAS_POR_REGISTRO; casilla++) {
+                    int posicion = base + POS_PLANTAS + casilla * TAMANO_CASILLA;
+                    if (casilla < plantas) {
+                        int plantaId = articulo.getPlantaId(casilla);
+                        region.putInt(posicion, indiceLocalPlanta(RegistroPlantas.getNombre(plantaId)));
+                        region.putInt(posicion + 4, articulo.getCantidad(plantaId));
+                        region.putInt(posicion + 8, articulo.getStockMinimo(plantaId));
+                    } else {
+                        region.putInt(posicion, SIN_PLANTA);
+                        region.putInt(posicion + 4, 0);
+                        region.putInt(posicion + 8, 0);
+                    }
+                }
+                contabilizar(region, base, 1);
+                actualizarBajoStock(registro, region, base);
+            }
+        }
+
+        if (nuevo) {
+            region.put(base + POS_LONGITUD_CODIGO, (byte) codigo.length);
+            for (int i = 0; i < codigo.length; i++) {
+                region.put(base + POS_CODIGO + i, codigo[i]);
+            }
+            region.put(base + POS_ESTADO, ACTIVO);
+            // El registro se publica en el encabezado y en el índice al final
+            regiones[0].putInt(8, registro + 1);
+            regiones[0].putInt(12, getCantidadArticulos() + 1);
+            insertarEnIndice(articulo.getCodigo(), registro);
+        }
+        return true;
+    }
+
+    public synchronized boolean eliminar(String codigo) {
+        int registro = buscarRegistro(codigo);
+        if (registro <= 0) {
+            return false;
+        }
+        ByteBuffer region = region(registro);
+        int base = base(registro);
+        synchronized (franja(registro)) {
+            region.put(base + POS_ESTADO, ELIMINADO);
+            contabilizar(region, base, -1);
+            registrosBajoStock.remove(registro);
+        }
+        borrarDeIndice(codigo);
+        regiones[0].putInt(12, getCantidadArticulos() - 1);
+        return true;
+    }
+
+    /**
+     * Escribe en el registro el stock y mínimo actuales de la planta modificada
+     */
+    @Override
+    public void stockCambiado(Articulo articulo, int plantaId, int cantidadAnterior, int cantidadNueva) {
+        int registro = buscarRegistro(articulo.getCodigo());
+        if (registro <= 0) {
+            return; // El artículo no está (o ya no está) en el catálogo
+        }
+        ByteBuffer region = region(registro);
+        int base = base(registro);
+        int plantaLocal = indiceLocalPlanta(RegistroPlantas.getNombre(plantaId));
+
+        // Se escribe el valor vigente, no el del aviso: si dos avisos llegan
+        // desordenados, el último en escribir siempre deja el valor más reciente
+        synchronized (articulo) {
+            synchronized (franja(registro)) {
+                if (region.get(base + POS_ESTADO) != ACTIVO) {
+                    return; // Se eliminó mientras tanto
+                }
+                int posicion = -1;
+                int libre = -1;
+                for (int casilla = 0; casilla < PLANTAS_POR_REGISTRO && posicion < 0; casilla++) {
+                    int candidata = base + POS_PLANTAS + casilla * TAMANO_CASILLA;
+                    int actual = region.getInt(candidata);
+                    if (actual == plantaLocal) {
+                        posicion = candidata;
+                    } else if (actual == SIN_PLANTA && libre < 0) {
+                        libre = candidata;
+                    }
+                }
+                if (posicion < 0 && libre < 0) {
+                    throw new IllegalStateException("El artículo " + articulo.getCodigo()
+                            + " supera las " + PLANTAS_POR_REGISTRO + " plantas del catálogo");
+                }
+
+                long totalAnterior = totalStock(region, base);
+                int cantidad = articulo.getCantidad(plantaId);
+                int cantidadEscrita;
+                if (posicion >= 0) {
+                    cantidadEscrita = region.getInt(posicion + 4);
+                } else {
+                    posicion = libre;
+                    cantidadEscrita = 0;
+                    articulosPorPlanta.computeIfAbsent(plantaLocal, planta -> new AtomicInteger()).incrementAndGet();
+                }
+                region.putInt(posicion + 4, cantidad);
+                region.putInt(posicion + 8, articulo.getStockMinimo(plantaId));
+                region.putInt(posicion, plantaLocal);
+
+                unidades.addAndGet(cantidad - cantidadEscrita);
+                long total = totalAnterior - cantidadEscrita + cantidad;
+                if ((totalAnterior > 0) != (total > 0)) {
+                    disponibles.addAndGet(total > 0 ? 1 : -1);
+                }
+                actualizarBajoStock(registro, region, base);
+            }
+        }
+    }
+
+    /**
+     * Fuerza al disco las páginas modificadas
+     */
+    public synchronized void sincronizar() throws IOException {
+        for (MappedByteBuffer region : regiones) {
+            region.force();
+        }
+        indice.force();
+        canalTextos.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        sincronizar();
+        guardarResumen();
+        canalRegistros.close();
+        canalTextos.close();
+    }
+
+    // Registros
+
+    private int getRegistrosUsados() {
+        return regiones[0].getInt(8);
+    }
+
+    private ByteBuffer region(int registro) {
+        return regiones[registro / REGISTROS_POR_REGION];
+    }
+
+    private static int base(int registro) {
+        return (registro % REGISTROS_POR_REGION) * TAMANO_REGISTRO;
+    }
+
+    private synchronized void asegurarRegion(int numeroRegion) throws IOException {
+        MappedByteBuffer[] actuales = regiones;
+        if (numeroRegion < actuales.length) {
+            return;
+        }
+        // Las regiones existentes se conservan; solo se mapean las nuevas
+        MappedByteBuffer[] nuevas = Arrays.copyOf(actuales, numeroRegion + 1);
+        for (int i = actuales.length; i <= numeroRegion; i++) {
+            nuevas[i] = canalRegistros.map(FileChannel.MapMode.READ_WRITE, i * TAMANO_REGION, TAMANO_REGION);
+        }
+        regiones = nuevas;
+    }
+
+    private Object franja(int registro) {
+        return franjas[registro & (FRANJAS - 1)];
+    }
+
+    // Resumen
+
+    /**
+     * Suma (signo 1) o resta (signo -1) el aporte del registro a los totales;
+     * se llama con su franja bloqueada
+     */
+    private void contabilizar(ByteBuffer region, int base, int signo) {
+        long total = 0;
+        for (int casilla = 0; casilla < PLANTAS_POR_REGISTRO; casilla++) {
+            int posicion = base + POS_PLANTAS + casilla * TAMANO_CASILLA;
+            int plantaLocal = region.getInt(posicion);
+            if (plantaLocal != SIN_PLANTA) {
+                total += region.getInt(posicion + 4);
+                articulosPorPlanta.computeIfAbsent(plantaLocal, planta -> new AtomicInteger()).addAndGet(signo);
+            }
+        }
+        unidades.addAndGet(signo * total);
+        if (total > 0) {
+            disponibles.addAndGet(signo);
+        }
+    }
+
+    private void actualizarBajoStock(int registro, ByteBuffer region, int base) {
+        for (int casilla = 0; casilla < PLANTAS_POR_REGISTRO; casilla++) {
+            int posicion = base + POS_PLANTAS + casilla * TAMANO_CASILLA;
+            if (region.getInt(posicion) != SIN_PLANTA
+                    && region.getInt(posicion + 4) < region.getInt(posicion + 8)) {
+                registrosBajoStock.add(registro);
+                return;
+            }
+        }
+        registrosBajoStock.remove(registro);
+    }
+
+    /**
+     * Calcula el resumen recorriendo todos los registros; solo hace falta si
+     * no hay un resumen guardado al cerrar
+     */
+    private void recalcularResumen() {
+        int usados = getRegistrosUsados();
+        for (int registro = 1; registro < usados; registro++) {
+            ByteBuffer region = region(registro);
+            int base = base(registro);
+            if (region.get(base + POS_ESTADO) == ACTIVO) {
+                contabilizar(region, base, 1);
+                actualizarBajoStock(registro, region, base);
+            }
+        }
+    }
+
+    /**
+     * Carga el resumen guardado al cerrar y lo marca como no vigente, para
+     * que una terminación sin cerrar obligue a recalcularlo
+     *
+     * @return false si no hay un resumen vigente
+     */
+    private boolean cargarResumen() throws IOException {
+        if (!Files.exists(archivoResumen)) {
+            return false;
+        }
+        try (FileChannel canal = FileChannel.open(archivoResumen, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer datos = ByteBuffer.allocate((int) canal.size());
+            while (datos.hasRemaining() && canal.read(datos) >= 0) {
+                // Se lee el archivo completo
+            }
+            datos.flip();
+            if (datos.remaining() < 20 || datos.getInt() != MAGIA_RESUMEN) {
+                return false;
+            }
+            long unidadesGuardadas = datos.getLong();
+            int disponiblesGuardados = datos.getInt();
+            int plantas = datos.getInt();
+            if (plantas < 0 || plantas > nombresPlanta.length || datos.remaining() < plantas * 4 + 4) {
+                return false;
+            }
+            int[] porPlanta = new int[plantas];
+            for (int i = 0; i < plantas; i++) {
+                porPlanta[i] = datos.getInt();
+            }
+            int bajos = datos.getInt();
+            if (bajos < 0 || datos.remaining() != bajos * 4) {
+                return false;
+            }
+            int usados = getRegistrosUsados();
+            int[] registros = new int[bajos];
+            for (int i = 0; i < bajos; i++) {
+                registros[i] = datos.getInt();
+                if (registros[i] <= 0 || registros[i] >= usados) {
+                    return false;
+                }
+            }
+
+            // Deja de ser vigente antes de que el catálogo se modifique
+            canal.write(ByteBuffer.allocate(4), 0);
+            canal.force(true);
+
+            unidades.set(unidadesGuardadas);
+            disponibles.set(disponiblesGuardados);
+            for (int i = 0; i < plantas; i++) {
+                if (porPlanta[i] > 0) {
+                    articulosPorPlanta.put(i, new AtomicInteger(porPlanta[i]));
+                }
+            }
+            for (int registro : registros) {
+                registrosBajoStock.add(registro);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Guarda el resumen al cerrar; la magia se escribe al final, cuando el
+     * resto ya está en disco
+     */
+    private void guardarResumen() throws IOException {
+        int plantas = nombresPlanta.length;
+        Integer[] registros = registrosBajoStock.toArray(new Integer[0]);
+        ByteBuffer datos = ByteBuffer.allocate(24 + plantas * 4 + registros.length * 4);
+        datos.putInt(0);
+        datos.putLong(unidades.get());
+        datos.putInt(disponibles.get());
+        datos.putInt(plantas);
+        for (int i = 0; i < plantas; i++) {
+            AtomicInteger articulos = articulosPorPlanta.get(i);
+            datos.putInt(articulos != null ? articulos.get() : 0);
+        }
+        datos.putInt(registros.length);
+        for (int registro : registros) {
+            datos.putInt(registro);
+        }
+        datos.flip();
+        try (FileChannel canal = FileChannel.open(archivoResumen, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (datos.hasRemaining()) {
+                canal.write(datos);
+            }
+            canal.force(true);
+            ByteBuffer magia = ByteBuffer.allocate(4).putInt(0, MAGIA_RESUMEN);
+            canal.write(magia, 0);
+            canal.force(true);
+        }
+    }
+
+    private static String leerCodigo(ByteBuffer region, int base) {
+        byte[] codigo = new byte[region.get(base + POS_LONGITUD_CODIGO)];
+        for (int i = 0; i < codigo.length; i++) {
+            codigo[i] = region.get(base + POS_CODIGO + i);
+        }
+        return new String(codigo, StandardCharsets.UTF_8);
+    }
+
+    private static boolean codigoIgual(ByteBuffer region, int base, byte[] codigo) {
+        if (region.get(base + POS_LONGITUD_CODIGO) != codigo.length) {
+            return false;
+        }
+        for (int i = 0; i < codigo.length; i++) {
+            if (region.get(base + POS_CODIGO + i) != codigo[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Montículo de textos: [longitud][bytes UTF-8]
+
+    private long escribirTexto(String texto) {
+        if (texto == null) {
+            return -1;
+        }
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer entrada = ByteBuffer.allocate(4 + bytes.length);
+        entrada.putInt(bytes.length).put(bytes).flip();
+        try {
+            // Solo se escribe desde guardar(), que es synchronized: el final no se mueve
+            long posicion = canalTextos.size();
+            while (entrada.hasRemaining()) {
+                canalTextos.write(entrada, posicion + entrada.position());
+            }
+            return posicion;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long totalStock(ByteBuffer region, int base) {
+        long total = 0;
+        for (int casilla = 0; casilla < PLANTAS_POR_REGISTRO; casilla++) {
+            int posicion = base + POS_PLANTAS + casilla * TAMANO_CASILLA;
+            if (region.getInt(posicion) != SIN_PLANTA) {
+                total += region.getInt(posicion + 4);
+            }
+        }
+        return total;
+    }
+
+    private String leerTexto(long posicion) {
+        if (posicion < 0) {
+            return null;
+        }
+        try {
+            ByteBuffer longitud = ByteBuffer.allocate(4);
+            leerCompleto(longitud, posicion);
+            ByteBuffer bytes = ByteBuffer.allocate(longitud.getInt(0));
+            leerCompleto(bytes, posicion + 4);
+            return new String(bytes.array(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void leerCompleto(ByteBuffer destino, long posicion) throws IOException {
+        while (destino.hasRemaining()) {
+            if (canalTextos.read(destino, posicion + destino.position()) < 0) {
+                throw new IOException("Montículo de textos truncado");
+            }
+        }
+    }
+
+    // Plantas
+
+    private int indiceLocalPlanta(String nombre) {
+        Integer indice = indicesPlanta.get(nombre);
+        if (indice != null) {
+            return indice;
+        }
+        return agregarPlanta(nombre);
+    }
+
+    private synchronized int agregarPlanta(String nombre) {
+        Integer existente = indicesPlanta.get(nombre);
+        if (existente != null) {
+            return existente;
+        }
+        try {
+            Files.write(archivoPlantas, Collections.singletonList(nombre), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo registrar la planta " + nombre, e);
+        }
+        return registrarNombrePlanta(nombre);
+    }
+
+    private int registrarNombrePlanta(String nombre) {
+        int indice = nombresPlanta.length;
+        String[] nuevos = Arrays.copyOf(nombresPlanta, indice + 1);
+        nuevos[indice] = nombre;
+        nombresPlanta = nuevos;
+        indicesPlanta.put(nombre, indice);
+        return indice;
+    }
+
+    // Índice hash: cada casilla guarda el número de registro, 0 si está vacía, -1 si se borró
+
+    /**
+     * @return número de registro del código, o -1 si no está
+     */
+    private int buscarRegistro(String codigo) {
+        byte[] bytes = codigo.getBytes(StandardCharsets.UTF_8);
+        // Sin bloqueo: la máscara sale del encabezado de la misma tabla, así
+        // que una reconstrucción concurrente nunca mezcla tabla y capacidad
+        MappedByteBuffer tabla = indice;
+        int mascara = tabla.getInt(4) - 1;
+        for (int casilla = dispersar(codigo) & mascara; ; casilla = (casilla + 1) & mascara) {
+            int registro = tabla.getInt(TAMANO_ENCABEZADO_INDICE + casilla * 4);
+            if (registro == CASILLA_VACIA) {
+                return -1;
+            }
+            if (registro != CASILLA_BORRADA && codigoIgual(region(registro), base(registro), bytes)) {
+                return registro;
+            }
+        }
+    }
+
+    private void insertarEnIndice(String codigo, int registro) {
+        int ocupadas = indice.getInt(8);
+        if ((ocupadas + 1) * 2 > capacidadIndice) {
+            try {
+                reconstruirIndice(capacidadIndice * 2);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            ocupadas = indice.getInt(8);
+        }
+        int mascara = capacidadIndice - 1;
+        int casilla = dispersar(codigo) & mascara;
+        while (true) {
+            int actual = indice.getInt(TAMANO_ENCABEZADO_INDICE + casilla * 4);
+            if (actual == CASILLA_VACIA || actual == CASILLA_BORRADA) {
+                break;
+            }
+            casilla = (casilla + 1) & mascara;
+        }
+        indice.putInt(TAMANO_ENCABEZADO_INDICE + casilla * 4, registro);
+        indice.putInt(8, ocupadas + 1);
+    }
+
+    private void borrarDeIndice(String codigo) {
+        byte[] bytes = codigo.getBytes(StandardCharsets.UTF_8);
+        int mascara = capacidadIndice - 1;
+        for (int casilla = dispersar(codigo) & mascara; ; casilla = (casilla + 1) & mascara) {
+            int posicion = TAMANO_ENCABEZADO_INDICE + casilla * 4;
+            int registro = indice.getInt(posicion);
+            if (registro == CASILLA_VACIA) {
+                return;
+            }
+            // La lápida conserva las cadenas de sondeo; se limpia al reconstruir
+            if (registro != CASILLA_BORRADA && codigoIgual(region(registro), base(registro), bytes)) {
+                indice.putInt(posicion, CASILLA_BORRADA);
+                return;
+            }
+        }
+    }
+
+    private boolean abrirIndice() throws IOException {
+        if (!Files.exists(archivoIndice)) {
+            return false;
+        }
+        try (FileChannel canal = FileChannel.open(archivoIndice, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (canal.size() < TAMANO_ENCABEZADO_INDICE) {
+                return false;
+            }
+            MappedByteBuffer tabla = canal.map(FileChannel.MapMode.READ_WRITE, 0, canal.size());
+            int capacidad = tabla.getInt(4);
+            if (tabla.getInt(0) != MAGIA_INDICE || Integer.bitCount(capacidad) != 1
+                    || canal.size() != TAMANO_ENCABEZADO_INDICE + (long) capacidad * 4) {
+                return false;
+            }
+            indice = tabla;
+            capacidadIndice = capacidad;
+            return true;
+        }
+    }
+
+    /**
+     * Vuelve a armar el índice con la capacidad dada a partir de los registros activos.
+     * Se escribe en un archivo aparte que luego reemplaza al anterior.
+     */
+    private synchronized void reconstruirIndice(int capacidad) throws IOException {
+        Path temporal = archivoIndice.resolveSibling(archivoIndice.getFileName() + ".tmp");
+        Files.deleteIfExists(temporal);
+        MappedByteBuffer tabla;
+        try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            tabla = canal.map(FileChannel.MapMode.READ_WRITE, 0, TAMANO_ENCABEZADO_INDICE + (long) capacidad * 4);
+        }
+        tabla.putInt(0, MAGIA_INDICE);
+        tabla.putInt(4, capacidad);
+
+        int ocupadas = 0;
+        int mascara = capacidad - 1;
+        int usados = getRegistrosUsados();
+        for (int registro = 1; registro < usados; registro++) {
+            ByteBuffer region = region(registro);
+            int base = base(registro);
+            if (region.get(base + POS_ESTADO) != ACTIVO) {
+                continue;
+            }
+            int casilla = dispersar(leerCodigo(region, base)) & mascara;
+            while (tabla.getInt(TAMANO_ENCABEZADO_INDICE + casilla * 4) != CASILLA_VACIA) {
+                casilla = (casilla + 1) & mascara;
+            }
+            tabla.putInt(TAMANO_ENCABEZADO_INDICE + casilla * 4, registro);
+            ocupadas++;
+        }
+        tabla.putInt(8, ocupadas);
+        tabla.force();
+
+        Files.move(temporal, archivoIndice, java.nio.file.StandardCopyOption.REPLACE_EXISTING,
+                java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+        // Las búsquedas en curso terminan sobre la tabla anterior, que sigue mapeada
+        capacidadIndice = capacidad;
+        indice = tabla;
+    }
+
+    private static int dispersar(String codigo) {
+        int h = codigo.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Totales del catálogo devueltos por {@link #getResumen()}
+     */
+    public static final class Resumen {
+        private final long unidades;
+        private final int articulosDisponibles;
+        private final Map<String, Integer> articulosPorPlanta;
+
+        private Resumen(long unidades, int articulosDisponibles, Map<String, Integer> articulosPorPlanta) {
+            this.unidades = unidades;
+            this.articulosDisponibles = articulosDisponibles;
+            this.articulosPorPlanta = articulosPorPlanta;
+        }
+
+        public long getUnidades() {
+            return unidades;
+        }
+
+        public int getArticulosDisponibles() {
+            return articulosDisponibles;
+        }
+
+        /**
+         * Cantidad de artículos por nombre de planta
+         */
+        public Map<String, Integer> getArticulosPorPlanta() {
+            return articulosPorPlanta;
+        }
+    }
+}
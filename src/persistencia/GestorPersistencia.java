@@ -0,0 +1,259 @@
+package persistencia;
+
+import servicio.*;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Coordina el registro de eventos y las instantáneas en el directorio de datos
+ *
+ * Los archivos se numeran por generación: {@code instantanea-N.bin} es el
+ * estado completo justo antes del primer evento de {@code eventos-N.log}.
+ * Al iniciar se carga la instantánea válida más reciente y se reproducen solo
+ * los registros de su generación en adelante, de modo que el tiempo de
+ * arranque depende del intervalo entre instantáneas y no de la antigüedad
+ * del sistema.
+ *
+ * Para tomar una instantánea las operaciones se detienen solo mientras el
+ * registro rota a la generación siguiente. La instantánea no se copia de los
+ * servicios en uso: en segundo plano se carga la instantánea anterior en
+ * servicios propios, se le reproducen los registros ya cerrados y eso es lo
+ * que se codifica y escribe, con la toma de pedidos ya reanudada. Así la
+ * pausa no depende del tamaño del estado.
+ */
+public class GestorPersistencia implements Closeable {
+    private static final Pattern ARCHIVO_INSTANTANEA = Pattern.compile("instantanea-(\\d+)\\.bin");
+    private static final Pattern ARCHIVO_EVENTOS = Pattern.compile("eventos-(\\d+)\\.log");
+
+    private final Path directorio;
+    private final ClienteServicio clienteServicio;
+    private final ArticuloServicio articuloServicio;
+    private final PedidoServicio pedidoServicio;
+    private final ScheduledExecutorService programador;
+    private final AtomicBoolean instantaneaEnCurso = new AtomicBoolean();
+
+    private RegistroEventos registro;
+    private volatile long generacion;
+    // Generación de la instantánea vigente, o -1 si todavía no hay ninguna
+    private volatile long generacionInstantanea = -1;
+
+    public GestorPersistencia(Path directorio, ClienteServicio clienteServicio,
+                              ArticuloServicio articuloServicio, PedidoServicio pedidoServicio) {
+        this.directorio = directorio;
+        this.clienteServicio = clienteServicio;
+        this.articuloServicio = articuloServicio;
+        this.pedidoServicio = pedidoServicio;
+        this.programador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "instantaneas");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    /**
+     * Recupera el estado guardado, conecta el registro de eventos a los
+     * servicios y programa instantáneas periódicas
+     *
+     * @return true si se recuperaron datos de una ejecución anterior
+     */
+    public boolean iniciar(long intervaloInstantaneasMinutos) throws IOException {
+        Files.createDirectories(directorio);
+
+        boolean hayDatos = false;
+        long generacionBase = cargarInstantaneaMasReciente(clienteServicio, articuloServicio, pedidoServicio);
+        if (generacionBase >= 0) {
+            hayDatos = true;
+            generacionInstantanea = generacionBase;
+            System.out.println("Instantánea cargada: generación " + generacionBase);
+        } else {
+            generacionBase = 0;
+        }
+
+        int eventos = 0;
+        long ultimaGeneracion = generacionBase;
+        for (long generacionRegistro : generaciones(ARCHIVO_EVENTOS)) {
+            if (generacionRegistro < generacionBase) {
+                continue;
+            }
+            eventos += RecuperacionEventos.reproducir(archivoEventos(generacionRegistro),
+                    clienteServicio, articuloServicio, pedidoServicio);
+            ultimaGeneracion = generacionRegistro;
+        }
+        if (eventos > 0) {
+            hayDatos = true;
+            System.out.println("Registro de eventos: " + eventos + " eventos reproducidos");
+        }
+
+        generacion = ultimaGeneracion;
+        borrarAnteriores(generacionBase);
+
+        registro = new RegistroEventos(archivoEventos(generacion));
+        clienteServicio.setRegistroEventos(registro);
+        articuloServicio.setRegistroEventos(registro);
+        pedidoServicio.setRegistroEventos(registro);
+
+        // Si hubo que reproducir eventos, la próxima vez no deberá repetirse
+        if (eventos > 0) {
+            programador.execute(this::tomarInstantaneaProgramada);
+        }
+        programador.scheduleWithFixedDelay(this::tomarInstantaneaProgramada,
+                intervaloInstantaneasMinutos, intervaloInstantaneasMinutos, TimeUnit.MINUTES);
+        return hayDatos;
+    }
+
+    /**
+     * Toma una instantánea del estado actual y descarta los archivos que deja obsoletos
+     */
+    public void tomarInstantanea() throws IOException {
+        if (!instantaneaEnCurso.compareAndSet(false, true)) {
+            return; // Ya hay una en curso
+        }
+        try {
+            long nuevaGeneracion = generacion + 1;
+
+            // Única pausa: cerrar la generación actual del registro
+            registro.bloquearOperaciones();
+            try {
+                registro.rotar(archivoEventos(nuevaGeneracion));
+                generacion = nuevaGeneracion;
+            } finally {
+                registro.desbloquearOperaciones();
+            }
+            byte[] contenido = reconstruir(nuevaGeneracion);
+
+            // Escritura atómica: archivo temporal, fsync y renombrado
+            Path destino = archivoInstantanea(nuevaGeneracion);
+            Path temporal = directorio.resolve(destino.getFileName() + ".tmp");
+            Files.write(temporal, contenido);
+            try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.WRITE)) {
+                canal.force(true);
+            }
+            Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE);
+            generacionInstantanea = nuevaGeneracion;
+
+            borrarAnteriores(nuevaGeneracion);
+        } finally {
+            instantaneaEnCurso.set(false);
+        }
+    }
+
+    /**
+     * Detiene las instantáneas y cierra el registro de eventos
+     */
+    @Override
+    public void close() throws IOException {
+        programador.shutdown();
+        try {
+            programador.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (registro != null) {
+            registro.close();
+        }
+    }
+
+    private void tomarInstantaneaProgramada() {
+        try {
+            tomarInstantanea();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error al tomar la instantánea: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Estado al comienzo de una generación, reconstruido en servicios propios
+     * a partir de la instantánea vigente y de los registros ya cerrados; no
+     * toca los servicios en uso
+     */
+    private byte[] reconstruir(long nuevaGeneracion) throws IOException {
+        ClienteServicio clientes = new ClienteServicio();
+        ArticuloServicio articulos = new ArticuloServicio();
+        PedidoServicio pedidos = new PedidoServicio(clientes, articulos);
+
+        long base = generacionInstantanea;
+        if (base >= 0) {
+            byte[] anterior = Files.readAllBytes(archivoInstantanea(base));
+            // Sus registros anteriores ya se borraron: no hay otra de donde partir
+            if (!Instantanea.esValida(anterior)) {
+                throw new IOException("Instantánea dañada: " + archivoInstantanea(base).getFileName());
+            }
+            Instantanea.cargar(anterior, clientes, articulos, pedidos);
+        } else {
+            base = 0;
+        }
+        for (long generacionRegistro : generaciones(ARCHIVO_EVENTOS)) {
+            if (generacionRegistro >= base && generacionRegistro < nuevaGeneracion) {
+                RecuperacionEventos.reproducir(archivoEventos(generacionRegistro), clientes, articulos, pedidos);
+            }
+        }
+        return Instantanea.capturar(clientes, articulos, pedidos);
+    }
+
+    /**
+     * Carga la instantánea válida más reciente
+     *
+     * @return su generación, o -1 si no hay ninguna utilizable
+     */
+    private long cargarInstantaneaMasReciente(ClienteServicio clientes, ArticuloServicio articulos,
+                                              PedidoServicio pedidos) throws IOException {
+        List<Long> disponibles = generaciones(ARCHIVO_INSTANTANEA);
+        for (int i = disponibles.size() - 1; i >= 0; i--) {
+            long candidata = disponibles.get(i);
+            byte[] contenido = Files.readAllBytes(archivoInstantanea(candidata));
+            if (Instantanea.esValida(contenido)) {
+                Instantanea.cargar(contenido, clientes, articulos, pedidos);
+                return candidata;
+            }
+            System.out.println("Instantánea dañada, se ignora: " + archivoInstantanea(candidata).getFileName());
+        }
+        return -1;
+    }
+
+    /**
+     * Borra instantáneas y registros de generaciones anteriores a la indicada
+     */
+    private void borrarAnteriores(long generacionVigente) throws IOException {
+        for (long anterior : generaciones(ARCHIVO_INSTANTANEA)) {
+            if (anterior < generacionVigente) {
+                Files.deleteIfExists(archivoInstantanea(anterior));
+            }
+        }
+        for (long anterior : generaciones(ARCHIVO_EVENTOS)) {
+            if (anterior < generacionVigente) {
+                Files.deleteIfExists(archivoEventos(anterior));
+            }
+        }
+    }
+
+    private List<Long> generaciones(Pattern patron) throws IOException {
+        List<Long> resultado = new ArrayList<>();
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio)) {
+            for (Path archivo : archivos) {
+                Matcher coincidencia = patron.matcher(archivo.getFileName().toString());
+                if (coincidencia.matches()) {
+                    resultado.add(Long.parseLong(coincidencia.group(1)));
+                }
+            }
+        }
+        Collections.sort(resultado);
+        return resultado;
+    }
+
+    private Path archivoInstantanea(long numero) {
+        return directorio.resolve("instantanea-" + numero + ".bin");
+    }
+
+    private Path archivoEventos(long numero) {
+        return directorio.resolve("eventos-" + numero + ".log");
+    }
+}
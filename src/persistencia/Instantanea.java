@@ -0,0 +1,248 @@
+package persistencia;
+
+import modelo.*;
+import servicio.*;
+import java.io.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Formato binario de las instantáneas del estado completo
+ *
+ * El archivo guarda tablas de plantas, clientes y artículos, y los pedidos
+ * se refieren a ellos por su posición en esas tablas. Al cargar, cada pedido
+ * vuelve a apuntar al mismo objeto {@code Cliente} compartido y cada línea al
+ * mismo {@code Articulo}, igual que en memoria. Clientes o artículos dados de
+ * baja que siguen referenciados por pedidos se guardan marcados como no
+ * registrados, para no perder esas referencias.
+ *
+ * Estructura: [MAGIA][VERSION][plantas][clientes][artículos][pedidos][crc32]
+ *
+ * Los importes van en centavos ({@code long}) y el descuento en puntos
+ * básicos. Cada línea guarda sus despachos (planta y cantidad) para que una
+ * cancelación posterior devuelva el stock a las mismas plantas.
+ */
+final class Instantanea {
+    private static final int MAGIA = 0x53475049; // "SGPI"
+    private static final int VERSION = 1;
+
+    private Instantanea() {
+    }
+
+    /**
+     * Codifica el estado de los servicios. El llamador garantiza que nadie
+     * los modifica mientras se ejecuta; {@link GestorPersistencia} le pasa
+     * servicios propios, reconstruidos desde el disco.
+     */
+    static byte[] capturar(ClienteServicio clienteServicio, ArticuloServicio articuloServicio,
+                           PedidoServicio pedidoServicio) throws IOException {
+        List<Pedido> pedidos = pedidoServicio.listarPedidos();
+        pedidos.sort(Comparator.comparing(Pedido::getNumeroPedido));
+
+        // Tablas de referencias: primero lo registrado, luego lo que solo usan los pedidos
+        Map<Cliente, Integer> indiceClientes = new IdentityHashMap<>();
+        List<Cliente> clientes = new ArrayList<>();
+        Set<Cliente> clientesRegistrados = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Cliente cliente : clienteServicio.getClientes()) {
+            agregarReferencia(cliente, clientes, indiceClientes);
+            clientesRegistrados.add(cliente);
+        }
+
+        Map<Articulo, Integer> indiceArticulos = new IdentityHashMap<>();
+        List<Articulo> articulos = new ArrayList<>();
+        Set<Articulo> articulosRegistrados = Collections.newSetFromMap(new IdentityHashMap<>());
+        articuloServicio.recorrerArticulos(articulo -> {
+            agregarReferencia(articulo, articulos, indiceArticulos);
+            articulosRegistrados.add(articulo);
+        });
+
+        for (Pedido pedido : pedidos) {
+            agregarReferencia(pedido.getCliente(), clientes, indiceClientes);
+            for (DetallePedido detalle : pedido.getDetalles()) {
+                agregarReferencia(detalle.getArticulo(), articulos, indiceArticulos);
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+        DataOutputStream salida = new DataOutputStream(bytes);
+        salida.writeInt(MAGIA);
+        salida.writeInt(VERSION);
+
+        // Plantas: los artículos las referencian por su id actual
+        int cantidadPlantas = RegistroPlantas.getCantidadPlantas();
+        salida.writeInt(cantidadPlantas);
+        for (int plantaId = 0; plantaId < cantidadPlantas; plantaId++) {
+            salida.writeUTF(RegistroPlantas.getNombre(plantaId));
+        }
+
+        salida.writeInt(clientes.size());
+        for (Cliente cliente : clientes) {
+            salida.writeBoolean(clientesRegistrados.contains(cliente));
+            // Las direcciones se editan con el cliente bloqueado
+            synchronized (cliente) {
+                salida.writeUTF(cliente.getCodigo());
+                salida.writeUTF(cliente.getNombre());
+                salida.writeLong(cliente.getLimiteCreditoCentavos());
+                salida.writeInt(cliente.getDescuentoPuntosBasicos());
+                salida.writeLong(cliente.getSaldoCentavos());
+                List<String> direcciones = cliente.getDireccionesEnvio();
+                salida.writeInt(direcciones.size());
+                for (String direccion : direcciones) {
+                    salida.writeUTF(direccion);
+                }
+            }
+        }
+
+        salida.writeInt(articulos.size());
+        for (Articulo articulo : articulos) {
+            salida.writeBoolean(articulosRegistrados.contains(articulo));
+            salida.writeUTF(articulo.getCodigo());
+            salida.writeUTF(articulo.getNombre());
+            salida.writeUTF(articulo.getDescripcion() != null ? articulo.getDescripcion() : "");
+            salida.writeLong(articulo.getPrecioCentavos());
+            int plantasArticulo = articulo.getCantidadPlantas();
+            salida.writeInt(plantasArticulo);
+            for (int i = 0; i < plantasArticulo; i++) {
+                int plantaId = articulo.getPlantaId(i);
+                salida.writeInt(plantaId);
+                salida.writeInt(articulo.getCantidad(plantaId));
+                salida.writeInt(articulo.getStockMinimo(plantaId));
+            }
+        }
+
+        salida.writeInt(pedidos.size());
+        for (Pedido pedido : pedidos) {
+            salida.writeUTF(pedido.getNumeroPedido());
+            salida.writeInt(indiceClientes.get(pedido.getCliente()));
+            salida.writeUTF(pedido.getDireccionEnvio());
+            salida.writeLong(pedido.getFechaPedido().toEpochDay());
+            salida.writeByte(pedido.getEstado().ordinal());
+            salida.writeLong(pedido.getMontoTotalCentavos());
+            List<DetallePedido> detalles = pedido.getDetalles();
+            salida.writeInt(detalles.size());
+            for (DetallePedido detalle : detalles) {
+                salida.writeInt(indiceArticulos.get(detalle.getArticulo()));
+                salida.writeInt(detalle.getCantidadOrdenada());
+                salida.writeInt(detalle.getCantidadPendiente());
+                salida.writeLong(detalle.getPrecioUnitarioCentavos());
+                salida.writeInt(detalle.getCantidadDespachos());
+                for (int p = 0; p < detalle.getCantidadDespachos(); p++) {
+                    salida.writeInt(detalle.getPlantaDespacho(p));
+                    salida.writeInt(detalle.getCantidadDespachada(p));
+                }
+            }
+        }
+
+        salida.flush();
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        salida.writeInt((int) crc.getValue());
+        salida.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Verifica la integridad del contenido antes de tocar los servicios
+     */
+    static boolean esValida(byte[] datos) {
+        if (datos.length < 12) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(datos, 0, datos.length - 4);
+        int esperado = ((datos[datos.length - 4] & 0xff) << 24) | ((datos[datos.length - 3] & 0xff) << 16)
+                | ((datos[datos.length - 2] & 0xff) << 8) | (datos[datos.length - 1] & 0xff);
+        return (int) crc.getValue() == esperado;
+    }
+
+    /**
+     * Carga una instantánea válida en servicios vacíos
+     */
+    static void cargar(byte[] datos, ClienteServicio clienteServicio, ArticuloServicio articuloServicio,
+                       PedidoServicio pedidoServicio) throws IOException {
+        DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(datos, 0, datos.length - 4));
+        if (entrada.readInt() != MAGIA) {
+            throw new IOException("El archivo no es una instantánea del sistema");
+        }
+        int version = entrada.readInt();
+        if (version != VERSION) {
+            throw new IOException("Versión de instantánea no soportada: " + version);
+        }
+
+        String[] plantas = new String[entrada.readInt()];
+        for (int i = 0; i < plantas.length; i++) {
+            plantas[i] = entrada.readUTF();
+        }
+
+        Cliente[] clientes = new Cliente[entrada.readInt()];
+        for (int i = 0; i < clientes.length; i++) {
+            boolean registrado = entrada.readBoolean();
+            Cliente cliente = new Cliente(entrada.readUTF(), entrada.readUTF(), 0, 0);
+            cliente.setLimiteCreditoCentavos(entrada.readLong());
+            cliente.setDescuentoPuntosBasicos(entrada.readInt());
+            cliente.setSaldoCentavos(entrada.readLong());
+            int cantidadDirecciones = entrada.readInt();
+            List<String> direcciones = new ArrayList<>(cantidadDirecciones);
+            for (int d = 0; d < cantidadDirecciones; d++) {
+                direcciones.add(entrada.readUTF());
+            }
+            cliente.setDireccionesEnvio(direcciones);
+            clientes[i] = cliente;
+            if (registrado) {
+                clienteServicio.agregarCliente(cliente);
+            }
+        }
+
+        Articulo[] articulos = new Articulo[entrada.readInt()];
+        for (int i = 0; i < articulos.length; i++) {
+            boolean registrado = entrada.readBoolean();
+            Articulo articulo = new Articulo(entrada.readUTF(), entrada.readUTF(), entrada.readUTF(), 0);
+            articulo.setPrecioCentavos(entrada.readLong());
+            int plantasArticulo = entrada.readInt();
+            for (int p = 0; p < plantasArticulo; p++) {
+                String planta = plantas[entrada.readInt()];
+                articulo.agregarPlanta(planta, entrada.readInt(), entrada.readInt());
+            }
+            articulos[i] = articulo;
+            if (registrado) {
+                articuloServicio.agregarArticulo(articulo);
+            }
+        }
+
+        EstadoPedido[] estados = EstadoPedido.values();
+        int cantidadPedidos = entrada.readInt();
+        for (int i = 0; i < cantidadPedidos; i++) {
+            String numeroPedido = entrada.readUTF();
+            Cliente cliente = clientes[entrada.readInt()];
+            Pedido pedido = new Pedido(numeroPedido, cliente, entrada.readUTF());
+            pedido.setFechaPedido(LocalDate.ofEpochDay(entrada.readLong()));
+            EstadoPedido estado = estados[entrada.readByte()];
+            long montoTotal = entrada.readLong();
+
+            int cantidadDetalles = entrada.readInt();
+            for (int d = 0; d < cantidadDetalles; d++) {
+                Articulo articulo = articulos[entrada.readInt()];
+                DetallePedido detalle = pedido.agregarDetalle(articulo, entrada.readInt());
+                detalle.setCantidadPendiente(entrada.readInt());
+                detalle.setPrecioUnitarioCentavos(entrada.readLong());
+                int cantidadDespachos = entrada.readInt();
+                for (int p = 0; p < cantidadDespachos; p++) {
+                    int plantaId = RegistroPlantas.obtenerId(plantas[entrada.readInt()]);
+                    detalle.registrarDespacho(plantaId, entrada.readInt());
+                }
+            }
+            // El estado y el monto se restauran tal cual, sin recalcular
+            pedido.setEstado(estado);
+            pedido.setMontoTotalCentavos(montoTotal);
+            pedidoServicio.restaurarPedido(pedido);
+        }
+    }
+
+    private static <T> void agregarReferencia(T objeto, List<T> tabla, Map<T, Integer> indice) {
+        if (!indice.containsKey(objeto)) {
+            indice.put(objeto, tabla.size());
+            tabla.add(objeto);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package persistencia;
+
+import modelo.*;
+import servicio.*;
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Reconstruye el estado en memoria reproduciendo el registro de eventos
+ *
+ * Los eventos se aplican en orden llamando a los mismos métodos de los
+ * servicios que los generaron, con el registro aún sin conectar para no
+ * volver a anexarlos. Si el último registro quedó a medio escribir por una
+ * caída, se descarta y el archivo se recorta hasta el último registro válido.
+ */
+public final class RecuperacionEventos {
+
+    private RecuperacionEventos() {
+    }
+
+    /**
+     * Reproduce el archivo completo sobre los servicios
+     *
+     * @return cantidad de eventos aplicados
+     */
+    public static int reproducir(Path archivo, ClienteServicio clienteServicio,
+                                 ArticuloServicio articuloServicio, PedidoServicio pedidoServicio) throws IOException {
+        if (!Files.exists(archivo)) {
+            return 0;
+        }
+
+        int aplicados = 0;
+        long posicionValida = 0;
+        long tamanoArchivo = Files.size(archivo);
+
+        try (DataInputStream entrada = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(archivo), 1 << 16))) {
+            while (posicionValida + RegistroEventos.TAMANO_ENCABEZADO <= tamanoArchivo) {
+                int longitud = entrada.readInt();
+                int crcEsperado = entrada.readInt();
+                long fin = posicionValida + RegistroEventos.TAMANO_ENCABEZADO + longitud;
+                if (longitud <= 0 || fin > tamanoArchivo) {
+                    break; // Registro incompleto al final del archivo
+                }
+
+                byte[] contenido = new byte[longitud];
+                entrada.readFully(contenido);
+                CRC32 crc = new CRC32();
+                crc.update(contenido, 0, longitud);
+                if ((int) crc.getValue() != crcEsperado) {
+                    break; // Registro dañado: se descarta junto con lo que sigue
+                }
+
+                aplicar(contenido, clienteServicio, articuloServicio, pedidoServicio);
+                aplicados++;
+                posicionValida = fin;
+            }
+        }
+
+        if (posicionValida < tamanoArchivo) {
+            System.out.println("Registro de eventos: se descartan " + (tamanoArchivo - posicionValida)
+                    + " bytes incompletos al final del archivo");
+            try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.WRITE)) {
+                canal.truncate(posicionValida);
+                canal.force(true);
+            }
+        }
+
+        return aplicados;
+    }
+
+    private static void aplicar(byte[] contenido, ClienteServicio clienteServicio,
+                                ArticuloServicio articuloServicio, PedidoServicio pedidoServicio) throws IOException {
+        DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(contenido));
+        byte tipo = entrada.readByte();
+
+        switch (tipo) {
+            case RegistroEventos.CLIENTE_GUARDADO:
+                aplicarClienteGuardado(entrada, clienteServicio);
+                break;
+            case RegistroEventos.CLIENTE_ELIMINADO:
+                clienteServicio.eliminarCliente(entrada.readUTF());
+                break;
+            case RegistroEventos.ARTICULO_GUARDADO:
+                aplicarArticuloGuardado(entrada, articuloServicio);
+                break;
+            case RegistroEventos.ARTICULO_ELIMINADO:
+                articuloServicio.eliminarArticulo(entrada.readUTF());
+                break;
+            case RegistroEventos.PLANTA_AGREGADA:
+                articuloServicio.agregarPlanta(entrada.readUTF(), entrada.readUTF(),
+                        entrada.readInt(), entrada.readInt());
+                break;
+            case RegistroEventos.STOCK_AJUSTADO:
+                articuloServicio.actualizarStock(entrada.readUTF(), entrada.readUTF(), entrada.readInt());
+                break;
+            case RegistroEventos.STOCK_ESTABLECIDO:
+                articuloServicio.establecerStock(entrada.readUTF(), entrada.readUTF(), entrada.readInt());
+                break;
+            case RegistroEventos.PEDIDO_CREADO:
+                pedidoServicio.restaurarPedido(entrada.readUTF(), entrada.readUTF(), entrada.readUTF(),
+                        LocalDate.ofEpochDay(entrada.readLong()));
+                break;
+            case RegistroEventos.DETALLE_AGREGADO:
+                pedidoServicio.agregarDetallePedido(entrada.readUTF(), entrada.readUTF(), entrada.readInt());
+                break;
+            case RegistroEventos.PEDIDO_PROCESADO: {
+                String numeroPedido = entrada.readUTF();
+                if (!pedidoServicio.procesarPedido(numeroPedido)) {
+                    System.out.println("Registro de eventos: el pedido " + numeroPedido
+                            + " no pudo volver a procesarse");
+                }
+                break;
+            }
+            case RegistroEventos.PEDIDO_CANCELADO:
+                pedidoServicio.cancelarPedido(entrada.readUTF());
+                break;
+            case RegistroEventos.ESTADO_CAMBIADO:
+                pedidoServicio.cambiarEstadoPedido(entrada.readUTF(), EstadoPedido.valueOf(entrada.readUTF()));
+                break;
+            default:
+                throw new IOException("Tipo de evento desconocido en el registro: " + tipo);
+        }
+    }
+
+    private static void aplicarClienteGuardado(DataInputStream entrada, ClienteServicio clienteServicio)
+            throws IOException {
+        String codigo = entrada.readUTF();
+        String nombre = entrada.readUTF();
+        long limiteCredito = entrada.readLong();
+        int descuentoPuntosBasicos = entrada.readInt();
+        long saldo = entrada.readLong();
+        int cantidadDirecciones = entrada.readInt();
+        List<String> direcciones = new ArrayList<>(cantidadDirecciones);
+        for (int i = 0; i < cantidadDirecciones; i++) {
+            direcciones.add(entrada.readUTF());
+        }
+
+        Cliente cliente = clienteServicio.buscarCliente(codigo);
+        boolean nuevo = cliente == null;
+        if (nuevo) {
+            cliente = new Cliente(codigo, nombre, 0, 0);
+        }
+        cliente.setNombre(nombre);
+        cliente.setLimiteCreditoCentavos(limiteCredito);
+        cliente.setDescuentoPuntosBasicos(descuentoPuntosBasicos);
+        cliente.setSaldoCentavos(saldo);
+        cliente.setDireccionesEnvio(direcciones);
+
+        if (nuevo) {
+            clienteServicio.agregarCliente(cliente);
+        } else {
+            clienteServicio.actualizarCliente(cliente);
+        }
+    }
+
+    private static void aplicarArticuloGuardado(DataInputStream entrada, ArticuloServicio articuloServicio)
+            throws IOException {
+        String codigo = entrada.readUTF();
+        String nombre = entrada.readUTF();
+        String descripcion = entrada.readUTF();
+        long precio = entrada.readLong();
+
+        Articulo articulo = articuloServicio.buscarArticulo(codigo);
+        boolean nuevo = articulo == null;
+        if (nuevo) {
+            articulo = new Articulo(codigo, nombre, descripcion, 0);
+        }
+        articulo.setNombre(nombre);
+        articulo.setDescripcion(descripcion);
+        articulo.setPrecioCentavos(precio);
+
+        int cantidadPlantas = entrada.readInt();
+        for (int i = 0; i < cantidadPlantas; i++) {
+            articulo.agregarPlanta(entrada.readUTF(), entrada.readInt(), entrada.readInt());
+        }
+
+        if (nuevo) {
+            articuloServicio.agregarArticulo(articulo);
+        } else {
+            articuloServicio.actualizarArticulo(articulo);
+        }
+    }
+}
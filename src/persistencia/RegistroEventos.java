@@ -0,0 +1,382 @@
+package persistencia;
+
+import modelo.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Registro de escritura anticipada (write-ahead log) de las operaciones de los servicios
+ *
+ * Cada operación que modifica datos se anexa como un registro binario
+ * [longitud][crc32][contenido]. Los servicios anexan mientras tienen tomados
+ * los bloqueos de la operación, de modo que el orden del archivo coincide con
+ * el orden real en que se aplicaron los cambios en conflicto, y al terminar
+ * esperan a que el registro sea durable con {@link #esperarDurabilidad()}.
+ *
+ * Escritura agrupada (group commit): anexar solo copia bytes a un búfer en
+ * memoria; un hilo escritor vacía el búfer completo al disco con un único
+ * {@code force} y despierta a todos los hilos que esperaban esa escritura.
+ * Con mucha carga, un solo fsync confirma cientos de operaciones.
+ *
+ * Cada operación de los servicios se ejecuta entre {@link #iniciarOperacion()}
+ * y {@link #terminarOperacion()}. Para tomar una instantánea se cierra esa
+ * barrera un instante: el estado en memoria queda exactamente en la posición
+ * del registro en que se rota a un archivo nuevo.
+ */
+public class RegistroEventos implements Closeable {
+    // Tipos de evento; los códigos se escriben en disco y no deben cambiar
+    static final byte CLIENTE_GUARDADO = 1;    // Importes en centavos, descuento en puntos básicos
+    static final byte CLIENTE_ELIMINADO = 2;
+    static final byte ARTICULO_GUARDADO = 3;   // Precio en centavos
+    static final byte ARTICULO_ELIMINADO = 4;
+    static final byte PLANTA_AGREGADA = 5;
+    static final byte STOCK_AJUSTADO = 6;
+    static final byte STOCK_ESTABLECIDO = 7;
+    static final byte PEDIDO_CREADO = 8;
+    static final byte DETALLE_AGREGADO = 9;
+    static final byte PEDIDO_PROCESADO = 10;
+    static final byte PEDIDO_CANCELADO = 11;
+    static final byte ESTADO_CAMBIADO = 12;
+
+    static final int TAMANO_ENCABEZADO = 8;
+
+    private static final RegistroEventos DESACTIVADO = new RegistroEventos();
+
+    private final boolean activo;
+    private final Thread escritor;
+    private final ThreadLocal<long[]> ultimaSecuenciaDelHilo = ThreadLocal.withInitial(() -> new long[1]);
+    private final ReentrantReadWriteLock barrera = new ReentrantReadWriteLock();
+
+    // Protegidos por this
+    private FileChannel canal;
+    private ByteArrayOutputStream pendientes = new ByteArrayOutputStream();
+    private long ultimaSecuencia;
+    private long secuenciaDurable;
+    private boolean cerrado;
+    // Lo escribe el hilo escritor al fallar; se lee sin el monitor al iniciar cada operación
+    private volatile IOException error;
+
+    private RegistroEventos() {
+        this.activo = false;
+        this.escritor = null;
+    }
+
+    /**
+     * Abre el archivo de registro (lo crea si no existe) para anexar al final
+     */
+    public RegistroEventos(Path archivo) throws IOException {
+        this.activo = true;
+        this.canal = abrir(archivo);
+        this.escritor = new Thread(this::ciclarEscritura, "registro-eventos");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+    }
+
+    /**
+     * Registro que no escribe nada; es el valor por defecto de los servicios
+     */
+    public static RegistroEventos desactivado() {
+        return DESACTIVADO;
+    }
+
+    // Eventos de clientes
+
+    public void clienteGuardado(Cliente cliente) {
+        anexar(CLIENTE_GUARDADO, salida -> {
+            salida.writeUTF(cliente.getCodigo());
+            salida.writeUTF(cliente.getNombre());
+            salida.writeLong(cliente.getLimiteCreditoCentavos());
+            salida.writeInt(cliente.getDescuentoPuntosBasicos());
+            salida.writeLong(cliente.getSaldoCentavos());
+            List<String> direcciones = cliente.getDireccionesEnvio();
+            salida.writeInt(direcciones.size());
+            for (String direccion : direcciones) {
+                salida.writeUTF(direccion);
+            }
+        });
+    }
+
+    public void clienteEliminado(String codigo) {
+        anexar(CLIENTE_ELIMINADO, salida -> salida.writeUTF(codigo));
+    }
+
+    // Eventos de artículos
+
+    public void articuloGuardado(Articulo articulo) {
+        anexar(ARTICULO_GUARDADO, salida -> {
+            salida.writeUTF(articulo.getCodigo());
+            salida.writeUTF(articulo.getNombre());
+            salida.writeUTF(articulo.getDescripcion() != null ? articulo.getDescripcion() : "");
+            salida.writeLong(articulo.getPrecioCentavos());
+            int cantidadPlantas = articulo.getCantidadPlantas();
+            salida.writeInt(cantidadPlantas);
+            for (int i = 0; i < cantidadPlantas; i++) {
+                int plantaId = articulo.getPlantaId(i);
+                // Se guarda el nombre: los ids de planta pueden cambiar entre ejecuciones
+                salida.writeUTF(RegistroPlantas.getNombre(plantaId));
+                salida.writeInt(articulo.getCantidad(plantaId));
+                salida.writeInt(articulo.getStockMinimo(plantaId));
+            }
+        });
+    }
+
+    public void articuloEliminado(String codigo) {
+        anexar(ARTICULO_ELIMINADO, salida -> salida.writeUTF(codigo));
+    }
+
+    public void plantaAgregada(String codigoArticulo, String planta, int cantidadInicial, int stockMinimo) {
+        anexar(PLANTA_AGREGADA, salida -> {
+            salida.writeUTF(codigoArticulo);
+            salida.writeUTF(planta);
+            salida.writeInt(cantidadInicial);
+            salida.writeInt(stockMinimo);
+        });
+    }
+
+    public void stockAjustado(String codigoArticulo, String planta, int cantidad) {
+        anexar(STOCK_AJUSTADO, salida -> {
+            salida.writeUTF(codigoArticulo);
+            salida.writeUTF(planta);
+            salida.writeInt(cantidad);
+        });
+    }
+
+    public void stockEstablecido(String codigoArticulo, String planta, int cantidad) {
+        anexar(STOCK_ESTABLECIDO, salida -> {
+            salida.writeUTF(codigoArticulo);
+            salida.writeUTF(planta);
+            salida.writeInt(cantidad);
+        });
+    }
+
+    // Eventos de pedidos
+
+    public void pedidoCreado(Pedido pedido) {
+        anexar(PEDIDO_CREADO, salida -> {
+            salida.writeUTF(pedido.getNumeroPedido());
+            salida.writeUTF(pedido.getCliente().getCodigo());
+            salida.writeUTF(pedido.getDireccionEnvio());
+            salida.writeLong(pedido.getFechaPedido().toEpochDay());
+        });
+    }
+
+    public void detalleAgregado(String numeroPedido, String codigoArticulo, int cantidad) {
+        anexar(DETALLE_AGREGADO, salida -> {
+            salida.writeUTF(numeroPedido);
+            salida.writeUTF(codigoArticulo);
+            salida.writeInt(cantidad);
+        });
+    }
+
+    public void pedidoProcesado(String numeroPedido) {
+        anexar(PEDIDO_PROCESADO, salida -> salida.writeUTF(numeroPedido));
+    }
+
+    public void pedidoCancelado(String numeroPedido) {
+        anexar(PEDIDO_CANCELADO, salida -> salida.writeUTF(numeroPedido));
+    }
+
+    public void estadoCambiado(String numeroPedido, EstadoPedido estado) {
+        anexar(ESTADO_CAMBIADO, salida -> {
+            salida.writeUTF(numeroPedido);
+            salida.writeUTF(estado.name());
+        });
+    }
+
+    /**
+     * Marca el inicio de una operación que modifica datos. Debe llamarse antes
+     * de tomar cualquier otro bloqueo; admite llamadas anidadas.
+     *
+     * @throws UncheckedIOException si el registro ya no puede escribir; la
+     *         operación se rechaza antes de modificar nada
+     */
+    public void iniciarOperacion() {
+        if (activo) {
+            barrera.readLock().lock();
+            if (error != null) {
+                barrera.readLock().unlock();
+                throw new UncheckedIOException("No se pudo escribir el registro de eventos", error);
+            }
+        }
+    }
+
+    public void terminarOperacion() {
+        if (activo) {
+            barrera.readLock().unlock();
+        }
+    }
+
+    /**
+     * Detiene las operaciones nuevas y espera a que terminen las que están en curso
+     */
+    void bloquearOperaciones() {
+        barrera.writeLock().lock();
+    }
+
+    void desbloquearOperaciones() {
+        barrera.writeLock().unlock();
+    }
+
+    /**
+     * Termina de escribir lo pendiente en el archivo actual y continúa en uno nuevo.
+     * Se llama con las operaciones bloqueadas.
+     */
+    void rotar(Path nuevoArchivo) throws IOException {
+        synchronized (this) {
+            esperarSecuencia(ultimaSecuencia);
+            FileChannel anterior = canal;
+            canal = abrir(nuevoArchivo);
+            anterior.close();
+        }
+    }
+
+    /**
+     * Espera a que todo lo anexado por el hilo actual esté en disco.
+     * Debe llamarse después de soltar los bloqueos de la operación.
+     */
+    public void esperarDurabilidad() {
+        if (!activo) {
+            return;
+        }
+        long secuencia = ultimaSecuenciaDelHilo.get()[0];
+        synchronized (this) {
+            esperarSecuencia(secuencia);
+        }
+    }
+
+    private void esperarSecuencia(long secuencia) {
+        while (secuenciaDurable < secuencia && error == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrumpido esperando el registro de eventos", e);
+            }
+        }
+        if (secuenciaDurable < secuencia) {
+            throw new UncheckedIOException("No se pudo escribir el registro de eventos", error);
+        }
+    }
+
+    /**
+     * Vacía lo pendiente, detiene el hilo escritor y cierra el archivo
+     */
+    @Override
+    public void close() throws IOException {
+        if (!activo) {
+            return;
+        }
+        synchronized (this) {
+            cerrado = true;
+            notifyAll();
+        }
+        try {
+            escritor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            canal.close();
+        }
+    }
+
+    private static FileChannel abrir(Path archivo) throws IOException {
+        return FileChannel.open(archivo, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private interface Contenido {
+        void escribir(DataOutputStream salida) throws IOException;
+    }
+
+    private void anexar(byte tipo, Contenido contenido) {
+        if (!activo) {
+            return;
+        }
+        // La codificación se hace fuera del monitor; dentro solo se copian bytes
+        byte[] registro;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream salida = new DataOutputStream(bytes);
+            salida.writeInt(0); // longitud, se completa abajo
+            salida.writeInt(0); // crc
+            salida.writeByte(tipo);
+            contenido.escribir(salida);
+            salida.flush();
+            registro = bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(registro, TAMANO_ENCABEZADO, registro.length - TAMANO_ENCABEZADO);
+        ByteBuffer encabezado = ByteBuffer.wrap(registro);
+        encabezado.putInt(registro.length - TAMANO_ENCABEZADO);
+        encabezado.putInt((int) crc.getValue());
+
+        synchronized (this) {
+            if (cerrado) {
+                throw new IllegalStateException("El registro de eventos está cerrado");
+            }
+            if (error != null) {
+                throw new UncheckedIOException("No se pudo escribir el registro de eventos", error);
+            }
+            pendientes.write(registro, 0, registro.length);
+            ultimaSecuenciaDelHilo.get()[0] = ++ultimaSecuencia;
+            notifyAll();
+        }
+    }
+
+    private void ciclarEscritura() {
+        while (true) {
+            ByteArrayOutputStream lote;
+            long secuenciaLote;
+            FileChannel destino;
+            synchronized (this) {
+                while (pendientes.size() == 0 && !cerrado) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pendientes.size() == 0) {
+                    return; // Cerrado y sin nada pendiente
+                }
+                // Se toma todo el búfer; los nuevos registros van a uno nuevo
+                lote = pendientes;
+                secuenciaLote = ultimaSecuencia;
+                destino = canal;
+                pendientes = new ByteArrayOutputStream(Math.max(lote.size(), 4096));
+            }
+
+            IOException fallo = null;
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(lote.toByteArray());
+                while (buffer.hasRemaining()) {
+                    destino.write(buffer);
+                }
+                destino.force(false);
+            } catch (IOException e) {
+                fallo = e;
+            }
+
+            synchronized (this) {
+                if (fallo != null) {
+                    error = fallo;
+                } else {
+                    secuenciaDurable = secuenciaLote;
+                }
+                notifyAll();
+            }
+            if (fallo != null) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package principal;
+
+import modelo.*;
+import servicio.*;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Comparación de la asignación de stock escaso con el procesamiento por
+ * orden de llegada
+ *
+ * Arma varias veces el mismo escenario (misma semilla): pedidos pendientes
+ * que piden más stock del que hay y clientes con crédito limitado. Sobre
+ * una copia procesa los pendientes por número de pedido con
+ * {@link ProcesadorLotes}, y sobre otras confirma el plan de
+ * {@link AsignadorStock} con cada objetivo. Informa pedidos procesados,
+ * ingresos y el tiempo de planificar y confirmar.
+ *
+ * Uso: java principal.PruebaAsignacionStock [pedidos] [articulos] [semilla]
+ */
+public class PruebaAsignacionStock {
+    private static final int PEDIDOS = 12_000;
+    private static final int ARTICULOS = 3_000;
+    private static final int CLIENTES = 400;
+    private static final long SEMILLA = 42;
+
+    public static void main(String[] args) {
+        int pedidos = args.length > 0 ? Integer.parseInt(args[0]) : PEDIDOS;
+        int articulos = args.length > 1 ? Integer.parseInt(args[1]) : ARTICULOS;
+        long semilla = args.length > 2 ? Long.parseLong(args[2]) : SEMILLA;
+
+        Escenario llegada = new Escenario(pedidos, articulos, semilla);
+        System.out.println(pedidos + " pedidos, " + llegada.lineas + " líneas, " + articulos + " artículos");
+        long inicio = System.nanoTime();
+        List<ProcesadorLotes.ResultadoProcesamiento> resultados =
+                new ProcesadorLotes(llegada.pedidoServicio).procesarPendientes();
+        Resultado base = new Resultado(llegada, resultados, System.nanoTime() - inicio);
+        System.out.println("Orden de llegada: " + base);
+
+        for (AsignadorStock.Objetivo objetivo : AsignadorStock.Objetivo.values()) {
+            Escenario escenario = new Escenario(pedidos, articulos, semilla);
+            inicio = System.nanoTime();
+            resultados = new AsignadorStock(escenario.pedidoServicio).asignar(objetivo);
+            Resultado asignacion = new Resultado(escenario, resultados, System.nanoTime() - inicio);
+            System.out.printf("%s: %s (pedidos %+.1f%%, ingresos %+.1f%%)%n", objetivo, asignacion,
+                    variacion(asignacion.procesados, base.procesados),
+                    variacion(asignacion.ingresos, base.ingresos));
+        }
+    }
+
+    private static double variacion(long valor, long base) {
+        return base == 0 ? 0 : (valor - base) * 100.0 / base;
+    }
+
+    /**
+     * Servicios en memoria con el catálogo, los clientes y los pedidos pendientes
+     */
+    private static class Escenario {
+        final PedidoServicio pedidoServicio;
+        int lineas;
+
+        Escenario(int pedidos, int articulos, long semilla) {
+            Random azar = new Random(semilla);
+            ClienteServicio clienteServicio = new ClienteServicio();
+            ArticuloServicio articuloServicio = new ArticuloServicio();
+            pedidoServicio = new PedidoServicio(clienteServicio, articuloServicio);
+
+            // Cerca de 50 unidades pedidas por artículo; el stock cubre en promedio dos tercios
+            for (int a = 0; a < articulos; a++) {
+                Articulo articulo = new Articulo("ART-" + a, "Artículo " + a, "", 1 + azar.nextInt(200));
+                articulo.agregarPlanta("Planta Bogotá", azar.nextInt(70), 0);
+                articuloServicio.agregarArticulo(articulo);
+            }
+            for (int c = 0; c < CLIENTES; c++) {
+                clienteServicio.agregarCliente(new Cliente("CLI-" + c, "Cliente " + c,
+                        5_000 + azar.nextInt(60_000), 0.0));
+            }
+            for (int p = 0; p < pedidos; p++) {
+                String numero = pedidoServicio.crearPedido("CLI-" + azar.nextInt(CLIENTES), "Dirección de prueba");
+                int lineasPedido = 1 + azar.nextInt(4);
+                for (int l = 0; l < lineasPedido; l++) {
+                    pedidoServicio.agregarDetallePedido(numero, "ART-" + azar.nextInt(articulos), 1 + azar.nextInt(9));
+                }
+                lineas += lineasPedido;
+            }
+        }
+    }
+
+    private static class Resultado {
+        final int procesados;
+        final long ingresos;
+        final long milis;
+
+        Resultado(Escenario escenario, List<ProcesadorLotes.ResultadoProcesamiento> resultados, long nanos) {
+            int procesados = 0;
+            long ingresos = 0;
+            for (ProcesadorLotes.ResultadoProcesamiento resultado : resultados) {
+                if (resultado.isProcesado()) {
+                    procesados++;
+                    ingresos += escenario.pedidoServicio.buscarPedido(resultado.getNumeroPedido()).getMontoTotalCentavos();
+                }
+            }
+            this.procesados = procesados;
+            this.ingresos = ingresos;
+            this.milis = nanos / 1_000_000;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d procesados, ingresos $%.2f, %d ms", procesados, Dinero.aDecimal(ingresos), milis);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package principal;
+
+import modelo.*;
+import servicio.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Prueba de carga de la toma concurrente de pedidos
+ *
+ * Varios hilos crean pedidos y les agregan líneas al mismo tiempo, y además
+ * todos agregan líneas a un pedido compartido. Al final se comprueba que no
+ * se perdió ni se repitió ningún pedido, que cada uno tiene exactamente sus
+ * líneas y que el pedido compartido recibió todas las unidades. Termina con
+ * código 1 si algo no cuadra.
+ *
+ * Uso: java principal.PruebaConcurrenciaPedidos [hilos] [pedidosPorHilo]
+ */
+public class PruebaConcurrenciaPedidos {
+    private static final int HILOS_MINIMOS = 32;
+    private static final int PEDIDOS_POR_HILO = 2000;
+    private static final String CLIENTE = "CLI-PRUEBA";
+    private static final String ARTICULO = "ART-PRUEBA";
+
+    public static void main(String[] args) throws Exception {
+        int hilos = args.length > 0 ? Math.max(HILOS_MINIMOS, Integer.parseInt(args[0])) : HILOS_MINIMOS;
+        int pedidosPorHilo = args.length > 1 ? Integer.parseInt(args[1]) : PEDIDOS_POR_HILO;
+        int esperados = hilos * pedidosPorHilo;
+
+        ClienteServicio clienteServicio = new ClienteServicio();
+        ArticuloServicio articuloServicio = new ArticuloServicio();
+        PedidoServicio pedidoServicio = new PedidoServicio(clienteServicio, articuloServicio);
+
+        Cliente cliente = new Cliente(CLIENTE, "Cliente de prueba", 1e12, 0.0);
+        clienteServicio.agregarCliente(cliente);
+        Articulo articulo = new Articulo(ARTICULO, "Artículo de prueba", "", 1.0);
+        articulo.agregarPlanta("Planta Bogotá", esperados, 0);
+        articuloServicio.agregarArticulo(articulo);
+
+        String compartido = pedidoServicio.crearPedido(CLIENTE, "Dirección de prueba");
+        // Número de cada pedido creado -> cantidad de su única línea
+        Map<String, Integer> numeros = new ConcurrentHashMap<>();
+        List<String> errores = new ArrayList<>();
+
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<?>> tareas = new ArrayList<>();
+        long inicio = System.nanoTime();
+        for (int h = 0; h < hilos; h++) {
+            // Cada hilo usa una cantidad distinta para detectar líneas cruzadas entre pedidos
+            int cantidad = h + 1;
+            tareas.add(ejecutor.submit(() -> {
+                largada.await();
+                for (int i = 0; i < pedidosPorHilo; i++) {
+                    String numero = pedidoServicio.crearPedido(CLIENTE, "Dirección de prueba");
+                    if (numero == null || numeros.putIfAbsent(numero, cantidad) != null) {
+                        throw new IllegalStateException("Número de pedido repetido o nulo: " + numero);
+                    }
+                    if (!pedidoServicio.agregarDetallePedido(numero, ARTICULO, cantidad)) {
+                        throw new IllegalStateException("No se agregó la línea al pedido " + numero);
+                    }
+                    if (!pedidoServicio.agregarDetallePedido(compartido, ARTICULO, 1)) {
+                        throw new IllegalStateException("No se agregó la línea al pedido compartido");
+                    }
+                }
+                return null;
+            }));
+        }
+        largada.countDown();
+        for (Future<?> tarea : tareas) {
+            try {
+                tarea.get();
+            } catch (ExecutionException e) {
+                errores.add(e.getCause().toString());
+            }
+        }
+        ejecutor.shutdown();
+        long milis = (System.nanoTime() - inicio) / 1_000_000;
+
+        if (numeros.size() != esperados) {
+            errores.add("Números distintos: " + numeros.size() + ", esperados " + esperados);
+        }
+        if (numeros.containsKey(compartido)) {
+            errores.add("El número del pedido compartido se entregó otra vez");
+        }
+        if (pedidoServicio.getCantidadPedidos() != esperados + 1) {
+            errores.add("Pedidos guardados: " + pedidoServicio.getCantidadPedidos()
+                    + ", esperados " + (esperados + 1));
+        }
+        if (cliente.getCantidadPedidos() != esperados + 1) {
+            errores.add("Pedidos del cliente: " + cliente.getCantidadPedidos()
+                    + ", esperados " + (esperados + 1));
+        }
+        for (Map.Entry<String, Integer> creado : numeros.entrySet()) {
+            String numero = creado.getKey();
+            Pedido pedido = pedidoServicio.buscarPedido(numero);
+            if (pedido == null) {
+                errores.add("Pedido perdido: " + numero);
+            } else if (pedido.getCantidadDetalles() != 1) {
+                errores.add("El pedido " + numero + " tiene " + pedido.getCantidadDetalles() + " líneas");
+            } else if (pedido.getDetalle(0).getCantidadOrdenada() != creado.getValue()) {
+                errores.add("El pedido " + numero + " tiene la línea de otro hilo");
+            }
+        }
+        long unidadesCompartido = unidadesOrdenadas(pedidoServicio.buscarPedido(compartido));
+        if (unidadesCompartido != esperados) {
+            errores.add("Unidades del pedido compartido: " + unidadesCompartido + ", esperadas " + esperados);
+        }
+
+        System.out.println(hilos + " hilos, " + esperados + " pedidos en " + milis + " ms");
+        if (!errores.isEmpty()) {
+            int mostrados = Math.min(errores.size(), 20);
+            for (int i = 0; i < mostrados; i++) {
+                System.err.println("ERROR: " + errores.get(i));
+            }
+            System.err.println(errores.size() + " errores");
+            System.exit(1);
+        }
+        System.out.println("Sin pedidos perdidos ni repetidos");
+    }
+
+    private static long unidadesOrdenadas(Pedido pedido) {
+        long unidades = 0;
+        synchronized (pedido) {
+            for (int i = 0; i < pedido.getCantidadDetalles(); i++) {
+                unidades += pedido.getDetalle(i).getCantidadOrdenada();
+            }
+        }
+        return unidades;
+    }
+}
@@ -2,9 +2,12 @@ package principal;
 
 import modelo.*;
 import servicio.*;
+import persistencia.GestorPersistencia;
 import gui.VentanaPrincipal;
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
+import java.io.IOException;
+import java.nio.file.Paths;
 
 /**
  * Clase principal del Sistema de Gestión de Pedidos - Versión GUI
@@ -12,6 +15,9 @@ import javax.swing.UIManager;
  * Funciona con interfaz gráfica de usuario
  */
 public class SistemaGestionPedidosGUI {
+    private static final String DIRECTORIO_DATOS = "datos";
+    private static final long MINUTOS_ENTRE_INSTANTANEAS = 10;
+    
     public static void main(String[] args) {
         // Configurar Look and Feel del sistema
         try {
@@ -39,8 +45,16 @@ public class SistemaGestionPedidosGUI {
                 ArticuloServicio articuloServicio = new ArticuloServicio();
                 PedidoServicio pedidoServicio = new PedidoServicio(clienteServicio, articuloServicio);
                 
-                // Cargar datos de ejemplo
-                cargarDatosEjemplo(clienteServicio, articuloServicio);
+                // Recuperar el estado del registro de eventos, o cargar datos de ejemplo
+                boolean hayDatosGuardados = iniciarPersistencia(clienteServicio, articuloServicio, pedidoServicio);
+                if (!hayDatosGuardados) {
+                    cargarDatosEjemplo(clienteServicio, articuloServicio);
+                }
+                
+                // Bus de eventos para que las vistas actualicen solo lo que cambió
+                BusEventos bus = new BusEventos();
+                articuloServicio.setBusEventos(bus);
+                pedidoServicio.setBusEventos(bus);
                 
                 // Crear la ventana principal y mostrarla
                 VentanaPrincipal ventana = new VentanaPrincipal(clienteServicio, articuloServicio, pedidoServicio);
@@ -57,20 +71,45 @@ public class SistemaGestionPedidosGUI {
         });
     }
     
+    /**
+     * Recupera el estado guardado (instantánea más registro de eventos) y deja
+     * los servicios conectados a la persistencia
+     * 
+     * @return true si se recuperaron datos de una ejecución anterior
+     */
+    private static boolean iniciarPersistencia(ClienteServicio clienteServicio,
+                                               ArticuloServicio articuloServicio,
+                                               PedidoServicio pedidoServicio) throws IOException {
+        GestorPersistencia persistencia = new GestorPersistencia(Paths.get(DIRECTORIO_DATOS),
+            clienteServicio, articuloServicio, pedidoServicio);
+        boolean hayDatos = persistencia.iniciar(MINUTOS_ENTRE_INSTANTANEAS);
+        
+        // Vaciar lo pendiente al cerrar la aplicación
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                persistencia.close();
+            } catch (IOException e) {
+                System.err.println("Error al cerrar la persistencia: " + e.getMessage());
+            }
+        }));
+        
+        return hayDatos;
+    }
+    
     private static void cargarDatosEjemplo(ClienteServicio clienteServicio, ArticuloServicio articuloServicio) {
         System.out.println("Cargando datos de ejemplo...");
         
         // Clientes de ejemplo
         Cliente cliente1 = new Cliente("CLI001", "Empresa ABC S.A.S.", 5000000.0, 5.0);
-        cliente1.getDireccionesEnvio().add("Calle 123 #45-67, Bogotá");
-        cliente1.getDireccionesEnvio().add("Carrera 45 #67-89, Medellín");
+        cliente1.agregarDireccionEnvio("Calle 123 #45-67, Bogotá");
+        cliente1.agregarDireccionEnvio("Carrera 45 #67-89, Medellín");
         
         Cliente cliente2 = new Cliente("CLI002", "Distribuidora XYZ Ltda.", 3000000.0, 3.0);
-        cliente2.getDireccionesEnvio().add("Avenida 80 #12-34, Cali");
-        cliente2.getDireccionesEnvio().add("Calle 50 #23-45, Barranquilla");
+        cliente2.agregarDireccionEnvio("Avenida 80 #12-34, Cali");
+        cliente2.agregarDireccionEnvio("Calle 50 #23-45, Barranquilla");
         
         Cliente cliente3 = new Cliente("CLI003", "Comercial 123 S.A.", 2000000.0, 2.0);
-        cliente3.getDireccionesEnvio().add("Carrera 10 #5-15, Bucaramanga");
+        cliente3.agregarDireccionEnvio("Carrera 10 #5-15, Bucaramanga");
         
         clienteServicio.agregarCliente(cliente1);
         clienteServicio.agregarCliente(cliente2);
@@ -0,0 +1,178 @@
+package servicio;
+
+import modelo.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Totales de ventas preagregados que el servicio de pedidos mantiene en cada escritura
+ *
+ * Ventas (monto de los pedidos no cancelados, en centavos) por día del pedido
+ * y por cliente, y unidades despachadas por artículo y por planta. Los montos
+ * cambian al agregar líneas y al cancelar; las unidades al procesar y al
+ * cancelar. Las ventas por día se guardan en un árbol de Fenwick, de modo que
+ * el total entre dos fechas cuesta O(log días).
+ */
+public class AcumuladosVentas {
+    private final VentasPorDia ventasPorDia = new VentasPorDia();
+    private final Map<String, LongAdder> ventasPorCliente = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> unidadesPorArticulo = new ConcurrentHashMap<>();
+    private final Map<Integer, LongAdder> unidadesPorPlanta = new ConcurrentHashMap<>();
+
+    /**
+     * Suma (o resta) a las ventas del día y del cliente del pedido
+     */
+    void ventaCambiada(Pedido pedido, long diferenciaCentavos) {
+        if (diferenciaCentavos == 0) {
+            return;
+        }
+        ventasPorDia.sumar(pedido.getFechaPedido(), diferenciaCentavos);
+        ventasPorCliente.computeIfAbsent(pedido.getCliente().getCodigo(), c -> new LongAdder())
+                .add(diferenciaCentavos);
+    }
+
+    /**
+     * Suma (signo 1) o resta (signo -1) las unidades despachadas de cada
+     * línea del pedido, por artículo y por la planta de cada despacho
+     */
+    void unidadesDespachadas(Pedido pedido, int signo) {
+        for (int d = 0; d < pedido.getCantidadDetalles(); d++) {
+            DetallePedido detalle = pedido.getDetalle(d);
+            int entregadas = detalle.getCantidadOrdenada() - detalle.getCantidadPendiente();
+            if (entregadas > 0) {
+                unidadesPorArticulo.computeIfAbsent(detalle.getArticulo().getCodigo(), c -> new LongAdder())
+                        .add((long) signo * entregadas);
+            }
+            for (int i = 0; i < detalle.getCantidadDespachos(); i++) {
+                unidadesPorPlanta.computeIfAbsent(detalle.getPlantaDespacho(i), p -> new LongAdder())
+                        .add((long) signo * detalle.getCantidadDespachada(i));
+            }
+        }
+    }
+
+    /**
+     * Ventas de pedidos con esa fecha, en centavos
+     */
+    public long getVentasCentavos(LocalDate fecha) {
+        return ventasPorDia.sumaEntre(fecha, fecha);
+    }
+
+    /**
+     * Ventas de pedidos con fecha en el rango (ambos extremos incluidos), en centavos
+     */
+    public long getVentasCentavos(LocalDate fechaInicio, LocalDate fechaFin) {
+        return ventasPorDia.sumaEntre(fechaInicio, fechaFin);
+    }
+
+    public long getVentasClienteCentavos(String codigoCliente) {
+        LongAdder ventas = ventasPorCliente.get(codigoCliente);
+        return ventas != null ? ventas.sum() : 0;
+    }
+
+    /**
+     * Unidades despachadas del artículo en pedidos no cancelados
+     */
+    public long getUnidadesArticulo(String codigoArticulo) {
+        LongAdder unidades = unidadesPorArticulo.get(codigoArticulo);
+        return unidades != null ? unidades.sum() : 0;
+    }
+
+    /**
+     * Unidades despachadas desde la planta (id de {@link RegistroPlantas})
+     */
+    public long getUnidadesPlanta(int plantaId) {
+        LongAdder unidades = unidadesPorPlanta.get(plantaId);
+        return unidades != null ? unidades.sum() : 0;
+    }
+
+    /**
+     * Unidades despachadas por nombre de planta
+     */
+    public Map<String, Long> getUnidadesPorPlanta() {
+        Map<String, Long> resumen = new HashMap<>();
+        for (Map.Entry<Integer, LongAdder> entry : unidadesPorPlanta.entrySet()) {
+            long unidades = entry.getValue().sum();
+            if (unidades != 0) {
+                resumen.put(RegistroPlantas.getNombre(entry.getKey()), unidades);
+            }
+        }
+        return resumen;
+    }
+
+    /**
+     * Árbol de Fenwick de ventas por día, indexado por días desde la primera
+     * fecha vista; crece (reconstruyéndose) cuando llega una fecha fuera del rango
+     */
+    private static final class VentasPorDia {
+        private static final int MARGEN_DIAS = 366;
+
+        private long primerDia; // Día epoch de la posición 1
+        private long[] valores = new long[0]; // Venta de cada día, para reconstruir
+        private long[] arbol = new long[1];
+
+        synchronized void sumar(LocalDate fecha, long diferencia) {
+            long dia = fecha.toEpochDay();
+            if (valores.length == 0 || dia < primerDia || dia >= primerDia + valores.length) {
+                crecerHasta(dia);
+            }
+            int posicion = (int) (dia - primerDia);
+            valores[posicion] += diferencia;
+            for (int i = posicion + 1; i < arbol.length; i += i & -i) {
+                arbol[i] += diferencia;
+            }
+        }
+
+        synchronized long sumaEntre(LocalDate fechaInicio, LocalDate fechaFin) {
+            if (valores.length == 0 || fechaInicio.isAfter(fechaFin)) {
+                return 0;
+            }
+            long desde = Math.max(fechaInicio.toEpochDay() - primerDia, 0);
+            long hasta = Math.min(fechaFin.toEpochDay() - primerDia, valores.length - 1L);
+            if (desde > hasta) {
+                return 0;
+            }
+            return acumulado((int) hasta) - (desde > 0 ? acumulado((int) desde - 1) : 0);
+        }
+
+        /**
+         * Suma de las posiciones 0..posicion
+         */
+        private long acumulado(int posicion) {
+            long suma = 0;
+            for (int i = posicion + 1; i > 0; i -= i & -i) {
+                suma += arbol[i];
+            }
+            return suma;
+        }
+
+        private void crecerHasta(long dia) {
+            long nuevoPrimero;
+            long nuevoUltimo;
+            if (valores.length == 0) {
+                nuevoPrimero = dia - MARGEN_DIAS;
+                nuevoUltimo = dia + MARGEN_DIAS;
+            } else {
+                nuevoPrimero = Math.min(primerDia, dia - MARGEN_DIAS);
+                nuevoUltimo = Math.max(primerDia + valores.length - 1, dia + MARGEN_DIAS);
+            }
+            long[] nuevosValores = new long[Math.toIntExact(nuevoUltimo - nuevoPrimero + 1)];
+            if (valores.length > 0) {
+                System.arraycopy(valores, 0, nuevosValores, (int) (primerDia - nuevoPrimero), valores.length);
+            }
+            // Construcción en O(n): cada nodo pasa su suma al padre
+            long[] nuevoArbol = new long[nuevosValores.length + 1];
+            for (int i = 1; i < nuevoArbol.length; i++) {
+                nuevoArbol[i] += nuevosValores[i - 1];
+                int padre = i + (i & -i);
+                if (padre < nuevoArbol.length) {
+                    nuevoArbol[padre] += nuevoArbol[i];
+                }
+            }
+            primerDia = nuevoPrimero;
+            valores = nuevosValores;
+            arbol = nuevoArbol;
+        }
+    }
+}
@@ -1,76 +1,442 @@
 package servicio;
 
 import modelo.*;
+import persistencia.CatalogoMapeado;
+import persistencia.RegistroEventos;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
  * Servicio para gestionar artículos
+ * 
+ * Con un {@link CatalogoMapeado} los artículos viven en archivos mapeados y el
+ * mapa en memoria solo guarda los que ya se usaron: cada uno se materializa la
+ * primera vez que se busca y desde entonces escribe su stock en el catálogo.
  */
 public class ArticuloServicio {
     private Map<String, Articulo> articulos;
+    private ReservaStock reservaStock;
+    private IndiceBajoStock indiceBajoStock;
+    private final ContadoresInventario contadores = new ContadoresInventario();
+    private final IndiceTexto indiceNombres;
+    private RegistroEventos registro;
+    private volatile BusEventos bus = BusEventos.desactivado();
+    private final CatalogoMapeado catalogo;
+    // Publica en el bus cada cambio de stock de los artículos del servicio
+    private final ObservadorStock publicadorStock = (articulo, plantaId, cantidadAnterior, cantidadNueva) ->
+            bus.publicar(new EventoDominio.StockCambiado(articulo.getCodigo(), plantaId,
+                    cantidadAnterior, cantidadNueva));
     
     public ArticuloServicio() {
-        this.articulos = new HashMap<>();
+        this.articulos = new ConcurrentHashMap<>();
+        this.reservaStock = new ReservaStock();
+        this.indiceBajoStock = new IndiceBajoStock();
+        this.registro = RegistroEventos.desactivado();
+        this.catalogo = null;
+        this.indiceNombres = new IndiceTexto(accion ->
+                articulos.values().forEach(articulo -> accion.accept(articulo.getCodigo(), articulo.getNombre())));
+    }
+    
+    /**
+     * Servicio respaldado por un catálogo mapeado. Al iniciar solo se
+     * materializan los artículos con bajo stock, para que el índice de
+     * alertas esté completo sin cargar el resto del catálogo.
+     */
+    public ArticuloServicio(CatalogoMapeado catalogo) {
+        this.articulos = new ConcurrentHashMap<>();
+        this.reservaStock = new ReservaStock();
+        this.indiceBajoStock = new IndiceBajoStock();
+        this.registro = RegistroEventos.desactivado();
+        this.catalogo = catalogo;
+        this.indiceNombres = new IndiceTexto(catalogo::recorrerNombres);
+        // Los contadores parten del resumen del catálogo; los artículos que se materialicen ya están sumados
+        CatalogoMapeado.Resumen resumen = catalogo.getResumen();
+        Map<Integer, Integer> articulosPorPlanta = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : resumen.getArticulosPorPlanta().entrySet()) {
+            articulosPorPlanta.put(RegistroPlantas.obtenerId(entry.getKey()), entry.getValue());
+        }
+        contadores.sumarExistentes(resumen.getUnidades(), resumen.getArticulosDisponibles(), articulosPorPlanta);
+        for (String codigo : catalogo.getCodigosConBajoStock()) {
+            buscarArticulo(codigo);
+        }
+    }
+    
+    /**
+     * Conecta el registro de eventos donde se anexa cada operación que modifica datos
+     */
+    public void setRegistroEventos(RegistroEventos registro) {
+        this.registro = registro;
+    }
+    
+    /**
+     * Conecta el bus donde se publican los cambios de stock
+     */
+    public void setBusEventos(BusEventos bus) {
+        this.bus = bus;
+    }
+    
+    public BusEventos getBusEventos() {
+        return bus;
     }
     
     // Operaciones CRUD para artículos
     public boolean agregarArticulo(Articulo articulo) {
-        if (articulos.containsKey(articulo.getCodigo())) {
-            return false; // Artículo ya existe
+        registro.iniciarOperacion();
+        try {
+            // Bajo la franja del artículo: el alta queda en el registro antes que
+            // cualquier movimiento de stock o pedido que lo use
+            boolean agregado = reservaStock.calcularConBloqueo(articulo.getCodigo(), () -> {
+                if (existe(articulo.getCodigo())) {
+                    return false; // Artículo ya existe
+                }
+                if (catalogo != null && !catalogo.guardar(articulo)) {
+                    return false; // No cabe en un registro del catálogo
+                }
+                registro.articuloGuardado(articulo);
+                contarAlta(articulo);
+                articulos.put(articulo.getCodigo(), articulo);
+                indiceNombres.guardar(articulo.getCodigo(), articulo.getNombre());
+                if (catalogo != null) {
+                    articulo.agregarObservador(catalogo);
+                }
+                return true;
+            });
+            if (!agregado) {
+                return false;
+            }
+            seguir(articulo);
+        } finally {
+            registro.terminarOperacion();
         }
-        articulos.put(articulo.getCodigo(), articulo);
+        registro.esperarDurabilidad();
         return true;
     }
     
     public Articulo buscarArticulo(String codigo) {
-        return articulos.get(codigo);
+        Articulo articulo = articulos.get(codigo);
+        if (articulo != null || catalogo == null) {
+            return articulo;
+        }
+        // Primera vez que se usa: se crea desde su registro y queda en memoria,
+        // de modo que todos los pedidos compartan la misma instancia
+        return articulos.computeIfAbsent(codigo, c -> {
+            Articulo materializado = catalogo.materializar(c);
+            if (materializado != null) {
+                materializado.agregarObservador(catalogo);
+                seguir(materializado);
+            }
+            return materializado;
+        });
+    }
+    
+    /**
+     * Artículo para mostrar o consultar: la instancia en memoria si ya se usó
+     * o, con catálogo mapeado, una copia leída de su registro que no queda en
+     * memoria. Los cambios deben hacerse por el servicio, con el código.
+     */
+    public Articulo consultarArticulo(String codigo) {
+        Articulo articulo = articulos.get(codigo);
+        if (articulo != null || catalogo == null) {
+            return articulo;
+        }
+        return catalogo.materializar(codigo);
     }
     
+    /**
+     * Con catálogo mapeado lee todos los artículos (ver
+     * {@link #consultarArticulo(String)}); para recorridos que no necesitan
+     * objetos conviene usar las consultas específicas
+     */
     public List<Articulo> listarArticulos() {
-        return new ArrayList<>(articulos.values());
+        if (catalogo == null) {
+            return new ArrayList<>(articulos.values());
+        }
+        List<Articulo> lista = new ArrayList<>(catalogo.getCantidadArticulos());
+        recorrerArticulos(lista::add);
+        return lista;
+    }
+    
+    /**
+     * Recorre todos los artículos sin armar una lista; con catálogo mapeado
+     * los lee de a uno, sin dejarlos en memoria, a medida que se visitan
+     */
+    public void recorrerArticulos(Consumer<? super Articulo> accion) {
+        if (catalogo == null) {
+            articulos.values().forEach(accion);
+            return;
+        }
+        catalogo.recorrerCodigos(codigo -> {
+            Articulo articulo = consultarArticulo(codigo);
+            if (articulo != null) {
+                accion.accept(articulo);
+            }
+        });
     }
     
     public boolean actualizarArticulo(Articulo articulo) {
-        if (!articulos.containsKey(articulo.getCodigo())) {
-            return false; // Artículo no existe
+        registro.iniciarOperacion();
+        try {
+            Articulo anterior = reservaStock.calcularConBloqueo(articulo.getCodigo(), () -> {
+                Articulo actual = buscarArticulo(articulo.getCodigo());
+                if (actual == null) {
+                    return null; // Artículo no existe
+                }
+                if (catalogo != null && !catalogo.guardar(articulo)) {
+                    return null; // No cabe en un registro del catálogo
+                }
+                registro.articuloGuardado(articulo);
+                articulos.put(articulo.getCodigo(), articulo);
+                indiceNombres.guardar(articulo.getCodigo(), articulo.getNombre());
+                if (catalogo != null && actual != articulo) {
+                    actual.quitarObservador(catalogo);
+                    articulo.agregarObservador(catalogo);
+                }
+                if (actual != articulo) {
+                    contarBaja(actual);
+                    contarAlta(articulo);
+                }
+                return actual;
+            });
+            if (anterior == null) {
+                return false;
+            }
+            if (anterior != articulo) {
+                // Se reemplazó la instancia: el índice pasa a seguir la nueva
+                dejarDeSeguir(anterior);
+                seguir(articulo);
+            }
+        } finally {
+            registro.terminarOperacion();
         }
-        articulos.put(articulo.getCodigo(), articulo);
+        registro.esperarDurabilidad();
         return true;
     }
     
     public boolean eliminarArticulo(String codigo) {
-        return articulos.remove(codigo) != null;
+        registro.iniciarOperacion();
+        try {
+            Articulo eliminado = reservaStock.calcularConBloqueo(codigo, () -> {
+                Articulo quitado = buscarArticulo(codigo);
+                if (quitado != null) {
+                    registro.articuloEliminado(codigo);
+                    if (catalogo != null) {
+                        // Primero el registro: una búsqueda concurrente ya no puede rematerializarlo
+                        catalogo.eliminar(codigo);
+                        quitado.quitarObservador(catalogo);
+                    }
+                    articulos.remove(codigo);
+                    indiceNombres.quitar(codigo);
+                    contarBaja(quitado);
+                }
+                return quitado;
+            });
+            if (eliminado == null) {
+                return false;
+            }
+            dejarDeSeguir(eliminado);
+        } finally {
+            registro.terminarOperacion();
+        }
+        registro.esperarDurabilidad();
+        return true;
+    }
+    
+    /**
+     * Da de alta o actualiza cada artículo del lote. Los nuevos se agregan tal
+     * cual; en los existentes se actualizan nombre, descripción y precio, y se
+     * redefinen stock y mínimo de las plantas que traiga el artículo del lote.
+     * La durabilidad se espera una sola vez por lote y no por artículo.
+     *
+     * @return los artículos del lote que no se pudieron aplicar
+     */
+    public List<Articulo> guardarLote(List<Articulo> lote) {
+        List<Articulo> rechazados = new ArrayList<>();
+        for (Articulo datos : lote) {
+            registro.iniciarOperacion();
+            try {
+                if (!guardarEnLote(datos)) {
+                    rechazados.add(datos);
+                }
+            } finally {
+                registro.terminarOperacion();
+            }
+        }
+        registro.esperarDurabilidad();
+        return rechazados;
+    }
+
+    private boolean guardarEnLote(Articulo datos) {
+        String codigo = datos.getCodigo();
+        return reservaStock.calcularConBloqueo(codigo, () -> {
+            Articulo actual = buscarArticulo(codigo);
+            if (actual == null) {
+                if (catalogo != null && !catalogo.guardar(datos)) {
+                    return false;
+                }
+                registro.articuloGuardado(datos);
+                contarAlta(datos);
+                articulos.put(codigo, datos);
+                indiceNombres.guardar(codigo, datos.getNombre());
+                if (catalogo != null) {
+                    datos.agregarObservador(catalogo);
+                }
+                seguir(datos);
+                return true;
+            }
+
+            if (catalogo != null) {
+                int nuevas = 0;
+                for (int i = 0; i < datos.getCantidadPlantas(); i++) {
+                    if (!actual.tienePlanta(datos.getPlantaId(i))) {
+                        nuevas++;
+                    }
+                }
+                if (actual.getCantidadPlantas() + nuevas > CatalogoMapeado.PLANTAS_POR_REGISTRO) {
+                    return false; // No cabe en un registro del catálogo
+                }
+            }
+            // Se modifica la instancia existente: los pedidos que la usan ven los cambios
+            actual.setNombre(datos.getNombre());
+            indiceNombres.guardar(codigo, datos.getNombre());
+            actual.setDescripcion(datos.getDescripcion());
+            actual.setPrecioCentavos(datos.getPrecioCentavos());
+            for (int i = 0; i < datos.getCantidadPlantas(); i++) {
+                int plantaId = datos.getPlantaId(i);
+                actual.agregarPlanta(plantaId, datos.getCantidad(plantaId), datos.getStockMinimo(plantaId));
+            }
+            if (catalogo != null) {
+                catalogo.guardar(actual);
+            }
+            registro.articuloGuardado(actual);
+            return true;
+        });
+    }
+
+    /**
+     * Agrega una planta a un artículo existente (o redefine su stock y mínimo)
+     */
+    public boolean agregarPlanta(String codigoArticulo, String planta, int cantidadInicial, int stockMinimo) {
+        Articulo articulo = buscarArticulo(codigoArticulo);
+        if (articulo == null || !admitePlanta(articulo, planta)) {
+            return false;
+        }
+        registro.iniciarOperacion();
+        try {
+            reservaStock.ejecutarConBloqueo(codigoArticulo, () -> {
+                articulo.agregarPlanta(planta, cantidadInicial, stockMinimo);
+                registro.plantaAgregada(codigoArticulo, planta, cantidadInicial, stockMinimo);
+            });
+        } finally {
+            registro.terminarOperacion();
+        }
+        registro.esperarDurabilidad();
+        return true;
     }
     
     // Métodos de consulta específicos
+    /**
+     * Artículos cuyo nombre contiene el texto, sin distinguir mayúsculas ni
+     * tildes, ordenados por relevancia (ver {@link IndiceTexto})
+     */
     public List<Articulo> buscarArticulosPorNombre(String nombre) {
-        return articulos.values().stream()
-                .filter(articulo -> articulo.getNombre().toLowerCase()
-                        .contains(nombre.toLowerCase()))
-                .collect(Collectors.toList());
+        return buscarArticulosPorNombre(nombre, Integer.MAX_VALUE);
     }
     
-    public List<Articulo> getArticulosConBajoStock() {
-        List<Articulo> articulosBajoStock = new ArrayList<>();
-        
-        for (Articulo articulo : articulos.values()) {
-            boolean tieneBajoStock = false;
-            
-            // Verificar cada planta del artículo
-            for (String planta : articulo.getCantidadPorPlanta().keySet()) {
-                if (articulo.necesitaReabastecimiento(planta)) {
-                    tieneBajoStock = true;
-                    break; // Si al menos una planta tiene bajo stock, el artículo se considera bajo stock
-                }
-            }
-            
-            if (tieneBajoStock) {
-                articulosBajoStock.add(articulo);
+    /**
+     * Los {@code limite} artículos más relevantes cuyo nombre contiene el texto;
+     * con catálogo mapeado solo se leen los devueltos
+     */
+    public List<Articulo> buscarArticulosPorNombre(String nombre, int limite) {
+        return articulosDe(indiceNombres.buscar(nombre, limite));
+    }
+    
+    /**
+     * Artículos con una palabra del nombre que empieza con el prefijo, por relevancia
+     */
+    public List<Articulo> autocompletarArticulos(String prefijo, int limite) {
+        return articulosDe(indiceNombres.autocompletar(prefijo, limite));
+    }
+    
+    /**
+     * Códigos de los {@code limite} artículos más relevantes cuyo nombre
+     * contiene el texto, sin materializarlos; con {@code soloDisponibles} se
+     * saltean los que no tienen stock. Para tablas que leen cada fila al
+     * dibujarla, como con {@link #getCodigosArticulos(boolean)}.
+     */
+    public List<String> buscarCodigosPorNombre(String nombre, int limite, boolean soloDisponibles) {
+        return soloDisponibles
+                ? indiceNombres.buscar(nombre, limite, this::tieneStock)
+                : indiceNombres.buscar(nombre, limite);
+    }
+    
+    /**
+     * Arma el índice de nombres si aún no se usó; conviene llamarlo en segundo
+     * plano antes de la primera búsqueda sobre un catálogo grande
+     */
+    public void prepararBusquedaPorNombre() {
+        indiceNombres.preparar();
+    }
+    
+    private boolean tieneStock(String codigo) {
+        Articulo articulo = articulos.get(codigo);
+        if (articulo != null || catalogo == null) {
+            return articulo != null && articulo.getTotalStock() > 0;
+        }
+        return catalogo.tieneStock(codigo); // Sin materializarlo
+    }
+    
+    private List<Articulo> articulosDe(List<String> codigos) {
+        List<Articulo> encontrados = new ArrayList<>(codigos.size());
+        for (String codigo : codigos) {
+            Articulo articulo = consultarArticulo(codigo);
+            if (articulo != null) { // Pudo eliminarse después de la búsqueda
+                encontrados.add(articulo);
             }
         }
-        
-        return articulosBajoStock;
+        return encontrados;
+    }
+    
+    /**
+     * Artículos con al menos una planta por debajo de su mínimo; se lee del
+     * índice incremental, sin recorrer el catálogo
+     */
+    public List<Articulo> getArticulosConBajoStock() {
+        return indiceBajoStock.getArticulos();
+    }
+    
+    public int getCantidadArticulosConBajoStock() {
+        return indiceBajoStock.getCantidadArticulos();
+    }
+    
+    public boolean tieneBajoStock(Articulo articulo) {
+        return indiceBajoStock.tieneBajoStock(enMemoria(articulo));
+    }
+    
+    /**
+     * Ids (de {@link RegistroPlantas}) de las plantas del artículo bajo su mínimo
+     */
+    public Set<Integer> getPlantasConBajoStock(Articulo articulo) {
+        return indiceBajoStock.getPlantasBajas(enMemoria(articulo));
+    }
+    
+    /**
+     * Ids de las plantas con algún artículo bajo su mínimo
+     */
+    public Set<Integer> getPlantasConBajoStock() {
+        Set<Integer> plantas = new HashSet<>();
+        for (Articulo articulo : indiceBajoStock.getArticulos()) {
+            plantas.addAll(indiceBajoStock.getPlantasBajas(articulo));
+        }
+        return plantas;
+    }
+    
+    /**
+     * Cantidad de artículos asignados a la planta, leída de los contadores de inventario
+     */
+    public int getCantidadArticulosEnPlanta(String nombrePlanta) {
+        return contadores.getArticulosEnPlanta(RegistroPlantas.buscarId(nombrePlanta));
     }
     
     /**
@@ -78,35 +444,90 @@ public class ArticuloServicio {
      */
     public void mostrarEstadoStock() {
         System.out.println("\n=== ESTADO DEL STOCK ===");
-        for (Articulo articulo : articulos.values()) {
+        recorrerArticulos(articulo -> {
             System.out.println("\n" + articulo.getCodigo() + " - " + articulo.getNombre());
             
-            boolean tieneBajoStock = false;
-            for (String planta : articulo.getCantidadPorPlanta().keySet()) {
-                int stock = articulo.getCantidadPorPlanta().get(planta);
-                int minimo = articulo.getStockMinimoPorPlanta().getOrDefault(planta, 0);
-                boolean bajStock = articulo.necesitaReabastecimiento(planta);
+            boolean[] tieneBajoStock = {false};
+            articulo.recorrerPlantas((plantaId, stock, minimo) -> {
+                boolean bajStock = articulo.necesitaReabastecimiento(plantaId);
                 
                 System.out.printf("  %s: Stock=%d, Mínimo=%d, BajoStock=%s%n", 
-                    planta, stock, minimo, bajStock ? "SÍ" : "NO");
+                    RegistroPlantas.getNombre(plantaId), stock, minimo, bajStock ? "SÍ" : "NO");
                 
-                if (bajStock) tieneBajoStock = true;
-            }
+                if (bajStock) tieneBajoStock[0] = true;
+            });
             
-            System.out.println("  RESULTADO: " + (tieneBajoStock ? "BAJO STOCK" : "STOCK OK"));
-        }
+            System.out.println("  RESULTADO: " + (tieneBajoStock[0] ? "BAJO STOCK" : "STOCK OK"));
+        });
         System.out.println("========================\n");
     }
     
+    /**
+     * Códigos de los artículos en orden alfabético, sin materializar los del
+     * catálogo mapeado; es la vista indexada que usan las tablas de la interfaz
+     * 
+     * @param soloDisponibles true para incluir solo artículos con stock
+     */
+    public String[] getCodigosArticulos(boolean soloDisponibles) {
+        List<String> codigos;
+        if (catalogo != null) {
+            if (soloDisponibles) {
+                codigos = catalogo.getCodigosDisponibles();
+            } else {
+                codigos = new ArrayList<>(catalogo.getCantidadArticulos());
+                catalogo.recorrerCodigos(codigos::add);
+            }
+        } else {
+            codigos = new ArrayList<>(articulos.size());
+            for (Articulo articulo : articulos.values()) {
+                if (!soloDisponibles || articulo.getTotalStock() > 0) {
+                    codigos.add(articulo.getCodigo());
+                }
+            }
+        }
+        String[] ordenados = codigos.toArray(new String[0]);
+        Arrays.sort(ordenados);
+        return ordenados;
+    }
+    
+    /**
+     * Cantidad de artículos con stock, leída de los contadores de inventario
+     */
+    public int getCantidadArticulosDisponibles() {
+        return (int) contadores.getDisponibles();
+    }
+    
+    /**
+     * Unidades en stock sumando todas las plantas, leídas de los contadores de inventario
+     */
+    public long getTotalUnidadesStock() {
+        return contadores.getUnidades();
+    }
+    
+    /**
+     * Plantas con al menos un artículo asignado, leídas de los contadores de inventario
+     */
+    public int getCantidadPlantasActivas() {
+        return (int) contadores.getPlantasActivas();
+    }
+    
     public List<Articulo> getArticulosDisponibles() {
+        if (catalogo != null) {
+            return articulosDe(catalogo.getCodigosDisponibles());
+        }
         return articulos.values().stream()
                 .filter(articulo -> articulo.getTotalStock() > 0)
                 .collect(Collectors.toList());
     }
     
     public List<Articulo> getArticulosPorPlanta(String nombrePlanta) {
-        return articulos.values().stream()
-                .filter(articulo -> articulo.getCantidadPorPlanta().containsKey(nombrePlanta))
+        // El nombre se resuelve una sola vez; luego solo se consulta el id en cada artículo
+        int plantaId = RegistroPlantas.buscarId(nombrePlanta);
+        if (plantaId < 0) {
+            return new ArrayList<>();
+        }
+        return todosLosArticulos().stream()
+                .filter(articulo -> articulo.tienePlanta(plantaId))
                 .collect(Collectors.toList());
     }
     
@@ -117,32 +538,124 @@ public class ArticuloServicio {
         return articulo.hayDisponibilidad(cantidadSolicitada);
     }
     
-    public void actualizarStock(String codigoArticulo, String planta, int cantidad) {
+    /**
+     * Suma (o resta, con cantidad negativa) stock en la planta
+     *
+     * @return false si el artículo no existe, la planta no cabe en su registro
+     *         del catálogo o no hay stock suficiente para restar
+     */
+    public boolean actualizarStock(String codigoArticulo, String planta, int cantidad) {
         Articulo articulo = buscarArticulo(codigoArticulo);
-        if (articulo != null) {
-            if (cantidad > 0) {
-                articulo.aumentarStock(planta, cantidad);
-            } else {
-                articulo.reducirStock(planta, Math.abs(cantidad));
-            }
+        if (articulo == null || !admitePlanta(articulo, planta)) {
+            return false;
         }
+        boolean aplicado;
+        registro.iniciarOperacion();
+        try {
+            // Se toma la franja del artículo para no interferir con reservas en curso
+            aplicado = reservaStock.calcularConBloqueo(codigoArticulo, () -> {
+                boolean cambiado;
+                if (cantidad > 0) {
+                    articulo.aumentarStock(planta, cantidad);
+                    cambiado = true;
+                } else {
+                    cambiado = articulo.reducirStock(planta, Math.abs(cantidad));
+                }
+                if (cambiado) {
+                    registro.stockAjustado(codigoArticulo, planta, cantidad);
+                }
+                return cambiado;
+            });
+        } finally {
+            registro.terminarOperacion();
+        }
+        registro.esperarDurabilidad();
+        return aplicado;
     }
     
-    public void establecerStock(String codigoArticulo, String planta, int cantidad) {
+    /**
+     * @return false si el artículo no existe o la planta no cabe en su registro del catálogo
+     */
+    public boolean establecerStock(String codigoArticulo, String planta, int cantidad) {
         Articulo articulo = buscarArticulo(codigoArticulo);
-        if (articulo != null) {
-            articulo.establecerStock(planta, cantidad);
+        if (articulo == null || !admitePlanta(articulo, planta)) {
+            return false;
+        }
+        registro.iniciarOperacion();
+        try {
+            reservaStock.ejecutarConBloqueo(codigoArticulo, () -> {
+                articulo.establecerStock(planta, cantidad);
+                registro.stockEstablecido(codigoArticulo, planta, cantidad);
+            });
+        } finally {
+            registro.terminarOperacion();
         }
+        registro.esperarDurabilidad();
+        return true;
+    }
+    
+    /**
+     * Incorpora el artículo al índice de bajo stock, a los contadores de
+     * inventario y a la publicación de cambios
+     */
+    private void seguir(Articulo articulo) {
+        articulo.agregarObservador(contadores);
+        articulo.agregarObservador(publicadorStock);
+        indiceBajoStock.registrar(articulo);
+    }
+    
+    private void dejarDeSeguir(Articulo articulo) {
+        articulo.quitarObservador(contadores);
+        articulo.quitarObservador(publicadorStock);
+        indiceBajoStock.quitar(articulo);
+    }
+    
+    /**
+     * Suma a los contadores un artículo nuevo; se llama con su franja tomada
+     * para que ningún cambio de stock quede fuera o contado dos veces
+     */
+    private void contarAlta(Articulo articulo) {
+        articulo.agregarObservador(contadores);
+        contadores.articuloAgregado(articulo);
+    }
+    
+    private void contarBaja(Articulo articulo) {
+        articulo.quitarObservador(contadores);
+        contadores.articuloQuitado(articulo);
+    }
+    
+    /**
+     * Motor de reservas compartido con el servicio de pedidos
+     */
+    public ReservaStock getReservaStock() {
+        return reservaStock;
     }
     
     public Map<String, Integer> getResumenStockPorPlanta() {
-        Map<String, Integer> resumen = new HashMap<>();
+        if (catalogo != null) {
+            return catalogo.getResumenStockPorPlanta(); // Directo de los registros
+        }
+        
+        // Acumular por id de planta en arreglos primitivos y traducir a nombres al final
+        int cantidadPlantas = RegistroPlantas.getCantidadPlantas();
+        int[] totales = new int[cantidadPlantas];
+        boolean[] activas = new boolean[cantidadPlantas];
         
         for (Articulo articulo : articulos.values()) {
-            for (Map.Entry<String, Integer> entry : articulo.getCantidadPorPlanta().entrySet()) {
-                String planta = entry.getKey();
-                Integer cantidad = entry.getValue();
-                resumen.put(planta, resumen.getOrDefault(planta, 0) + cantidad);
+            for (int i = 0; i < articulo.getCantidadPlantas(); i++) {
+                int plantaId = articulo.getPlantaId(i);
+                if (plantaId >= cantidadPlantas) {
+                    continue; // Planta registrada después de iniciar el resumen
+                }
+                totales[plantaId] += articulo.getCantidad(plantaId);
+                activas[plantaId] = true;
+            }
+        }
+        
+        Map<String, Integer> resumen = new HashMap<>();
+        for (int plantaId = 0; plantaId < cantidadPlantas; plantaId++) {
+            if (activas[plantaId]) {
+                resumen.put(RegistroPlantas.getNombre(plantaId), totales[plantaId]);
             }
         }
         
@@ -150,7 +663,7 @@ public class ArticuloServicio {
     }
     
     public int getCantidadArticulos() {
-        return articulos.size();
+        return catalogo != null ? catalogo.getCantidadArticulos() : articulos.size();
     }
     
     /**
@@ -200,12 +713,35 @@ public class ArticuloServicio {
         return reporte.toString();
     }
     
+    boolean existe(String codigo) {
+        return articulos.containsKey(codigo) || (catalogo != null && catalogo.contiene(codigo));
+    }
+    
+    /**
+     * Con catálogo mapeado, un artículo solo admite las plantas que caben en su registro
+     */
+    private boolean admitePlanta(Articulo articulo, String planta) {
+        return catalogo == null || catalogo.admitePlanta(articulo, planta);
+    }
+    
+    /**
+     * La instancia que siguen los índices, si el artículo es una copia de consulta
+     */
+    private Articulo enMemoria(Articulo articulo) {
+        Articulo seguido = articulos.get(articulo.getCodigo());
+        return seguido != null ? seguido : articulo;
+    }
+    
+    private Collection<Articulo> todosLosArticulos() {
+        return catalogo == null ? articulos.values() : listarArticulos();
+    }
+    
     // Método para validar datos del artículo
     public boolean validarArticulo(Articulo articulo) {
         if (articulo == null) return false;
         if (articulo.getCodigo() == null || articulo.getCodigo().trim().isEmpty()) return false;
         if (articulo.getNombre() == null || articulo.getNombre().trim().isEmpty()) return false;
-        if (articulo.getPrecio() < 0) return false;
+        if (articulo.getPrecioCentavos() < 0) return false;
         
         return true;
     }
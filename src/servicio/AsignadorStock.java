@@ -0,0 +1,217 @@
+package servicio;
+
+import modelo.*;
+import java.util.*;
+
+/**
+ * Asignación del stock escaso entre los pedidos pendientes que compiten por él
+ *
+ * En lugar de atender por orden de llegada, se elige qué pedidos procesar
+ * para maximizar la cantidad de pedidos completos o los ingresos. El problema
+ * exacto es una mochila multidimensional, así que se usa un criterio voraz:
+ * a cada artículo con demanda mayor que su stock se le asigna un costo por
+ * unidad igual a 1/stock, y los pedidos se ordenan por el costo total de lo
+ * que consumen (o por ingreso por unidad de costo). Luego se recorre esa lista
+ * simulando stock y crédito de cada cliente, y se aceptan los pedidos que
+ * todavía entran. Los artículos sin escasez no cuestan nada, así que los
+ * pedidos que solo usan esos artículos se aceptan siempre que el crédito alcance.
+ *
+ * El plan se confirma en una sola pasada con
+ * {@link PedidoServicio#procesarPedido(String)}, de modo que se aplican las
+ * mismas reglas de crédito y stock que en un procesamiento individual.
+ */
+public class AsignadorStock {
+    public enum Objetivo {
+        MAX_PEDIDOS,
+        MAX_INGRESOS
+    }
+
+    private final PedidoServicio pedidoServicio;
+
+    public AsignadorStock(PedidoServicio pedidoServicio) {
+        this.pedidoServicio = pedidoServicio;
+    }
+
+    /**
+     * Calcula la asignación sobre el stock actual sin modificar nada
+     */
+    public PlanAsignacion calcular(Objetivo objetivo) {
+        List<Pedido> pendientes = pedidoServicio.getPedidosPendientes();
+        pendientes.sort(Comparator.comparing(Pedido::getNumeroPedido));
+
+        // Artículos con índice denso y demanda de cada pedido agregada por artículo
+        Map<Articulo, Integer> indiceArticulos = new IdentityHashMap<>();
+        List<Articulo> articulos = new ArrayList<>();
+        int cantidadPedidos = pendientes.size();
+        int[][] articulosPorPedido = new int[cantidadPedidos][];
+        int[][] cantidadesPorPedido = new int[cantidadPedidos][];
+        long[] montos = new long[cantidadPedidos];
+
+        for (int p = 0; p < cantidadPedidos; p++) {
+            Pedido pedido = pendientes.get(p);
+            Map<Integer, Integer> demanda = new LinkedHashMap<>();
+            synchronized (pedido) {
+                montos[p] = pedido.getMontoTotalCentavos();
+                for (int d = 0; d < pedido.getCantidadDetalles(); d++) {
+                    DetallePedido detalle = pedido.getDetalle(d);
+                    Integer indice = indiceArticulos.get(detalle.getArticulo());
+                    if (indice == null) {
+                        indice = articulos.size();
+                        indiceArticulos.put(detalle.getArticulo(), indice);
+                        articulos.add(detalle.getArticulo());
+                    }
+                    demanda.merge(indice, detalle.getCantidadOrdenada(), Integer::sum);
+                }
+            }
+            articulosPorPedido[p] = new int[demanda.size()];
+            cantidadesPorPedido[p] = new int[demanda.size()];
+            int i = 0;
+            for (Map.Entry<Integer, Integer> linea : demanda.entrySet()) {
+                articulosPorPedido[p][i] = linea.getKey();
+                cantidadesPorPedido[p][i] = linea.getValue();
+                i++;
+            }
+        }
+
+        int[] disponible = new int[articulos.size()];
+        long[] demandaTotal = new long[articulos.size()];
+        for (int a = 0; a < disponible.length; a++) {
+            disponible[a] = articulos.get(a).getTotalStock();
+        }
+        for (int p = 0; p < cantidadPedidos; p++) {
+            for (int i = 0; i < articulosPorPedido[p].length; i++) {
+                demandaTotal[articulosPorPedido[p][i]] += cantidadesPorPedido[p][i];
+            }
+        }
+
+        // Costo de cada pedido: unidades de artículos escasos relativas a su stock
+        double[] costos = new double[cantidadPedidos];
+        for (int p = 0; p < cantidadPedidos; p++) {
+            double costo = 0;
+            for (int i = 0; i < articulosPorPedido[p].length; i++) {
+                int a = articulosPorPedido[p][i];
+                if (demandaTotal[a] > disponible[a]) {
+                    costo += cantidadesPorPedido[p][i] / (double) Math.max(1, disponible[a]);
+                }
+            }
+            costos[p] = costo;
+        }
+
+        Integer[] orden = new Integer[cantidadPedidos];
+        for (int p = 0; p < cantidadPedidos; p++) {
+            orden[p] = p;
+        }
+        // El orden es estable: a igual puntaje se respeta el número de pedido
+        if (objetivo == Objetivo.MAX_PEDIDOS) {
+            Arrays.sort(orden, Comparator.comparingDouble(p -> costos[p]));
+        } else {
+            // Los pedidos sin artículos escasos empatan en infinito; entre ellos va primero el de mayor monto
+            Comparator<Integer> porIngreso = Comparator.comparingDouble(
+                    (Integer p) -> costos[p] == 0 ? Double.POSITIVE_INFINITY : montos[p] / costos[p]);
+            Arrays.sort(orden, porIngreso.thenComparingLong(p -> montos[p]).reversed());
+        }
+
+        // Simulación de stock y crédito siguiendo el orden de prioridad
+        Map<Cliente, Long> creditoDisponible = new IdentityHashMap<>();
+        List<Pedido> asignados = new ArrayList<>();
+        Map<Pedido, String> noAsignados = new LinkedHashMap<>();
+        long ingresos = 0;
+        for (int p : orden) {
+            Pedido pedido = pendientes.get(p);
+            Cliente cliente = pedido.getCliente();
+            long credito = creditoDisponible.computeIfAbsent(cliente,
+                    c -> c.getLimiteCreditoCentavos() - c.getSaldoCentavos());
+            if (montos[p] > credito) {
+                noAsignados.put(pedido, "El cliente no tiene crédito para este pedido dentro de la asignación");
+                continue;
+            }
+            String faltante = null;
+            for (int i = 0; i < articulosPorPedido[p].length && faltante == null; i++) {
+                int a = articulosPorPedido[p][i];
+                if (cantidadesPorPedido[p][i] > disponible[a]) {
+                    faltante = "Stock insuficiente para " + articulos.get(a).getNombre()
+                            + " dentro de la asignación. Solicitado: " + cantidadesPorPedido[p][i]
+                            + ", Disponible: " + disponible[a];
+                }
+            }
+            if (faltante != null) {
+                noAsignados.put(pedido, faltante);
+                continue;
+            }
+            for (int i = 0; i < articulosPorPedido[p].length; i++) {
+                disponible[articulosPorPedido[p][i]] -= cantidadesPorPedido[p][i];
+            }
+            creditoDisponible.put(cliente, credito - montos[p]);
+            asignados.add(pedido);
+            ingresos += montos[p];
+        }
+        return new PlanAsignacion(objetivo, asignados, noAsignados, ingresos);
+    }
+
+    /**
+     * Calcula la asignación y la confirma procesando los pedidos elegidos
+     *
+     * @return un resultado por pedido pendiente, en el orden en que se consideraron
+     */
+    public List<ProcesadorLotes.ResultadoProcesamiento> asignar(Objetivo objetivo) {
+        PlanAsignacion plan = calcular(objetivo);
+        List<ProcesadorLotes.ResultadoProcesamiento> resultados = new ArrayList<>();
+        for (Pedido pedido : plan.getPedidosAsignados()) {
+            boolean procesado = pedidoServicio.procesarPedido(pedido.getNumeroPedido());
+            String motivo;
+            if (procesado) {
+                motivo = "Pedido procesado";
+            } else {
+                // El stock o el crédito cambiaron después de calcular el plan
+                synchronized (pedido) {
+                    motivo = pedido.getEstado() != EstadoPedido.PENDIENTE
+                            ? "El pedido ya no está pendiente (estado " + pedido.getEstado() + ")"
+                            : pedido.motivoNoProcesable();
+                }
+            }
+            resultados.add(new ProcesadorLotes.ResultadoProcesamiento(pedido.getNumeroPedido(), procesado, motivo));
+        }
+        for (Map.Entry<Pedido, String> rechazado : plan.getPedidosNoAsignados().entrySet()) {
+            resultados.add(new ProcesadorLotes.ResultadoProcesamiento(
+                    rechazado.getKey().getNumeroPedido(), false, rechazado.getValue()));
+        }
+        return resultados;
+    }
+
+    /**
+     * Pedidos elegidos (en el orden en que se procesarán) y rechazados con su motivo
+     */
+    public static class PlanAsignacion {
+        private final Objetivo objetivo;
+        private final List<Pedido> asignados;
+        private final Map<Pedido, String> noAsignados;
+        private final long ingresos;
+
+        PlanAsignacion(Objetivo objetivo, List<Pedido> asignados, Map<Pedido, String> noAsignados, long ingresos) {
+            this.objetivo = objetivo;
+            this.asignados = asignados;
+            this.noAsignados = noAsignados;
+            this.ingresos = ingresos;
+        }
+
+        public Objetivo getObjetivo() {
+            return objetivo;
+        }
+
+        public List<Pedido> getPedidosAsignados() {
+            return asignados;
+        }
+
+        public Map<Pedido, String> getPedidosNoAsignados() {
+            return noAsignados;
+        }
+
+        public long getIngresosCentavos() {
+            return ingresos;
+        }
+
+        public double getIngresos() {
+            return Dinero.aDecimal(ingresos);
+        }
+    }
+}
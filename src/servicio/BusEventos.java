@@ -0,0 +1,209 @@
+package servicio;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Bus de eventos de dominio dentro del proceso
+ *
+ * Los servicios publican sin esperar: el evento se deja en una cola y un hilo
+ * despachador lo reparte después. El despachador junta lo que llega durante
+ * una ventana corta y entrega el lote a cada suscriptor del tipo
+ * correspondiente, a través del ejecutor de la suscripción (por ejemplo
+ * {@code SwingUtilities::invokeLater} para la interfaz). Mientras una entrega
+ * está esperando su turno en el ejecutor, lo nuevo se suma a ella: un
+ * suscriptor lento recibe lotes más grandes en lugar de más entregas. Con
+ * combinación activada, cada lote se reduce a un evento por tipo y clave.
+ */
+public class BusEventos implements Closeable {
+    private static final long VENTANA_MILIS_POR_DEFECTO = 50;
+    private static final int MAX_LOTE = 10000;
+    private static final BusEventos DESACTIVADO = new BusEventos(0, false);
+
+    private final BlockingQueue<EventoDominio> cola = new LinkedBlockingQueue<>();
+    private final List<Suscripcion<?>> suscripciones = new CopyOnWriteArrayList<>();
+    private final long ventanaMilis;
+    private final boolean activo;
+    private Thread despachador;
+    private volatile boolean cerrado;
+
+    public BusEventos() {
+        this(VENTANA_MILIS_POR_DEFECTO);
+    }
+
+    /**
+     * @param ventanaMilis tiempo que se esperan más eventos antes de repartir un lote
+     */
+    public BusEventos(long ventanaMilis) {
+        this(ventanaMilis, true);
+    }
+
+    private BusEventos(long ventanaMilis, boolean activo) {
+        this.ventanaMilis = ventanaMilis;
+        this.activo = activo;
+    }
+
+    /**
+     * Bus que descarta todo lo publicado; los servicios lo usan hasta que se
+     * les conecta uno real
+     */
+    public static BusEventos desactivado() {
+        return DESACTIVADO;
+    }
+
+    /**
+     * Deja el evento para repartir; no bloquea y no hace nada si nadie está suscrito
+     */
+    public void publicar(EventoDominio evento) {
+        if (suscripciones.isEmpty() || cerrado) {
+            return;
+        }
+        cola.offer(evento);
+    }
+
+    /**
+     * Suscripción que recibe los lotes en el hilo despachador
+     */
+    public <T extends EventoDominio> Suscripcion<T> suscribir(Class<T> tipo, SuscriptorEventos<? super T> suscriptor) {
+        return suscribir(tipo, Runnable::run, false, suscriptor);
+    }
+
+    /**
+     * @param tipo clase de los eventos a recibir ({@code EventoDominio.class} para todos)
+     * @param ejecutor donde se entregan los lotes; debe ejecutar las tareas de a una y en orden
+     * @param combinar true para recibir un solo evento por clave en cada lote
+     */
+    public <T extends EventoDominio> Suscripcion<T> suscribir(Class<T> tipo, Executor ejecutor, boolean combinar,
+                                                              SuscriptorEventos<? super T> suscriptor) {
+        Suscripcion<T> suscripcion = new Suscripcion<>(this, tipo, ejecutor, combinar, suscriptor);
+        if (activo) {
+            synchronized (this) {
+                if (cerrado) {
+                    throw new IllegalStateException("El bus de eventos está cerrado");
+                }
+                suscripciones.add(suscripcion);
+                if (despachador == null) {
+                    despachador = new Thread(this::despachar, "bus-eventos");
+                    despachador.setDaemon(true);
+                    despachador.start();
+                }
+            }
+        }
+        return suscripcion;
+    }
+
+    @Override
+    public void close() {
+        Thread hilo;
+        synchronized (this) {
+            cerrado = true;
+            hilo = despachador;
+        }
+        suscripciones.clear();
+        if (hilo != null) {
+            hilo.interrupt();
+        }
+    }
+
+    private void despachar() {
+        List<EventoDominio> lote = new ArrayList<>();
+        try {
+            while (!cerrado) {
+                lote.add(cola.take());
+                if (ventanaMilis > 0) {
+                    Thread.sleep(ventanaMilis);
+                }
+                cola.drainTo(lote, MAX_LOTE - lote.size());
+                List<EventoDominio> publicado = Collections.unmodifiableList(lote);
+                for (Suscripcion<?> suscripcion : suscripciones) {
+                    suscripcion.encolar(publicado);
+                }
+                lote = new ArrayList<>();
+            }
+        } catch (InterruptedException e) {
+            // Cierre del bus
+        }
+    }
+
+    /**
+     * Suscripción de un suscriptor a un tipo de evento
+     */
+    public static final class Suscripcion<T extends EventoDominio> {
+        private final BusEventos bus;
+        private final Class<T> tipo;
+        private final Executor ejecutor;
+        private final boolean combinar;
+        private final SuscriptorEventos<? super T> suscriptor;
+        private List<T> pendientes = new ArrayList<>();
+        private boolean programada;
+
+        private Suscripcion(BusEventos bus, Class<T> tipo, Executor ejecutor, boolean combinar,
+                            SuscriptorEventos<? super T> suscriptor) {
+            this.bus = bus;
+            this.tipo = tipo;
+            this.ejecutor = ejecutor;
+            this.combinar = combinar;
+            this.suscriptor = suscriptor;
+        }
+
+        /**
+         * Deja de recibir eventos; una entrega ya programada todavía puede llegar
+         */
+        public void cancelar() {
+            bus.suscripciones.remove(this);
+        }
+
+        private void encolar(List<EventoDominio> lote) {
+            boolean programar = false;
+            synchronized (this) {
+                for (EventoDominio evento : lote) {
+                    if (tipo.isInstance(evento)) {
+                        pendientes.add(tipo.cast(evento));
+                    }
+                }
+                if (!pendientes.isEmpty() && !programada) {
+                    programada = true;
+                    programar = true;
+                }
+            }
+            if (programar) {
+                ejecutor.execute(this::entregar);
+            }
+        }
+
+        private void entregar() {
+            List<T> lote;
+            synchronized (this) {
+                lote = pendientes;
+                pendientes = new ArrayList<>();
+                programada = false;
+            }
+            if (combinar) {
+                lote = combinarPorClave(lote);
+            }
+            try {
+                suscriptor.eventosRecibidos(Collections.unmodifiableList(lote));
+            } catch (RuntimeException e) {
+                System.err.println("Error en un suscriptor del bus de eventos: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+
+        /**
+         * Un evento por tipo y clave, en el orden de su última aparición
+         */
+        private List<T> combinarPorClave(List<T> lote) {
+            Map<String, T> porClave = new LinkedHashMap<>();
+            for (T evento : lote) {
+                String clave = evento.getClass().getName() + ':' + evento.getClave();
+                T anterior = porClave.remove(clave);
+                porClave.put(clave, anterior == null ? evento : tipo.cast(anterior.combinar(evento)));
+            }
+            return new ArrayList<>(porClave.values());
+        }
+    }
+}
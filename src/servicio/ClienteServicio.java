@@ -1,7 +1,11 @@
 package servicio;
 
 import modelo.*;
+import persistencia.RegistroEventos;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -9,17 +13,51 @@ import java.util.stream.Collectors;
  */
 public class ClienteServicio {
     private Map<String, Cliente> clientes;
+    private final Collection<Cliente> clientesSoloLectura;
+    private RegistroEventos registro;
+    // Último saldo sumado de cada cliente y la suma de todos, en centavos
+    private final Map<String, Long> saldosContabilizados = new ConcurrentHashMap<>();
+    private final LongAdder totalSaldos = new LongAdder();
+    private final IndiceTexto indiceNombres;
     
     public ClienteServicio() {
-        this.clientes = new HashMap<>();
+        this.clientes = new ConcurrentHashMap<>();
+        this.clientesSoloLectura = Collections.unmodifiableCollection(clientes.values());
+        this.registro = RegistroEventos.desactivado();
+        this.indiceNombres = new IndiceTexto(accion ->
+                clientes.values().forEach(cliente -> accion.accept(cliente.getCodigo(), cliente.getNombre())));
+    }
+    
+    /**
+     * Conecta el registro de eventos donde se anexa cada operación que modifica datos
+     */
+    public void setRegistroEventos(RegistroEventos registro) {
+        this.registro = registro;
     }
     
     // Operaciones CRUD para clientes
     public boolean agregarCliente(Cliente cliente) {
-        if (clientes.containsKey(cliente.getCodigo())) {
-            return false; // Cliente ya existe
+        registro.iniciarOperacion();
+        try {
+            // Altas, cambios y bajas se serializan entre sí para que el orden del
+            // registro coincida con el del mapa; las consultas no se bloquean
+            synchronized (clientes) {
+                if (clientes.containsKey(cliente.getCodigo())) {
+                    return false; // Cliente ya existe
+                }
+                // Se registra antes de publicarlo: ningún pedido puede referirse
+                // al cliente antes de que su alta esté en el registro
+                synchronized (cliente) {
+                    registro.clienteGuardado(cliente);
+                    contabilizarSaldo(cliente);
+                }
+                clientes.put(cliente.getCodigo(), cliente);
+                indiceNombres.guardar(cliente.getCodigo(), cliente.getNombre());
+            }
+        } finally {
+            registro.terminarOperacion();
         }
-        clientes.put(cliente.getCodigo(), cliente);
+        registro.esperarDurabilidad();
         return true;
     }
     
@@ -27,46 +65,193 @@ public class ClienteServicio {
         return clientes.get(codigo);
     }
     
+    /**
+     * Copia de los clientes; para solo recorrerlos conviene {@link #getClientes()}
+     */
     public List<Cliente> listarClientes() {
         return new ArrayList<>(clientes.values());
     }
     
+    /**
+     * Vista de solo lectura de los clientes, sin copiar; refleja altas y bajas
+     * concurrentes y se puede recorrer mientras ocurren
+     */
+    public Collection<Cliente> getClientes() {
+        return clientesSoloLectura;
+    }
+    
     public boolean actualizarCliente(Cliente cliente) {
-        if (!clientes.containsKey(cliente.getCodigo())) {
-            return false; // Cliente no existe
+        registro.iniciarOperacion();
+        try {
+            synchronized (clientes) {
+                if (!clientes.containsKey(cliente.getCodigo())) {
+                    return false; // Cliente no existe
+                }
+                // El saldo se lee con el cliente bloqueado, igual que al procesar pedidos
+                synchronized (cliente) {
+                    registro.clienteGuardado(cliente);
+                    contabilizarSaldo(cliente);
+                }
+                clientes.put(cliente.getCodigo(), cliente);
+                indiceNombres.guardar(cliente.getCodigo(), cliente.getNombre());
+            }
+        } finally {
+            registro.terminarOperacion();
+        }
+        registro.esperarDurabilidad();
+        return true;
+    }
+    
+    public boolean agregarDireccionEnvio(String codigo, String direccion) {
+        return cambiarDirecciones(codigo, cliente -> {
+            if (cliente.getDireccionesEnvio().contains(direccion)) {
+                return false;
+            }
+            cliente.agregarDireccionEnvio(direccion);
+            return true;
+        });
+    }
+    
+    public boolean quitarDireccionEnvio(String codigo, int posicion) {
+        return cambiarDirecciones(codigo, cliente -> {
+            if (posicion < 0 || posicion >= cliente.getDireccionesEnvio().size()) {
+                return false;
+            }
+            cliente.quitarDireccionEnvio(posicion);
+            return true;
+        });
+    }
+    
+    public boolean reemplazarDireccionEnvio(String codigo, int posicion, String direccion) {
+        return cambiarDirecciones(codigo, cliente -> {
+            if (posicion < 0 || posicion >= cliente.getDireccionesEnvio().size()) {
+                return false;
+            }
+            cliente.reemplazarDireccionEnvio(posicion, direccion);
+            return true;
+        });
+    }
+    
+    /**
+     * Aplica un cambio de direcciones con el cliente bloqueado y lo anexa al
+     * registro; serializado con las bajas para que un cliente eliminado no
+     * reaparezca al reproducir
+     */
+    private boolean cambiarDirecciones(String codigo, Predicate<Cliente> cambio) {
+        registro.iniciarOperacion();
+        try {
+            synchronized (clientes) {
+                Cliente cliente = clientes.get(codigo);
+                if (cliente == null) {
+                    return false;
+                }
+                synchronized (cliente) {
+                    if (!cambio.test(cliente)) {
+                        return false;
+                    }
+                    registro.clienteGuardado(cliente);
+                }
+            }
+        } finally {
+            registro.terminarOperacion();
         }
-        clientes.put(cliente.getCodigo(), cliente);
+        registro.esperarDurabilidad();
         return true;
     }
     
     public boolean eliminarCliente(String codigo) {
-        return clientes.remove(codigo) != null;
+        registro.iniciarOperacion();
+        try {
+            synchronized (clientes) {
+                if (clientes.remove(codigo) == null) {
+                    return false;
+                }
+                indiceNombres.quitar(codigo);
+                saldosContabilizados.computeIfPresent(codigo, (clave, anterior) -> {
+                    totalSaldos.add(-anterior);
+                    return null;
+                });
+                registro.clienteEliminado(codigo);
+            }
+        } finally {
+            registro.terminarOperacion();
+        }
+        registro.esperarDurabilidad();
+        return true;
     }
     
     // Métodos de consulta específicos
+    /**
+     * Clientes cuyo nombre contiene el texto, sin distinguir mayúsculas ni
+     * tildes, ordenados por relevancia (ver {@link IndiceTexto})
+     */
     public List<Cliente> buscarClientesPorNombre(String nombre) {
-        return clientes.values().stream()
-                .filter(cliente -> cliente.getNombre().toLowerCase()
-                        .contains(nombre.toLowerCase()))
-                .collect(Collectors.toList());
+        return buscarClientesPorNombre(nombre, Integer.MAX_VALUE);
+    }
+    
+    public List<Cliente> buscarClientesPorNombre(String nombre, int limite) {
+        return clientesDe(indiceNombres.buscar(nombre, limite));
+    }
+    
+    /**
+     * Clientes con una palabra del nombre que empieza con el prefijo, por relevancia
+     */
+    public List<Cliente> autocompletarClientes(String prefijo, int limite) {
+        return clientesDe(indiceNombres.autocompletar(prefijo, limite));
+    }
+    
+    private List<Cliente> clientesDe(List<String> codigos) {
+        List<Cliente> encontrados = new ArrayList<>(codigos.size());
+        for (String codigo : codigos) {
+            Cliente cliente = clientes.get(codigo);
+            if (cliente != null) { // Pudo eliminarse después de la búsqueda
+                encontrados.add(cliente);
+            }
+        }
+        return encontrados;
     }
     
     public List<Cliente> getClientesConSaldoVencido() {
         return clientes.values().stream()
-                .filter(cliente -> cliente.getSaldo() > cliente.getLimiteCredito())
+                .filter(cliente -> cliente.getSaldoCentavos() > cliente.getLimiteCreditoCentavos())
                 .collect(Collectors.toList());
     }
     
     public List<Cliente> getClientesConDescuento() {
         return clientes.values().stream()
-                .filter(cliente -> cliente.getPorcentajeDescuento() > 0)
+                .filter(cliente -> cliente.getDescuentoPuntosBasicos() > 0)
                 .collect(Collectors.toList());
     }
     
     public double getTotalSaldosClientes() {
-        return clientes.values().stream()
-                .mapToDouble(Cliente::getSaldo)
-                .sum();
+        return Dinero.aDecimal(getTotalSaldosClientesCentavos());
+    }
+    
+    /**
+     * Suma de los saldos en centavos; se mantiene en cada cambio de saldo, sin recorrer los clientes
+     */
+    public long getTotalSaldosClientesCentavos() {
+        return totalSaldos.sum();
+    }
+    
+    /**
+     * Actualiza el total de saldos tras un cambio en el saldo del cliente;
+     * se llama con el cliente bloqueado. Un cliente ya eliminado no se vuelve a sumar.
+     */
+    void saldoCambiado(Cliente cliente) {
+        saldosContabilizados.computeIfPresent(cliente.getCodigo(), (codigo, anterior) -> {
+            long saldo = cliente.getSaldoCentavos();
+            totalSaldos.add(saldo - anterior);
+            return saldo;
+        });
+    }
+    
+    private void contabilizarSaldo(Cliente cliente) {
+        saldosContabilizados.compute(cliente.getCodigo(), (codigo, anterior) -> {
+            long saldo = cliente.getSaldoCentavos();
+            totalSaldos.add(anterior == null ? saldo : saldo - anterior);
+            return saldo;
+        });
     }
     
     public int getCantidadClientes() {
@@ -78,8 +263,9 @@ public class ClienteServicio {
         if (cliente == null) return false;
         if (cliente.getCodigo() == null || cliente.getCodigo().trim().isEmpty()) return false;
         if (cliente.getNombre() == null || cliente.getNombre().trim().isEmpty()) return false;
-        if (cliente.getLimiteCredito() < 0) return false;
-        if (cliente.getPorcentajeDescuento() < 0 || cliente.getPorcentajeDescuento() > 100) return false;
+        if (cliente.getLimiteCreditoCentavos() < 0) return false;
+        if (cliente.getDescuentoPuntosBasicos() < 0
+                || cliente.getDescuentoPuntosBasicos() > Dinero.PUNTOS_BASICOS_POR_UNIDAD) return false;
         
         return true;
     }
@@ -0,0 +1,111 @@
+package servicio;
+
+import modelo.*;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Totales del inventario mantenidos en cada escritura
+ *
+ * Observa el stock de los artículos del servicio y acumula las diferencias:
+ * unidades en stock, artículos con stock disponible y plantas con al menos un
+ * artículo asignado. Los cambios de stock de un mismo artículo se hacen bajo
+ * su franja de {@link ReservaStock}, de modo que el total previo del artículo
+ * se deduce del aviso sin carreras con otro cambio suyo.
+ */
+class ContadoresInventario implements ObservadorStock {
+    private final LongAdder unidades = new LongAdder();
+    private final LongAdder disponibles = new LongAdder();
+    private final LongAdder plantasActivas = new LongAdder();
+    private final Map<Integer, Integer> articulosPorPlanta = new ConcurrentHashMap<>();
+
+    /**
+     * Suma los totales de artículos que ya existían y todavía no se siguen
+     * (los del catálogo mapeado al iniciar)
+     */
+    void sumarExistentes(long unidadesExistentes, long disponiblesExistentes,
+                         Map<Integer, Integer> articulosPorPlantaExistentes) {
+        unidades.add(unidadesExistentes);
+        disponibles.add(disponiblesExistentes);
+        for (Map.Entry<Integer, Integer> entry : articulosPorPlantaExistentes.entrySet()) {
+            sumarArticulosEnPlanta(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Cuenta un artículo nuevo con el stock y las plantas que trae
+     */
+    void articuloAgregado(Articulo articulo) {
+        contar(articulo, 1);
+    }
+
+    /**
+     * Descuenta un artículo eliminado o reemplazado por otra instancia
+     */
+    void articuloQuitado(Articulo articulo) {
+        contar(articulo, -1);
+    }
+
+    @Override
+    public void stockCambiado(Articulo articulo, int plantaId, int cantidadAnterior, int cantidadNueva) {
+        int diferencia = cantidadNueva - cantidadAnterior;
+        if (diferencia == 0) {
+            return;
+        }
+        unidades.add(diferencia);
+        int totalNuevo = articulo.getTotalStock();
+        int totalAnterior = totalNuevo - diferencia;
+        if (totalAnterior <= 0 && totalNuevo > 0) {
+            disponibles.increment();
+        } else if (totalAnterior > 0 && totalNuevo <= 0) {
+            disponibles.decrement();
+        }
+    }
+
+    @Override
+    public void plantaAsignada(Articulo articulo, int plantaId) {
+        sumarArticulosEnPlanta(plantaId, 1);
+    }
+
+    long getUnidades() {
+        return unidades.sum();
+    }
+
+    long getDisponibles() {
+        return disponibles.sum();
+    }
+
+    long getPlantasActivas() {
+        return plantasActivas.sum();
+    }
+
+    int getArticulosEnPlanta(int plantaId) {
+        return articulosPorPlanta.getOrDefault(plantaId, 0);
+    }
+
+    private void contar(Articulo articulo, int signo) {
+        int total = articulo.getTotalStock();
+        unidades.add((long) signo * total);
+        if (total > 0) {
+            disponibles.add(signo);
+        }
+        for (int i = 0; i < articulo.getCantidadPlantas(); i++) {
+            sumarArticulosEnPlanta(articulo.getPlantaId(i), signo);
+        }
+    }
+
+    private void sumarArticulosEnPlanta(int plantaId, int cantidad) {
+        // compute es atómico por planta: solo el paso de 0 a 1 (o de 1 a 0) mueve las activas
+        articulosPorPlanta.compute(plantaId, (clave, actual) -> {
+            int anterior = actual == null ? 0 : actual;
+            int nuevo = anterior + cantidad;
+            if (anterior <= 0 && nuevo > 0) {
+                plantasActivas.increment();
+            } else if (anterior > 0 && nuevo <= 0) {
+                plantasActivas.decrement();
+            }
+            return nuevo <= 0 ? null : nuevo;
+        });
+    }
+}
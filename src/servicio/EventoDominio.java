@@ -0,0 +1,195 @@
+package servicio;
+
+import modelo.EstadoPedido;
+
+/**
+ * Cambio en el dominio publicado por los servicios en el {@link BusEventos}
+ *
+ * Cada evento tiene una clave que identifica a qué se refiere (un pedido, un
+ * cliente, un artículo en una planta). Al agrupar una ráfaga, los eventos del
+ * mismo tipo y clave se combinan en uno solo con {@link #combinar}, que
+ * conserva el valor anterior del primero y el nuevo del último.
+ */
+public abstract class EventoDominio {
+
+    /**
+     * Identifica el objeto al que se refiere el evento dentro de su tipo
+     */
+    public abstract String getClave();
+
+    /**
+     * Resultado de este evento seguido de {@code posterior}, del mismo tipo y clave
+     */
+    protected EventoDominio combinar(EventoDominio posterior) {
+        return posterior;
+    }
+
+    /**
+     * Se creó un pedido (o se restauró al recuperar el estado)
+     */
+    public static final class PedidoCreado extends EventoDominio {
+        private final String numeroPedido;
+        private final String codigoCliente;
+
+        public PedidoCreado(String numeroPedido, String codigoCliente) {
+            this.numeroPedido = numeroPedido;
+            this.codigoCliente = codigoCliente;
+        }
+
+        public String getNumeroPedido() {
+            return numeroPedido;
+        }
+
+        public String getCodigoCliente() {
+            return codigoCliente;
+        }
+
+        @Override
+        public String getClave() {
+            return numeroPedido;
+        }
+    }
+
+    /**
+     * Cambiaron las líneas de un pedido y con ellas su monto
+     */
+    public static final class PedidoModificado extends EventoDominio {
+        private final String numeroPedido;
+
+        public PedidoModificado(String numeroPedido) {
+            this.numeroPedido = numeroPedido;
+        }
+
+        public String getNumeroPedido() {
+            return numeroPedido;
+        }
+
+        @Override
+        public String getClave() {
+            return numeroPedido;
+        }
+    }
+
+    public static final class EstadoPedidoCambiado extends EventoDominio {
+        private final String numeroPedido;
+        private final EstadoPedido estadoAnterior;
+        private final EstadoPedido estadoNuevo;
+
+        public EstadoPedidoCambiado(String numeroPedido, EstadoPedido estadoAnterior, EstadoPedido estadoNuevo) {
+            this.numeroPedido = numeroPedido;
+            this.estadoAnterior = estadoAnterior;
+            this.estadoNuevo = estadoNuevo;
+        }
+
+        public String getNumeroPedido() {
+            return numeroPedido;
+        }
+
+        public EstadoPedido getEstadoAnterior() {
+            return estadoAnterior;
+        }
+
+        public EstadoPedido getEstadoNuevo() {
+            return estadoNuevo;
+        }
+
+        @Override
+        public String getClave() {
+            return numeroPedido;
+        }
+
+        @Override
+        protected EventoDominio combinar(EventoDominio posterior) {
+            return new EstadoPedidoCambiado(numeroPedido, estadoAnterior,
+                    ((EstadoPedidoCambiado) posterior).estadoNuevo);
+        }
+    }
+
+    /**
+     * Cambió el stock de un artículo en una planta
+     */
+    public static final class StockCambiado extends EventoDominio {
+        private final String codigoArticulo;
+        private final int plantaId;
+        private final int cantidadAnterior;
+        private final int cantidadNueva;
+
+        public StockCambiado(String codigoArticulo, int plantaId, int cantidadAnterior, int cantidadNueva) {
+            this.codigoArticulo = codigoArticulo;
+            this.plantaId = plantaId;
+            this.cantidadAnterior = cantidadAnterior;
+            this.cantidadNueva = cantidadNueva;
+        }
+
+        public String getCodigoArticulo() {
+            return codigoArticulo;
+        }
+
+        /**
+         * Id de la planta en {@link modelo.RegistroPlantas}
+         */
+        public int getPlantaId() {
+            return plantaId;
+        }
+
+        public int getCantidadAnterior() {
+            return cantidadAnterior;
+        }
+
+        public int getCantidadNueva() {
+            return cantidadNueva;
+        }
+
+        @Override
+        public String getClave() {
+            return codigoArticulo + '@' + plantaId;
+        }
+
+        @Override
+        protected EventoDominio combinar(EventoDominio posterior) {
+            return new StockCambiado(codigoArticulo, plantaId, cantidadAnterior,
+                    ((StockCambiado) posterior).cantidadNueva);
+        }
+    }
+
+    /**
+     * Cambió el saldo de un cliente al procesar o cancelar uno de sus pedidos
+     */
+    public static final class SaldoClienteCambiado extends EventoDominio {
+        private final String codigoCliente;
+        private final long saldoAnterior;
+        private final long saldoNuevo;
+
+        public SaldoClienteCambiado(String codigoCliente, long saldoAnterior, long saldoNuevo) {
+            this.codigoCliente = codigoCliente;
+            this.saldoAnterior = saldoAnterior;
+            this.saldoNuevo = saldoNuevo;
+        }
+
+        public String getCodigoCliente() {
+            return codigoCliente;
+        }
+
+        /**
+         * Saldo en centavos (ver {@link modelo.Dinero})
+         */
+        public long getSaldoAnteriorCentavos() {
+            return saldoAnterior;
+        }
+
+        public long getSaldoNuevoCentavos() {
+            return saldoNuevo;
+        }
+
+        @Override
+        public String getClave() {
+            return codigoCliente;
+        }
+
+        @Override
+        protected EventoDominio combinar(EventoDominio posterior) {
+            return new SaldoClienteCambiado(codigoCliente, saldoAnterior,
+                    ((SaldoClienteCambiado) posterior).saldoNuevo);
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package servicio;
+
+import modelo.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Importación masiva de artículos y stock desde archivos CSV
+ *
+ * Formato, una fila por artículo y planta (la primera fila puede ser el encabezado):
+ * <pre>codigo,nombre,descripcion,precio,planta,cantidad,stockMinimo</pre>
+ * Las tres columnas de planta son opcionales. Las filas consecutivas de un
+ * mismo código se combinan en un solo artículo con todas sus plantas. Los
+ * campos pueden ir entre comillas dobles para incluir comas.
+ *
+ * El archivo se lee línea a línea en un hilo propio y se entrega en lotes al
+ * hilo que llamó a {@link #importar}, que los aplica con
+ * {@link ArticuloServicio#guardarLote}. La cola entre ambos es acotada, de
+ * modo que nunca hay más de unos pocos lotes en memoria.
+ */
+public class ImportadorCatalogo {
+    public static final int TAMANO_LOTE = 1000;
+    private static final int LOTES_EN_COLA = 4;
+    private static final int MAX_ERRORES_DETALLADOS = 1000;
+
+    private final ArticuloServicio articuloServicio;
+
+    public ImportadorCatalogo(ArticuloServicio articuloServicio) {
+        this.articuloServicio = articuloServicio;
+    }
+
+    public ResultadoImportacion importar(Path archivo) throws IOException {
+        try (BufferedReader lector = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+            return importar(lector);
+        }
+    }
+
+    public ResultadoImportacion importar(BufferedReader lector) throws IOException {
+        long inicio = System.nanoTime();
+        ResultadoImportacion resultado = new ResultadoImportacion();
+        BlockingQueue<Lote> cola = new ArrayBlockingQueue<>(LOTES_EN_COLA);
+        Lectura lectura = new Lectura(lector, cola);
+
+        Thread hiloLectura = new Thread(lectura, "importador-lectura");
+        hiloLectura.setDaemon(true);
+        hiloLectura.start();
+        try {
+            while (true) {
+                Lote lote = cola.take();
+                if (lote == Lote.FIN) {
+                    break;
+                }
+                List<Articulo> rechazados = articuloServicio.guardarLote(lote.articulos);
+                resultado.articulosAplicados += lote.articulos.size() - rechazados.size();
+                for (Articulo rechazado : rechazados) {
+                    if (resultado.errores.size() < MAX_ERRORES_DETALLADOS) {
+                        resultado.agregarError(lote.lineas.get(rechazado),
+                                "el artículo " + rechazado.getCodigo() + " no se pudo guardar");
+                    } else {
+                        resultado.cantidadErrores++;
+                    }
+                }
+            }
+            hiloLectura.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Importación interrumpida");
+        } finally {
+            // Si la aplicación falló, la lectura no debe quedar bloqueada en la cola
+            hiloLectura.interrupt();
+        }
+
+        Throwable fallo = lectura.fallo;
+        if (fallo instanceof IOException) {
+            throw (IOException) fallo;
+        } else if (fallo instanceof RuntimeException) {
+            throw (RuntimeException) fallo;
+        } else if (fallo instanceof Error) {
+            throw (Error) fallo;
+        }
+        resultado.filasLeidas = lectura.filasLeidas;
+        resultado.cantidadErrores += lectura.cantidadErrores - lectura.errores.size();
+        for (Map.Entry<Long, String> error : lectura.errores.entrySet()) {
+            resultado.agregarError(error.getKey(), error.getValue());
+        }
+        resultado.duracionNanos = System.nanoTime() - inicio;
+        return resultado;
+    }
+
+    /**
+     * Lotes de artículos ya validados, con la línea donde empieza cada uno
+     */
+    private static final class Lote {
+        static final Lote FIN = new Lote();
+
+        final List<Articulo> articulos = new ArrayList<>(TAMANO_LOTE);
+        final Map<Articulo, Long> lineas = new IdentityHashMap<>();
+    }
+
+    /**
+     * Lectura y validación de filas; corre en su propio hilo
+     */
+    private final class Lectura implements Runnable {
+        private final BufferedReader lector;
+        private final BlockingQueue<Lote> cola;
+        // Solo se leen después de join()
+        private final Map<Long, String> errores = new HashMap<>();
+        private long cantidadErrores;
+        private long filasLeidas;
+        private Throwable fallo;
+
+        private Lote lote = new Lote();
+        private Articulo actual;
+
+        Lectura(BufferedReader lector, BlockingQueue<Lote> cola) {
+            this.lector = lector;
+            this.cola = cola;
+        }
+
+        @Override
+        public void run() {
+            try {
+                leer();
+            } catch (InterruptedException e) {
+                // La aplicación terminó antes; no hay quien espere el fin
+                Thread.currentThread().interrupt();
+            } catch (Throwable e) {
+                fallo = e;
+            } finally {
+                // El fin se publica aunque la lectura falle, para que importar no quede esperando
+                try {
+                    cola.put(Lote.FIN);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private void leer() throws IOException, InterruptedException {
+            long numeroLinea = 0;
+            String linea;
+            while ((linea = lector.readLine()) != null) {
+                numeroLinea++;
+                if (linea.trim().isEmpty() || (numeroLinea == 1 && esEncabezado(linea))) {
+                    continue;
+                }
+                filasLeidas++;
+                try {
+                    procesarFila(numeroLinea, separarCampos(linea));
+                } catch (IllegalArgumentException e) {
+                    cantidadErrores++;
+                    if (errores.size() < MAX_ERRORES_DETALLADOS) {
+                        errores.put(numeroLinea, e.getMessage());
+                    }
+                }
+            }
+            cerrarArticulo();
+            if (!lote.articulos.isEmpty()) {
+                cola.put(lote);
+            }
+        }
+
+        private void procesarFila(long numeroLinea, List<String> campos) throws InterruptedException {
+            if (campos.size() != 4 && campos.size() != 7) {
+                throw new IllegalArgumentException("se esperaban 4 o 7 columnas y hay " + campos.size());
+            }
+            String codigo = campos.get(0).trim();
+            Articulo articulo = new Articulo(codigo, campos.get(1).trim(), campos.get(2).trim(), 0);
+            articulo.setPrecioCentavos(leerImporte(campos.get(3), "precio"));
+            if (!articuloServicio.validarArticulo(articulo)) {
+                throw new IllegalArgumentException("artículo inválido (código, nombre o precio)");
+            }
+
+            String planta = null;
+            int cantidad = 0;
+            int stockMinimo = 0;
+            if (campos.size() == 7) {
+                planta = campos.get(4).trim();
+                if (planta.isEmpty()) {
+                    throw new IllegalArgumentException("falta el nombre de la planta");
+                }
+                cantidad = leerNoNegativo(campos.get(5), "cantidad");
+                stockMinimo = leerNoNegativo(campos.get(6), "stock mínimo");
+            }
+
+            // Filas seguidas del mismo código: se suman plantas al artículo en curso
+            if (actual == null || !actual.getCodigo().equals(codigo)) {
+                cerrarArticulo();
+                actual = articulo;
+                lote.lineas.put(actual, numeroLinea);
+            } else {
+                actual.setNombre(articulo.getNombre());
+                actual.setDescripcion(articulo.getDescripcion());
+                actual.setPrecioCentavos(articulo.getPrecioCentavos());
+            }
+            if (planta != null) {
+                actual.agregarPlanta(planta, cantidad, stockMinimo);
+            }
+        }
+
+        private void cerrarArticulo() throws InterruptedException {
+            if (actual == null) {
+                return;
+            }
+            lote.articulos.add(actual);
+            actual = null;
+            if (lote.articulos.size() >= TAMANO_LOTE) {
+                cola.put(lote);
+                lote = new Lote();
+            }
+        }
+    }
+
+    private static boolean esEncabezado(String linea) {
+        return linea.trim().toLowerCase().startsWith("codigo");
+    }
+
+    /**
+     * Separa una línea CSV respetando campos entre comillas ("" representa una comilla)
+     */
+    static List<String> separarCampos(String linea) {
+        List<String> campos = new ArrayList<>(7);
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"') {
+                    if (i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                        campo.append('"');
+                        i++;
+                    } else {
+                        entreComillas = false;
+                    }
+                } else {
+                    campo.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else {
+                campo.append(c);
+            }
+        }
+        if (entreComillas) {
+            throw new IllegalArgumentException("comillas sin cerrar");
+        }
+        campos.add(campo.toString());
+        return campos;
+    }
+
+    private static long leerImporte(String texto, String columna) {
+        try {
+            return Dinero.parsear(texto);
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException(columna + " no numérico: '" + texto.trim() + "'");
+        }
+    }
+
+    private static int leerNoNegativo(String texto, String columna) {
+        int valor;
+        try {
+            valor = Integer.parseInt(texto.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(columna + " no entero: '" + texto.trim() + "'");
+        }
+        if (valor < 0) {
+            throw new IllegalArgumentException(columna + " negativa: " + valor);
+        }
+        return valor;
+    }
+
+    /**
+     * Resumen de una importación: filas, artículos aplicados, errores y velocidad
+     */
+    public static class ResultadoImportacion {
+        private long filasLeidas;
+        private long articulosAplicados;
+        private long cantidadErrores;
+        private final TreeMap<Long, String> errores = new TreeMap<>();
+        private long duracionNanos;
+
+        private void agregarError(long linea, String mensaje) {
+            cantidadErrores++;
+            errores.put(linea, mensaje);
+        }
+
+        public long getFilasLeidas() {
+            return filasLeidas;
+        }
+
+        public long getArticulosAplicados() {
+            return articulosAplicados;
+        }
+
+        public long getCantidadErrores() {
+            return cantidadErrores;
+        }
+
+        /**
+         * Detalle de los errores por orden de línea (a lo sumo
+         * {@value ImportadorCatalogo#MAX_ERRORES_DETALLADOS} por etapa)
+         */
+        public List<String> getErrores() {
+            List<String> detalle = new ArrayList<>(errores.size());
+            for (Map.Entry<Long, String> error : errores.entrySet()) {
+                detalle.add("Línea " + error.getKey() + ": " + error.getValue());
+            }
+            return detalle;
+        }
+
+        public double getSegundos() {
+            return duracionNanos / 1e9;
+        }
+
+        public double getFilasPorSegundo() {
+            return duracionNanos > 0 ? filasLeidas / getSegundos() : 0;
+        }
+
+        public String getResumen() {
+            return String.format("%d filas leídas, %d artículos aplicados, %d errores en %.1f s (%.0f filas/s)",
+                    filasLeidas, articulosAplicados, cantidadErrores, getSegundos(), getFilasPorSegundo());
+        }
+    }
+}
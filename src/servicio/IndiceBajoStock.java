@@ -0,0 +1,73 @@
+package servicio;
+
+import modelo.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice de artículos con bajo stock mantenido de forma incremental
+ *
+ * Guarda, para cada artículo, las plantas que están por debajo de su stock
+ * mínimo. Cada cambio de stock reevalúa solo el par (artículo, planta)
+ * afectado, leyendo el estado actual del artículo; así el resultado no
+ * depende del orden en que lleguen los avisos de hilos distintos.
+ */
+class IndiceBajoStock implements ObservadorStock {
+    private final Map<Articulo, Set<Integer>> plantasBajas = new ConcurrentHashMap<>();
+    
+    /**
+     * Comienza a seguir el artículo y evalúa todas sus plantas
+     */
+    void registrar(Articulo articulo) {
+        articulo.agregarObservador(this);
+        for (int i = 0; i < articulo.getCantidadPlantas(); i++) {
+            reevaluar(articulo, articulo.getPlantaId(i));
+        }
+    }
+    
+    void quitar(Articulo articulo) {
+        articulo.quitarObservador(this);
+        plantasBajas.remove(articulo);
+    }
+    
+    @Override
+    public void stockCambiado(Articulo articulo, int plantaId, int cantidadAnterior, int cantidadNueva) {
+        reevaluar(articulo, plantaId);
+    }
+    
+    boolean tieneBajoStock(Articulo articulo) {
+        return plantasBajas.containsKey(articulo);
+    }
+    
+    /**
+     * Ids de las plantas del artículo que están bajo su mínimo
+     */
+    Set<Integer> getPlantasBajas(Articulo articulo) {
+        Set<Integer> plantas = plantasBajas.get(articulo);
+        return plantas != null ? Collections.unmodifiableSet(plantas) : Collections.emptySet();
+    }
+    
+    List<Articulo> getArticulos() {
+        return new ArrayList<>(plantasBajas.keySet());
+    }
+    
+    int getCantidadArticulos() {
+        return plantasBajas.size();
+    }
+    
+    private void reevaluar(Articulo articulo, int plantaId) {
+        // compute serializa las actualizaciones del mismo artículo
+        plantasBajas.compute(articulo, (clave, plantas) -> {
+            boolean bajo = articulo.necesitaReabastecimiento(plantaId);
+            if (bajo) {
+                if (plantas == null) {
+                    plantas = ConcurrentHashMap.newKeySet();
+                }
+                plantas.add(plantaId);
+            } else if (plantas != null) {
+                plantas.remove(plantaId);
+            }
+            return plantas == null || plantas.isEmpty() ? null : plantas;
+        });
+    }
+}
@@ -0,0 +1,84 @@
+package servicio;
+
+import modelo.*;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+/**
+ * Índices secundarios de pedidos por cliente, estado y fecha
+ *
+ * Los mantiene el servicio de pedidos: al crear un pedido se registra en los
+ * tres índices y en cada cambio de estado se mueve de un conjunto a otro,
+ * siempre con el pedido bloqueado. Las consultas recorren solo los pedidos
+ * que cumplen el criterio, sin examinar todo el historial.
+ */
+class IndicePedidos {
+    private final Map<String, Set<Pedido>> porCliente = new ConcurrentHashMap<>();
+    private final Map<EstadoPedido, Set<Pedido>> porEstado = new EnumMap<>(EstadoPedido.class);
+    private final NavigableMap<LocalDate, Set<Pedido>> porFecha = new ConcurrentSkipListMap<>();
+    
+    IndicePedidos() {
+        // Todos los estados se crean de antemano; el EnumMap solo se lee después
+        for (EstadoPedido estado : EstadoPedido.values()) {
+            porEstado.put(estado, ConcurrentHashMap.newKeySet());
+        }
+    }
+    
+    void agregar(Pedido pedido) {
+        porCliente.computeIfAbsent(pedido.getCliente().getCodigo(), k -> ConcurrentHashMap.newKeySet())
+                .add(pedido);
+        porFecha.computeIfAbsent(pedido.getFechaPedido(), k -> ConcurrentHashMap.newKeySet())
+                .add(pedido);
+        porEstado.get(pedido.getEstado()).add(pedido);
+    }
+    
+    /**
+     * Refleja en el índice un cambio de estado; el llamador tiene bloqueado el pedido
+     */
+    void cambioDeEstado(Pedido pedido, EstadoPedido estadoAnterior) {
+        EstadoPedido estadoActual = pedido.getEstado();
+        if (estadoActual != estadoAnterior) {
+            // Primero se agrega al nuevo estado para que el pedido nunca desaparezca
+            porEstado.get(estadoActual).add(pedido);
+            porEstado.get(estadoAnterior).remove(pedido);
+        }
+    }
+    
+    List<Pedido> getPorCliente(String codigoCliente) {
+        Set<Pedido> pedidos = porCliente.get(codigoCliente);
+        return pedidos != null ? new ArrayList<>(pedidos) : new ArrayList<>();
+    }
+    
+    List<Pedido> getPorEstado(EstadoPedido estado) {
+        return new ArrayList<>(porEstado.get(estado));
+    }
+    
+    /**
+     * Recorre los pedidos del estado sin copiarlos; los cambios concurrentes
+     * pueden verse o no, pero ningún pedido que siga en el estado se saltea
+     */
+    void recorrerPorEstado(EstadoPedido estado, Consumer<? super Pedido> accion) {
+        porEstado.get(estado).forEach(accion);
+    }
+    
+    int getCantidadPorEstado(EstadoPedido estado) {
+        return porEstado.get(estado).size();
+    }
+    
+    /**
+     * Pedidos con fecha dentro del rango (ambos extremos incluidos), en orden de fecha
+     */
+    List<Pedido> getEntreFechas(LocalDate fechaInicio, LocalDate fechaFin) {
+        List<Pedido> resultado = new ArrayList<>();
+        if (fechaInicio.isAfter(fechaFin)) {
+            return resultado;
+        }
+        for (Set<Pedido> pedidos : porFecha.subMap(fechaInicio, true, fechaFin, true).values()) {
+            resultado.addAll(pedidos);
+        }
+        return resultado;
+    }
+}
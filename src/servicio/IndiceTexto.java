@@ -0,0 +1,533 @@
+package servicio;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Índice de texto en memoria para buscar por nombre
+ *
+ * Los textos se normalizan (minúsculas, sin tildes ni diéresis, signos como
+ * espacios) y cada uno se registra en la lista de documentos de sus
+ * trigramas y de sus palabras. Una búsqueda de 3 o más caracteres recorre
+ * solo la lista del trigrama más raro de la consulta y confirma cada
+ * candidato; una más corta recorre las palabras que empiezan con ella. Los
+ * resultados se ordenan por relevancia: primero los textos que empiezan con
+ * la consulta, luego los que la tienen al inicio de una palabra y al final el
+ * resto; a igualdad, el texto más corto y luego la clave.
+ *
+ * El índice se arma la primera vez que se consulta, recorriendo la fuente;
+ * desde entonces las altas, cambios y bajas lo mantienen. Los documentos
+ * quitados dejan su id en las listas hasta que se compacta.
+ */
+class IndiceTexto {
+    private static final int LARGO_TRIGRAMA = 3;
+    private static final int MINIMO_PARA_COMPACTAR = 1024;
+    private static final int LISTAS_A_CRUZAR = 3;
+    private static final int MUESTRA_CRUCE = 256;
+    // Claves de las listas de inicio de palabra, separadas de las de trigramas (que usan 48 bits)
+    private static final long INICIO_UNA_LETRA = 1L << 48;
+    private static final long INICIO_DOS_LETRAS = 2L << 48;
+    // Letra base en minúscula de cada carácter hasta U+024F (Latin extendido); 0 si no es letra ni dígito
+    private static final char[] PLEGADO = new char[0x250];
+
+    static {
+        for (char c = 0; c < PLEGADO.length; c++) {
+            char base = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD).charAt(0);
+            PLEGADO[c] = Character.isLetterOrDigit(base) ? Character.toLowerCase(base) : 0;
+        }
+    }
+
+    private final Consumer<BiConsumer<String, String>> fuente;
+    private final ReentrantReadWriteLock bloqueo = new ReentrantReadWriteLock();
+    private volatile boolean construido;
+
+    private final Map<String, Integer> idPorClave = new HashMap<>();
+    private String[] claves = new String[16];
+    private String[] textos = new String[16]; // Normalizados; null si el documento se quitó
+    private int[] largos = new int[16]; // Largo de cada texto, para descartar sin leerlo
+    private int usados;
+    private int quitados;
+    private TablaListas listas = new TablaListas();
+
+    /**
+     * @param fuente recorre clave y texto de todos los documentos, para armar el índice
+     */
+    IndiceTexto(Consumer<BiConsumer<String, String>> fuente) {
+        this.fuente = fuente;
+    }
+
+    /**
+     * Registra o actualiza el texto de una clave
+     */
+    void guardar(String clave, String texto) {
+        bloqueo.writeLock().lock();
+        try {
+            if (!construido) {
+                return; // Se tomará de la fuente al armarlo
+            }
+            String normalizado = normalizar(texto);
+            Integer id = idPorClave.get(clave);
+            if (id != null && textos[id].equals(normalizado)) {
+                return;
+            }
+            if (id != null) {
+                descartar(id);
+            }
+            agregar(clave, normalizado);
+            compactarSiConviene();
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    void quitar(String clave) {
+        bloqueo.writeLock().lock();
+        try {
+            if (!construido) {
+                return;
+            }
+            Integer id = idPorClave.remove(clave);
+            if (id != null) {
+                descartar(id);
+                compactarSiConviene();
+            }
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Claves cuyo texto contiene la consulta, de la más a la menos relevante
+     */
+    List<String> buscar(String consulta, int limite) {
+        return buscar(consulta, limite, clave -> true);
+    }
+
+    /**
+     * Como {@link #buscar(String, int)}, salteando las claves que no cumplen
+     * {@code incluir} sin que ocupen lugar en el resultado; el filtro solo se
+     * evalúa en los candidatos que entrarían entre los mejores
+     */
+    List<String> buscar(String consulta, int limite, Predicate<String> incluir) {
+        return consultar(normalizar(consulta), limite, false, incluir);
+    }
+
+    /**
+     * Claves cuyo texto tiene una palabra que empieza con el prefijo (o una
+     * secuencia de palabras, si el prefijo tiene espacios), por relevancia
+     */
+    List<String> autocompletar(String prefijo, int limite) {
+        return consultar(normalizar(prefijo), limite, true, clave -> true);
+    }
+
+    /**
+     * Arma el índice si todavía no se consultó, para que la primera búsqueda no lo espere
+     */
+    void preparar() {
+        asegurarConstruido();
+    }
+
+    /**
+     * Minúsculas sin marcas diacríticas ("Cámara" → "camara", "Ñandú" →
+     * "nandu"); todo lo que no es letra o dígito queda como un único espacio
+     */
+    static String normalizar(String texto) {
+        char[] normalizado = new char[texto.length()];
+        int largo = 0;
+        boolean espacio = false;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = plegar(texto.charAt(i));
+            if (c == 0) {
+                espacio = true;
+                continue;
+            }
+            if (espacio && largo > 0) {
+                normalizado[largo++] = ' ';
+            }
+            espacio = false;
+            normalizado[largo++] = c;
+        }
+        return new String(normalizado, 0, largo);
+    }
+
+    private static char plegar(char c) {
+        if (c < PLEGADO.length) {
+            return PLEGADO[c];
+        }
+        char base = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD).charAt(0);
+        return Character.isLetterOrDigit(base) ? Character.toLowerCase(base) : 0;
+    }
+
+    private List<String> consultar(String consulta, int limite, boolean soloInicioDePalabra,
+                                   Predicate<String> incluir) {
+        if (limite <= 0) {
+            return new ArrayList<>();
+        }
+        asegurarConstruido();
+        bloqueo.readLock().lock();
+        try {
+            Seleccion seleccion = new Seleccion(consulta, limite, soloInicioDePalabra, incluir);
+            if (consulta.length() >= LARGO_TRIGRAMA) {
+                recorrerCandidatos(consulta, seleccion);
+            } else if (consulta.isEmpty()) {
+                for (int id = 0; id < usados; id++) {
+                    seleccion.considerar(id);
+                }
+            } else {
+                // Consulta corta: primero los textos con una palabra que empieza con ella,
+                // que son los más relevantes; solo si no alcanzan se recorren todos
+                ListaIds inicios = listas.get(inicioDePalabra(consulta, 0, consulta.length()));
+                if (inicios != null) {
+                    for (int i = 0; i < inicios.tamano; i++) {
+                        seleccion.considerar(inicios.ids[i]);
+                    }
+                }
+                if (!soloInicioDePalabra && seleccion.mejores.size() < limite) {
+                    for (int id = 0; id < usados; id++) {
+                        seleccion.considerarSiEnPalabra(id);
+                    }
+                }
+            }
+            return seleccion.claves();
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Recorre la lista del trigrama más raro de la consulta y deja pasar solo
+     * los ids que también están en las de los siguientes más raros; el resto
+     * de la consulta se confirma sobre el texto
+     */
+    private void recorrerCandidatos(String consulta, Seleccion seleccion) {
+        ListaIds[] trigramas = new ListaIds[consulta.length() - LARGO_TRIGRAMA + 1];
+        for (int i = 0; i < trigramas.length; i++) {
+            trigramas[i] = listas.get(trigrama(consulta, i));
+            if (trigramas[i] == null) {
+                return; // Algún trigrama no aparece en ningún texto
+            }
+        }
+        Arrays.sort(trigramas, (a, b) -> Integer.compare(a.tamano, b.tamano));
+        int cantidad = Math.min(trigramas.length, LISTAS_A_CRUZAR);
+        int[] posiciones = new int[cantidad];
+        int cruzados = 0;
+        int aceptados = 0;
+        ListaIds masCorta = trigramas[0];
+        candidatos:
+        for (int i = 0; i < masCorta.tamano; i++) {
+            int id = masCorta.ids[i];
+            if (cruzados == MUESTRA_CRUCE && aceptados * 2 > cruzados) {
+                cantidad = 1; // Las listas van juntas (una misma palabra): cruzarlas no descarta nada
+            }
+            cruzados++;
+            for (int t = 1; t < cantidad; t++) {
+                posiciones[t] = trigramas[t].avanzarHasta(posiciones[t], id);
+                if (posiciones[t] == trigramas[t].tamano) {
+                    return; // Una lista se agotó: no hay más candidatos
+                }
+                if (trigramas[t].ids[posiciones[t]] != id) {
+                    continue candidatos;
+                }
+            }
+            aceptados++;
+            seleccion.considerar(id);
+        }
+    }
+
+    private void asegurarConstruido() {
+        if (construido) {
+            return;
+        }
+        bloqueo.writeLock().lock();
+        try {
+            if (!construido) {
+                fuente.accept((clave, texto) -> agregar(clave, normalizar(texto)));
+                construido = true;
+            }
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    private void agregar(String clave, String normalizado) {
+        if (usados == textos.length) {
+            claves = Arrays.copyOf(claves, usados * 2);
+            textos = Arrays.copyOf(textos, usados * 2);
+            largos = Arrays.copyOf(largos, usados * 2);
+        }
+        int id = usados++;
+        claves[id] = clave;
+        textos[id] = normalizado;
+        largos[id] = normalizado.length();
+        idPorClave.put(clave, id);
+        for (int i = 0; i + LARGO_TRIGRAMA <= normalizado.length(); i++) {
+            listas.agregar(trigrama(normalizado, i), id);
+        }
+        for (int i = 0; i < normalizado.length(); i++) {
+            if (i == 0 || normalizado.charAt(i - 1) == ' ') {
+                listas.agregar(inicioDePalabra(normalizado, i, 1), id);
+                if (i + 1 < normalizado.length() && normalizado.charAt(i + 1) != ' ') {
+                    listas.agregar(inicioDePalabra(normalizado, i, 2), id);
+                }
+            }
+        }
+    }
+
+    private void descartar(int id) {
+        textos[id] = null;
+        claves[id] = null;
+        quitados++;
+    }
+
+    /**
+     * Rearma las listas sin los documentos quitados cuando ya son la mitad
+     */
+    private void compactarSiConviene() {
+        if (quitados < MINIMO_PARA_COMPACTAR || quitados * 2 < usados) {
+            return;
+        }
+        String[] clavesAnteriores = claves;
+        String[] textosAnteriores = textos;
+        int usadosAnteriores = usados;
+        claves = new String[Math.max(16, usados - quitados)];
+        textos = new String[claves.length];
+        largos = new int[claves.length];
+        usados = 0;
+        quitados = 0;
+        idPorClave.clear();
+        listas = new TablaListas();
+        for (int id = 0; id < usadosAnteriores; id++) {
+            if (textosAnteriores[id] != null) {
+                agregar(clavesAnteriores[id], textosAnteriores[id]);
+            }
+        }
+    }
+
+    private static long trigrama(String texto, int inicio) {
+        return ((long) texto.charAt(inicio) << 32) | ((long) texto.charAt(inicio + 1) << 16)
+                | texto.charAt(inicio + 2);
+    }
+
+    private static long inicioDePalabra(String texto, int inicio, int largo) {
+        return largo == 1
+                ? INICIO_UNA_LETRA | texto.charAt(inicio)
+                : INICIO_DOS_LETRAS | ((long) texto.charAt(inicio) << 16) | texto.charAt(inicio + 1);
+    }
+
+    /**
+     * 0 si el texto empieza con la consulta, 1 si la tiene al inicio de una
+     * palabra, 2 si la tiene en otra posición y -1 si no la contiene
+     */
+    private static int relevancia(String texto, String consulta) {
+        int posicion = texto.indexOf(consulta);
+        if (posicion < 0) {
+            return -1;
+        }
+        if (posicion == 0) {
+            return 0;
+        }
+        while (posicion > 0) {
+            if (texto.charAt(posicion - 1) == ' ') {
+                return 1;
+            }
+            posicion = texto.indexOf(consulta, posicion + 1);
+        }
+        return 2;
+    }
+
+    /**
+     * Los "limite" mejores resultados de una consulta, en una cola con el peor primero
+     */
+    private final class Seleccion {
+        private final String consulta;
+        private final int limite;
+        private final boolean soloInicioDePalabra;
+        private final Predicate<String> incluir;
+        private final PriorityQueue<Resultado> mejores;
+
+        Seleccion(String consulta, int limite, boolean soloInicioDePalabra, Predicate<String> incluir) {
+            this.consulta = consulta;
+            this.limite = limite;
+            this.soloInicioDePalabra = soloInicioDePalabra;
+            this.incluir = incluir;
+            this.mejores = new PriorityQueue<>(Math.min(limite, 64) + 1, Collections.reverseOrder());
+        }
+
+        void considerar(int id) {
+            if (mejores.size() == limite) {
+                // Ni con la mejor relevancia superaría al peor elegido si es más largo
+                Resultado peor = mejores.peek();
+                if (peor.relevancia == 0 && largos[id] > peor.largo) {
+                    return;
+                }
+            }
+            String texto = textos[id];
+            if (texto == null) {
+                return; // Quitado
+            }
+            int relevancia = relevancia(texto, consulta);
+            if (relevancia < 0 || (soloInicioDePalabra && relevancia > 1)) {
+                return;
+            }
+            if (mejores.size() < limite) {
+                if (incluir.test(claves[id])) {
+                    mejores.add(new Resultado(claves[id], texto.length(), relevancia));
+                }
+                return;
+            }
+            Resultado peor = mejores.peek();
+            if (peor.compareTo(relevancia, texto.length(), claves[id]) > 0 && incluir.test(claves[id])) {
+                mejores.poll();
+                mejores.add(new Resultado(claves[id], texto.length(), relevancia));
+            }
+        }
+
+        /**
+         * Como {@link #considerar(int)}, solo para los textos que tienen la
+         * consulta dentro de una palabra (los demás ya se consideraron)
+         */
+        void considerarSiEnPalabra(int id) {
+            String texto = textos[id];
+            if (texto != null && relevancia(texto, consulta) == 2) {
+                considerar(id);
+            }
+        }
+
+        List<String> claves() {
+            String[] resultado = new String[mejores.size()];
+            for (int i = resultado.length - 1; i >= 0; i--) {
+                resultado[i] = mejores.poll().clave;
+            }
+            return new ArrayList<>(Arrays.asList(resultado));
+        }
+    }
+
+    /**
+     * Tabla de direccionamiento abierto de clave (trigrama o inicio de palabra) → lista de ids
+     */
+    private static final class TablaListas {
+        private long[] claves = new long[1024];
+        private ListaIds[] listas = new ListaIds[1024];
+        private int cantidad;
+
+        ListaIds get(long clave) {
+            int mascara = claves.length - 1;
+            for (int i = posicion(clave, mascara); listas[i] != null; i = (i + 1) & mascara) {
+                if (claves[i] == clave) {
+                    return listas[i];
+                }
+            }
+            return null;
+        }
+
+        void agregar(long clave, int id) {
+            int mascara = claves.length - 1;
+            int i = posicion(clave, mascara);
+            while (listas[i] != null && claves[i] != clave) {
+                i = (i + 1) & mascara;
+            }
+            if (listas[i] == null) {
+                claves[i] = clave;
+                listas[i] = new ListaIds();
+                if (++cantidad * 2 > claves.length) {
+                    crecer();
+                    agregar(clave, id);
+                    return;
+                }
+            }
+            listas[i].agregar(id);
+        }
+
+        private void crecer() {
+            long[] clavesAnteriores = claves;
+            ListaIds[] listasAnteriores = listas;
+            claves = new long[clavesAnteriores.length * 2];
+            listas = new ListaIds[claves.length];
+            int mascara = claves.length - 1;
+            for (int j = 0; j < clavesAnteriores.length; j++) {
+                if (listasAnteriores[j] != null) {
+                    int i = posicion(clavesAnteriores[j], mascara);
+                    while (listas[i] != null) {
+                        i = (i + 1) & mascara;
+                    }
+                    claves[i] = clavesAnteriores[j];
+                    listas[i] = listasAnteriores[j];
+                }
+            }
+        }
+
+        private static int posicion(long clave, int mascara) {
+            long mezcla = clave * 0x9E3779B97F4A7C15L;
+            return (int) (mezcla >>> 40) & mascara;
+        }
+    }
+
+    /**
+     * Ids de documentos en orden creciente, sin repetidos
+     */
+    private static final class ListaIds {
+        private int[] ids = new int[4];
+        private int tamano;
+
+        void agregar(int id) {
+            if (tamano > 0 && ids[tamano - 1] == id) {
+                return; // Trigrama o inicio repetidos en el mismo texto
+            }
+            if (tamano == ids.length) {
+                ids = Arrays.copyOf(ids, tamano + (tamano >> 1));
+            }
+            ids[tamano++] = id;
+        }
+
+        /**
+         * Primera posición desde {@code desde} con id mayor o igual al buscado
+         * (o el tamaño si no hay), avanzando a saltos crecientes
+         */
+        int avanzarHasta(int desde, int id) {
+            if (desde < tamano && ids[desde] >= id) {
+                return desde;
+            }
+            int salto = 1;
+            int hasta = desde;
+            while (hasta < tamano && ids[hasta] < id) {
+                desde = hasta + 1;
+                hasta += salto;
+                salto <<= 1;
+            }
+            int fin = Math.min(hasta, tamano - 1);
+            int posicion = Arrays.binarySearch(ids, desde, fin + 1, id);
+            return posicion >= 0 ? posicion : -posicion - 1;
+        }
+    }
+
+    private static final class Resultado implements Comparable<Resultado> {
+        private final String clave;
+        private final int largo;
+        private final int relevancia;
+
+        Resultado(String clave, int largo, int relevancia) {
+            this.clave = clave;
+            this.largo = largo;
+            this.relevancia = relevancia;
+        }
+
+        @Override
+        public int compareTo(Resultado otro) {
+            return compareTo(otro.relevancia, otro.largo, otro.clave);
+        }
+
+        int compareTo(int otraRelevancia, int otroLargo, String otraClave) {
+            if (relevancia != otraRelevancia) {
+                return Integer.compare(relevancia, otraRelevancia);
+            }
+            if (largo != otroLargo) {
+                return Integer.compare(largo, otroLargo);
+            }
+            return clave.compareTo(otraClave);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package servicio;
+
+import modelo.*;
+
+/**
+ * Indicadores del negocio para los tableros, leídos en tiempo constante
+ *
+ * Ninguna consulta recorre clientes, pedidos ni artículos: cada valor sale de
+ * un contador que los servicios actualizan al escribir (sumadores
+ * {@code LongAdder} para saldos e inventario, los índices de pedidos y de
+ * bajo stock, y el tamaño de los mapas concurrentes). Por eso se pueden
+ * consultar desde la interfaz cada segundo sin costo.
+ */
+public class MetricasNegocio {
+    private final ClienteServicio clienteServicio;
+    private final ArticuloServicio articuloServicio;
+    private final PedidoServicio pedidoServicio;
+
+    public MetricasNegocio(ClienteServicio clienteServicio, ArticuloServicio articuloServicio,
+                           PedidoServicio pedidoServicio) {
+        this.clienteServicio = clienteServicio;
+        this.articuloServicio = articuloServicio;
+        this.pedidoServicio = pedidoServicio;
+    }
+
+    public int getCantidadClientes() {
+        return clienteServicio.getCantidadClientes();
+    }
+
+    public int getCantidadPedidos() {
+        return pedidoServicio.getCantidadPedidos();
+    }
+
+    public int getCantidadPedidosPendientes() {
+        return pedidoServicio.getCantidadPedidosPorEstado(EstadoPedido.PENDIENTE);
+    }
+
+    public int getCantidadArticulos() {
+        return articuloServicio.getCantidadArticulos();
+    }
+
+    public int getCantidadArticulosConBajoStock() {
+        return articuloServicio.getCantidadArticulosConBajoStock();
+    }
+
+    public int getCantidadArticulosDisponibles() {
+        return articuloServicio.getCantidadArticulosDisponibles();
+    }
+
+    public long getTotalUnidadesStock() {
+        return articuloServicio.getTotalUnidadesStock();
+    }
+
+    public int getCantidadPlantasActivas() {
+        return articuloServicio.getCantidadPlantasActivas();
+    }
+
+    /**
+     * Suma de los saldos de los clientes en centavos (ver {@link Dinero})
+     */
+    public long getTotalSaldosCentavos() {
+        return clienteServicio.getTotalSaldosClientesCentavos();
+    }
+
+    public double getTotalSaldos() {
+        return Dinero.aDecimal(getTotalSaldosCentavos());
+    }
+}
@@ -1,24 +1,94 @@
 package servicio;
 
 import modelo.*;
+import persistencia.RegistroEventos;
 import java.time.LocalDate;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * Servicio para gestionar pedidos
+ * 
+ * Es seguro para uso concurrente: varias terminales o hilos pueden crear y
+ * editar pedidos a la vez. Cada pedido se bloquea de forma individual, de modo
+ * que editar un pedido no detiene a los demás.
  */
 public class PedidoServicio {
     private Map<String, Pedido> pedidos;
+    private final Collection<Pedido> pedidosSoloLectura;
     private ClienteServicio clienteServicio;
     private ArticuloServicio articuloServicio;
-    private int contadorPedidos;
+    private AtomicInteger contadorPedidos;
+    private IndicePedidos indice;
+    private RegistroEventos registro;
+    private volatile BusEventos bus = BusEventos.desactivado();
+    private final MetricasNegocio metricas;
+    private final RankingArticulos ranking = new RankingArticulos();
+    private final AcumuladosVentas acumulados = new AcumuladosVentas();
     
     public PedidoServicio(ClienteServicio clienteServicio, ArticuloServicio articuloServicio) {
-        this.pedidos = new HashMap<>();
+        this.pedidos = new ConcurrentHashMap<>();
+        this.pedidosSoloLectura = Collections.unmodifiableCollection(pedidos.values());
+        this.indice = new IndicePedidos();
         this.clienteServicio = clienteServicio;
         this.articuloServicio = articuloServicio;
-        this.contadorPedidos = 1;
+        this.contadorPedidos = new AtomicInteger(1);
+        this.registro = RegistroEventos.desactivado();
+        this.metricas = new MetricasNegocio(clienteServicio, articuloServicio, this);
+    }
+    
+    /**
+     * Conecta el registro de eventos donde se anexa cada operación que modifica datos
+     */
+    public void setRegistroEventos(RegistroEventos registro) {
+        this.registro = registro;
+    }
+    
+    /**
+     * Conecta el bus donde se publican altas, cambios de estado y cambios de
+     * saldo provocados por los pedidos
+     */
+    public void setBusEventos(BusEventos bus) {
+        this.bus = bus;
+    }
+    
+    public BusEventos getBusEventos() {
+        return bus;
+    }
+    
+    /**
+     * Indicadores de clientes, pedidos e inventario que se leen sin recorrer los datos
+     */
+    public MetricasNegocio getMetricas() {
+        return metricas;
+    }
+    
+    /**
+     * Unidades pedidas por artículo, en total y en los últimos días, sin pedidos cancelados
+     */
+    public RankingArticulos getRankingArticulos() {
+        return ranking;
+    }
+    
+    /**
+     * Ventas por día y por cliente, y unidades despachadas por artículo y por planta
+     */
+    public AcumuladosVentas getAcumuladosVentas() {
+        return acumulados;
+    }
+    
+    /**
+     * Elige cómo se reparte cada línea entre las plantas al procesar pedidos
+     * (ver {@link ReservaStock#setEstrategia(EstrategiaSeleccionPlanta)})
+     */
+    public void setEstrategiaSeleccionPlanta(EstrategiaSeleccionPlanta estrategia) {
+        articuloServicio.getReservaStock().setEstrategia(estrategia);
+    }
+    
+    public EstrategiaSeleccionPlanta getEstrategiaSeleccionPlanta() {
+        return articuloServicio.getReservaStock().getEstrategia();
     }
     
     // Operaciones CRUD para pedidos
@@ -30,13 +100,70 @@ public class PedidoServicio {
         
         String numeroPedido = generarNumeroPedido();
         Pedido pedido = new Pedido(numeroPedido, cliente, direccionEnvio);
-        
-        pedidos.put(numeroPedido, pedido);
-        cliente.agregarPedido(pedido);
+        publicarPedido(pedido);
+        registro.esperarDurabilidad();
         
         return numeroPedido;
     }
     
+    /**
+     * Vuelve a crear un pedido con su número y fecha originales; se usa al
+     * recuperar el estado desde el registro de eventos
+     */
+    public boolean restaurarPedido(String numeroPedido, String codigoCliente, String direccionEnvio, LocalDate fecha) {
+        Cliente cliente = clienteServicio.buscarCliente(codigoCliente);
+        if (cliente == null) {
+            return false;
+        }
+        
+        Pedido pedido = new Pedido(numeroPedido, cliente, direccionEnvio);
+        pedido.setFechaPedido(fecha);
+        return restaurarPedido(pedido);
+    }
+    
+    /**
+     * Incorpora un pedido ya armado (con sus líneas, estado y monto), tal como
+     * se leyó de una instantánea; no modifica stock ni saldos
+     */
+    public boolean restaurarPedido(Pedido pedido) {
+        String numeroPedido = pedido.getNumeroPedido();
+        if (pedidos.containsKey(numeroPedido)) {
+            return false;
+        }
+        publicarPedido(pedido);
+        
+        // Los números nuevos continúan después del mayor ya usado
+        int consecutivo = Integer.parseInt(numeroPedido.substring(numeroPedido.indexOf('-') + 1));
+        contadorPedidos.accumulateAndGet(consecutivo + 1, Math::max);
+        return true;
+    }
+    
+    private void publicarPedido(Pedido pedido) {
+        registro.iniciarOperacion();
+        try {
+            // Pedido y cliente bloqueados: nadie puede agregar líneas ni procesar
+            // el pedido antes de que su creación quede en el registro
+            synchronized (pedido) {
+                synchronized (pedido.getCliente()) {
+                    pedidos.put(pedido.getNumeroPedido(), pedido);
+                    indice.agregar(pedido);
+                    if (pedido.getEstado() != EstadoPedido.CANCELADO) {
+                        // Pedido restaurado con sus líneas (y despachos, si ya se procesó)
+                        sumarAlRanking(pedido, 1);
+                        acumulados.ventaCambiada(pedido, pedido.getMontoTotalCentavos());
+                        acumulados.unidadesDespachadas(pedido, 1);
+                    }
+                    pedido.getCliente().agregarPedido(pedido);
+                    registro.pedidoCreado(pedido);
+                    bus.publicar(new EventoDominio.PedidoCreado(pedido.getNumeroPedido(),
+                            pedido.getCliente().getCodigo()));
+                }
+            }
+        } finally {
+            registro.terminarOperacion();
+        }
+    }
+    
     public boolean agregarDetallePedido(String numeroPedido, String codigoArticulo, int cantidad) {
         Pedido pedido = buscarPedido(numeroPedido);
         Articulo articulo = articuloServicio.buscarArticulo(codigoArticulo);
@@ -45,35 +172,131 @@ public class PedidoServicio {
             return false;
         }
         
-        // Solo permitir agregar detalles si el pedido está pendiente
-        if (pedido.getEstado() != EstadoPedido.PENDIENTE) {
-            return false;
+        registro.iniciarOperacion();
+        try {
+            synchronized (pedido) {
+                // Solo permitir agregar detalles si el pedido está pendiente
+                if (pedido.getEstado() != EstadoPedido.PENDIENTE) {
+                    return false;
+                }
+                
+                long montoAnterior = pedido.getMontoTotalCentavos();
+                pedido.agregarDetalle(articulo, cantidad);
+                acumulados.ventaCambiada(pedido, pedido.getMontoTotalCentavos() - montoAnterior);
+                ranking.sumar(pedido.getFechaPedido(), codigoArticulo, cantidad);
+                registro.detalleAgregado(numeroPedido, codigoArticulo, cantidad);
+                bus.publicar(new EventoDominio.PedidoModificado(numeroPedido));
+            }
+        } finally {
+            registro.terminarOperacion();
         }
-        
-        pedido.agregarDetalle(articulo, cantidad);
+        registro.esperarDurabilidad();
         return true;
     }
     
+    /**
+     * Agrega muchas líneas (código de artículo -> cantidad) en una sola
+     * operación. Si algún artículo no existe o alguna cantidad no es
+     * positiva, no se agrega ninguna.
+     */
+    public boolean agregarDetallesPedido(String numeroPedido, Map<String, Integer> cantidadesPorArticulo) {
+        Pedido pedido = buscarPedido(numeroPedido);
+        if (pedido == null) {
+            return false;
+        }
+        List<DetallePedido> nuevos = new ArrayList<>(cantidadesPorArticulo.size());
+        for (Map.Entry<String, Integer> linea : cantidadesPorArticulo.entrySet()) {
+            Articulo articulo = articuloServicio.buscarArticulo(linea.getKey());
+            if (articulo == null || linea.getValue() == null || linea.getValue() <= 0) {
+                return false;
+            }
+            nuevos.add(new DetallePedido(articulo, linea.getValue()));
+        }
+
+        registro.iniciarOperacion();
+        try {
+            synchronized (pedido) {
+                if (pedido.getEstado() != EstadoPedido.PENDIENTE) {
+                    return false;
+                }
+
+                long montoAnterior = pedido.getMontoTotalCentavos();
+                pedido.agregarDetalles(nuevos);
+                acumulados.ventaCambiada(pedido, pedido.getMontoTotalCentavos() - montoAnterior);
+                for (DetallePedido detalle : nuevos) {
+                    ranking.sumar(pedido.getFechaPedido(), detalle.getArticulo().getCodigo(),
+                            detalle.getCantidadOrdenada());
+                    registro.detalleAgregado(numeroPedido, detalle.getArticulo().getCodigo(),
+                            detalle.getCantidadOrdenada());
+                }
+                bus.publicar(new EventoDominio.PedidoModificado(numeroPedido));
+            }
+        } finally {
+            registro.terminarOperacion();
+        }
+        registro.esperarDurabilidad();
+        return true;
+    }
+
     public Pedido buscarPedido(String numeroPedido) {
         return pedidos.get(numeroPedido);
     }
     
+    /**
+     * Copia de los pedidos; para solo recorrerlos conviene {@link #getPedidos()}
+     */
     public List<Pedido> listarPedidos() {
         return new ArrayList<>(pedidos.values());
     }
     
+    /**
+     * Vista de solo lectura de los pedidos, sin copiar; refleja altas
+     * concurrentes y se puede recorrer mientras ocurren
+     */
+    public Collection<Pedido> getPedidos() {
+        return pedidosSoloLectura;
+    }
+    
     public boolean procesarPedido(String numeroPedido) {
         Pedido pedido = buscarPedido(numeroPedido);
         if (pedido == null) {
             return false;
         }
         
-        if (pedido.puedeSerProcesado()) {
-            pedido.procesarPedido();
-            return true;
+        // Se bloquea el pedido y luego su cliente (siempre en ese orden) para que
+        // la verificación de crédito y la actualización del saldo sean atómicas
+        boolean procesado = false;
+        registro.iniciarOperacion();
+        try {
+            synchronized (pedido) {
+                Cliente cliente = pedido.getCliente();
+                synchronized (cliente) {
+                    // Verificación y descuento de stock como un único paso atómico;
+                    // el evento se anexa con las franjas aún tomadas
+                    if (pedido.getEstado() == EstadoPedido.PENDIENTE) {
+                        long saldoAnterior = cliente.getSaldoCentavos();
+                        procesado = articuloServicio.getReservaStock().reservar(pedido,
+                                () -> registro.pedidoProcesado(numeroPedido));
+                        indice.cambioDeEstado(pedido, EstadoPedido.PENDIENTE);
+                        if (procesado) {
+                            clienteServicio.saldoCambiado(cliente);
+                            acumulados.unidadesDespachadas(pedido, 1);
+                            bus.publicar(new EventoDominio.EstadoPedidoCambiado(numeroPedido,
+                                    EstadoPedido.PENDIENTE, EstadoPedido.PROCESADO));
+                            bus.publicar(new EventoDominio.SaldoClienteCambiado(cliente.getCodigo(),
+                                    saldoAnterior, cliente.getSaldoCentavos()));
+                        }
+                    }
+                }
+            }
+        } finally {
+            registro.terminarOperacion();
         }
         
-        return false;
+        if (procesado) {
+            registro.esperarDurabilidad();
+        }
+        return procesado;
     }
     
     public boolean cancelarPedido(String numeroPedido) {
@@ -82,39 +305,94 @@ public class PedidoServicio {
             return false;
         }
         
-        // Solo se puede cancelar si está pendiente o procesado
-        if (pedido.getEstado() == EstadoPedido.PENDIENTE || 
-            pedido.getEstado() == EstadoPedido.PROCESADO) {
-            
-            // Si el pedido estaba procesado, devolver el stock
-            if (pedido.getEstado() == EstadoPedido.PROCESADO) {
-                restaurarStockPedido(pedido);
-                // Devolver el saldo al cliente
-                pedido.getCliente().setSaldo(pedido.getCliente().getSaldo() - pedido.getMontoTotal());
+        registro.iniciarOperacion();
+        try {
+            synchronized (pedido) {
+                // El cliente queda bloqueado durante toda la cancelación para que
+                // la devolución de saldo no se intercale con otro pedido suyo
+                Cliente cliente = pedido.getCliente();
+                synchronized (cliente) {
+                    // Solo se puede cancelar si está pendiente o procesado
+                    EstadoPedido estadoAnterior = pedido.getEstado();
+                    if (estadoAnterior != EstadoPedido.PENDIENTE && 
+                        estadoAnterior != EstadoPedido.PROCESADO) {
+                        return false;
+                    }
+                    
+                    if (estadoAnterior == EstadoPedido.PROCESADO) {
+                        verificarDespachos(pedido);
+                        // Antes de devolver el stock, que borra los despachos
+                        acumulados.unidadesDespachadas(pedido, -1);
+                        // Devolver el stock y registrar la cancelación con las franjas tomadas
+                        restaurarStockPedido(pedido);
+                        // Devolver el saldo al cliente
+                        long saldoAnterior = cliente.getSaldoCentavos();
+                        cliente.setSaldoCentavos(Dinero.restar(saldoAnterior, pedido.getMontoTotalCentavos()));
+                        clienteServicio.saldoCambiado(cliente);
+                        bus.publicar(new EventoDominio.SaldoClienteCambiado(cliente.getCodigo(),
+                                saldoAnterior, cliente.getSaldoCentavos()));
+                    } else {
+                        registro.pedidoCancelado(numeroPedido);
+                    }
+                    
+                    pedido.setEstado(EstadoPedido.CANCELADO);
+                    indice.cambioDeEstado(pedido, estadoAnterior);
+                    sumarAlRanking(pedido, -1);
+                    acumulados.ventaCambiada(pedido, -pedido.getMontoTotalCentavos());
+                    bus.publicar(new EventoDominio.EstadoPedidoCambiado(numeroPedido,
+                            estadoAnterior, EstadoPedido.CANCELADO));
+                }
             }
-            
-            pedido.setEstado(EstadoPedido.CANCELADO);
-            return true;
+        } finally {
+            registro.terminarOperacion();
         }
         
-        return false;
+        registro.esperarDurabilidad();
+        return true;
+    }
+    
+    /**
+     * Cada unidad entregada debe tener su planta anotada; si falta alguna no
+     * se cancela nada, en lugar de devolver stock a una planta equivocada
+     */
+    private static void verificarDespachos(Pedido pedido) {
+        for (int d = 0; d < pedido.getCantidadDetalles(); d++) {
+            DetallePedido detalle = pedido.getDetalle(d);
+            int despachado = 0;
+            for (int i = 0; i < detalle.getCantidadDespachos(); i++) {
+                despachado += detalle.getCantidadDespachada(i);
+            }
+            if (despachado != detalle.getCantidadOrdenada() - detalle.getCantidadPendiente()) {
+                throw new IllegalStateException("El pedido " + pedido.getNumeroPedido()
+                        + " no tiene anotadas las plantas de todo lo entregado de "
+                        + detalle.getArticulo().getCodigo());
+            }
+        }
     }
     
     /**
      * Restaura el stock cuando se cancela un pedido procesado
      */
     private void restaurarStockPedido(Pedido pedido) {
-        for (DetallePedido detalle : pedido.getDetalles()) {
+        articuloServicio.getReservaStock().ejecutarConBloqueo(pedido, () -> {
+            devolverStock(pedido);
+            registro.pedidoCancelado(pedido.getNumeroPedido());
+        });
+    }
+    
+    /**
+     * Devuelve a cada planta exactamente lo que se tomó de ella al procesar
+     */
+    private void devolverStock(Pedido pedido) {
+        for (int d = 0; d < pedido.getCantidadDetalles(); d++) {
+            DetallePedido detalle = pedido.getDetalle(d);
             Articulo articulo = detalle.getArticulo();
-            int cantidadEntregada = detalle.getCantidadOrdenada() - detalle.getCantidadPendiente();
-            
-            if (cantidadEntregada > 0) {
-                // Restaurar a la primera planta disponible (simplificado)
-                String primerPlanta = articulo.getCantidadPorPlanta().keySet().iterator().next();
-                articulo.aumentarStock(primerPlanta, cantidadEntregada);
-                // Restaurar cantidad pendiente para que los reportes sean consistentes
-                detalle.setCantidadPendiente(detalle.getCantidadOrdenada());
+            for (int i = 0; i < detalle.getCantidadDespachos(); i++) {
+                articulo.aumentarStock(detalle.getPlantaDespacho(i), detalle.getCantidadDespachada(i));
             }
+            detalle.limpiarDespachos();
+            // Restaurar cantidad pendiente para que los reportes sean consistentes
+            detalle.setCantidadPendiente(detalle.getCantidadOrdenada());
         }
     }
     
@@ -127,34 +405,42 @@ public class PedidoServicio {
             return false;
         }
         
-        EstadoPedido estadoActual = pedido.getEstado();
-        
-        // Validar transiciones válidas de estado
-        if (!esTransicionValida(estadoActual, nuevoEstado)) {
-            return false;
-        }
-        
-        // Manejar casos especiales
-        switch (nuevoEstado) {
-            case PROCESADO:
-                if (estadoActual == EstadoPedido.PENDIENTE) {
-                    if (pedido.puedeSerProcesado()) {
-                        pedido.procesarPedido();
-                        return true;
-                    }
+        // Procesar y cancelar tienen su propia operación; se delegan después de
+        // soltar el pedido para no esperar el disco con los bloqueos tomados
+        EstadoPedido delegado = null;
+        registro.iniciarOperacion();
+        try {
+            synchronized (pedido) {
+                EstadoPedido estadoActual = pedido.getEstado();
+                
+                // Validar transiciones válidas de estado
+                if (!esTransicionValida(estadoActual, nuevoEstado)) {
                     return false;
                 }
-                break;
                 
-            case CANCELADO:
-                return cancelarPedido(numeroPedido);
-                
-            default:
-                pedido.setEstado(nuevoEstado);
-                return true;
+                // Manejar casos especiales
+                if ((nuevoEstado == EstadoPedido.PROCESADO && estadoActual == EstadoPedido.PENDIENTE)
+                        || nuevoEstado == EstadoPedido.CANCELADO) {
+                    delegado = nuevoEstado;
+                } else {
+                    pedido.setEstado(nuevoEstado);
+                    indice.cambioDeEstado(pedido, estadoActual);
+                    registro.estadoCambiado(numeroPedido, nuevoEstado);
+                    bus.publicar(new EventoDominio.EstadoPedidoCambiado(numeroPedido, estadoActual, nuevoEstado));
+                }
+            }
+        } finally {
+            registro.terminarOperacion();
         }
         
-        pedido.setEstado(nuevoEstado);
+        // Ambos vuelven a validar el estado con el pedido bloqueado
+        if (delegado == EstadoPedido.PROCESADO) {
+            return procesarPedido(numeroPedido);
+        }
+        if (delegado == EstadoPedido.CANCELADO) {
+            return cancelarPedido(numeroPedido);
+        }
+        registro.esperarDurabilidad();
         return true;
     }
     
@@ -176,91 +462,105 @@ public class PedidoServicio {
         return true;
     }
     
-    // Métodos de consulta específicos
+    // Métodos de consulta específicos (resueltos con los índices secundarios)
     public List<Pedido> getPedidosPorCliente(String codigoCliente) {
-        return pedidos.values().stream()
-                .filter(pedido -> pedido.getCliente().getCodigo().equals(codigoCliente))
-                .collect(Collectors.toList());
+        return indice.getPorCliente(codigoCliente);
     }
     
     public List<Pedido> getPedidosPorEstado(EstadoPedido estado) {
-        return pedidos.values().stream()
-                .filter(pedido -> pedido.getEstado() == estado)
-                .collect(Collectors.toList());
+        return indice.getPorEstado(estado);
     }
     
     public List<Pedido> getPedidosPorFecha(LocalDate fecha) {
-        return pedidos.values().stream()
-                .filter(pedido -> pedido.getFechaPedido().equals(fecha))
-                .collect(Collectors.toList());
+        return indice.getEntreFechas(fecha, fecha);
     }
     
     public List<Pedido> getPedidosEntreFechas(LocalDate fechaInicio, LocalDate fechaFin) {
-        return pedidos.values().stream()
-                .filter(pedido -> {
-                    LocalDate fecha = pedido.getFechaPedido();
-                    return !fecha.isBefore(fechaInicio) && !fecha.isAfter(fechaFin);
-                })
-                .collect(Collectors.toList());
+        return indice.getEntreFechas(fechaInicio, fechaFin);
     }
     
     public List<Pedido> getPedidosPendientes() {
         return getPedidosPorEstado(EstadoPedido.PENDIENTE);
     }
     
+    public int getCantidadPedidosPorEstado(EstadoPedido estado) {
+        return indice.getCantidadPorEstado(estado);
+    }
+    
+    /**
+     * Cantidad pendiente de todos los pedidos pendientes, agregada por artículo
+     */
+    public Map<Articulo, Integer> getDemandaPendientePorArticulo() {
+        Map<Articulo, Integer> demanda = new LinkedHashMap<>();
+        indice.recorrerPorEstado(EstadoPedido.PENDIENTE, pedido -> {
+            synchronized (pedido) {
+                for (int i = 0; i < pedido.getCantidadDetalles(); i++) {
+                    DetallePedido detalle = pedido.getDetalle(i);
+                    demanda.merge(detalle.getArticulo(), detalle.getCantidadPendiente(), Integer::sum);
+                }
+            }
+        });
+        return demanda;
+    }
+    
     public List<Pedido> getPedidosIncompletos() {
-        return pedidos.values().stream()
-                .filter(pedido -> {
-                    // Solo considerar pedidos que están siendo procesados o ya procesados
-                    EstadoPedido estado = pedido.getEstado();
-                    boolean estadoValido = estado == EstadoPedido.PROCESADO || 
-                                         estado == EstadoPedido.EN_PREPARACION || 
-                                         estado == EstadoPedido.ENVIADO;
-                    
-                    // Y que tengan cantidades pendientes
-                    return estadoValido && !pedido.estaCompleto();
-                })
-                .collect(Collectors.toList());
+        // Solo considerar pedidos que están siendo procesados o ya procesados
+        // Y que tengan cantidades pendientes
+        List<Pedido> incompletos = new ArrayList<>();
+        Consumer<Pedido> siIncompleto = pedido -> {
+            if (!pedido.estaCompleto()) {
+                incompletos.add(pedido);
+            }
+        };
+        indice.recorrerPorEstado(EstadoPedido.PROCESADO, siIncompleto);
+        indice.recorrerPorEstado(EstadoPedido.EN_PREPARACION, siIncompleto);
+        indice.recorrerPorEstado(EstadoPedido.ENVIADO, siIncompleto);
+        return incompletos;
     }
     
     public double getTotalVentasPorFecha(LocalDate fecha) {
-        return getPedidosPorFecha(fecha).stream()
-                .filter(pedido -> pedido.getEstado() != EstadoPedido.CANCELADO)
-                .mapToDouble(Pedido::getMontoTotal)
-                .sum();
+        return Dinero.aDecimal(acumulados.getVentasCentavos(fecha));
+    }
+    
+    /**
+     * Ventas de los pedidos no cancelados con fecha en el rango (ambos incluidos)
+     */
+    public double getTotalVentasEntreFechas(LocalDate fechaInicio, LocalDate fechaFin) {
+        return Dinero.aDecimal(acumulados.getVentasCentavos(fechaInicio, fechaFin));
     }
     
     public double getTotalVentasPorCliente(String codigoCliente) {
-        return getPedidosPorCliente(codigoCliente).stream()
-                .filter(pedido -> pedido.getEstado() != EstadoPedido.CANCELADO)
-                .mapToDouble(Pedido::getMontoTotal)
-                .sum();
+        return Dinero.aDecimal(acumulados.getVentasClienteCentavos(codigoCliente));
     }
     
     public Map<EstadoPedido, Long> getEstadisticasPorEstado() {
-        return pedidos.values().stream()
-                .collect(Collectors.groupingBy(
-                    Pedido::getEstado,
-                    Collectors.counting()
-                ));
+        Map<EstadoPedido, Long> estadisticas = new EnumMap<>(EstadoPedido.class);
+        for (EstadoPedido estado : EstadoPedido.values()) {
+            int cantidad = indice.getCantidadPorEstado(estado);
+            if (cantidad > 0) {
+                estadisticas.put(estado, (long) cantidad);
+            }
+        }
+        return estadisticas;
     }
     
     public List<Articulo> getArticulosMasPedidos(int limite) {
-        Map<Articulo, Integer> conteoArticulos = new HashMap<>();
-        
-        for (Pedido pedido : pedidos.values()) {
-            for (DetallePedido detalle : pedido.getDetalles()) {
-                Articulo articulo = detalle.getArticulo();
-                conteoArticulos.put(articulo, 
-                    conteoArticulos.getOrDefault(articulo, 0) + detalle.getCantidadOrdenada());
+        return getArticulosMasPedidos(limite, RankingArticulos.Ventana.HISTORICO);
+    }
+    
+    /**
+     * Artículos con más unidades pedidas en la ventana, leídos del ranking
+     * incremental; no cuenta pedidos cancelados ni artículos ya eliminados
+     */
+    public List<Articulo> getArticulosMasPedidos(int limite, RankingArticulos.Ventana ventana) {
+        List<Articulo> articulos = new ArrayList<>(limite);
+        for (String codigo : ranking.getTop(ventana, limite, articuloServicio::existe)) {
+            Articulo articulo = articuloServicio.buscarArticulo(codigo);
+            if (articulo != null) {
+                articulos.add(articulo);
             }
         }
-        
-        return conteoArticulos.entrySet().stream()
-                .sorted(Map.Entry.<Articulo, Integer>comparingByValue().reversed())
-                .limit(limite)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
+        return articulos;
     }
     
     public int getCantidadPedidos() {
@@ -268,8 +568,17 @@ public class PedidoServicio {
     }
     
     // Métodos auxiliares
+    private void sumarAlRanking(Pedido pedido, int signo) {
+        for (int i = 0; i < pedido.getCantidadDetalles(); i++) {
+            DetallePedido detalle = pedido.getDetalle(i);
+            ranking.sumar(pedido.getFechaPedido(), detalle.getArticulo().getCodigo(),
+                    (long) signo * detalle.getCantidadOrdenada());
+        }
+    }
+    
     private String generarNumeroPedido() {
-        return String.format("PED-%06d", contadorPedidos++);
+        // getAndIncrement es atómico: dos hilos nunca reciben el mismo número
+        return String.format("PED-%06d", contadorPedidos.getAndIncrement());
     }
     
     public boolean validarPedido(Pedido pedido) {
@@ -0,0 +1,210 @@
+package servicio;
+
+import modelo.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Procesamiento en lote de los pedidos pendientes
+ *
+ * Los pedidos se agrupan en componentes: dos pedidos quedan en el mismo
+ * componente si comparten algún artículo o el cliente (conjuntos disjuntos
+ * sobre artículos y clientes). Cada componente se procesa en orden de número
+ * de pedido en un solo hilo, y componentes distintos en paralelo, ya que no
+ * compiten por stock ni por crédito.
+ *
+ * Cada pedido pasa por {@link PedidoServicio#procesarPedido(String)}, así que
+ * se mantienen exactamente las reglas de crédito y stock, los bloqueos y el
+ * registro de eventos de un procesamiento individual. Los componentes solo
+ * deciden qué corre en paralelo: si un pedido cambia mientras tanto, los
+ * bloqueos del servicio siguen garantizando la consistencia.
+ */
+public class ProcesadorLotes {
+    private final PedidoServicio pedidoServicio;
+    private final int hilos;
+
+    public ProcesadorLotes(PedidoServicio pedidoServicio) {
+        this(pedidoServicio, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ProcesadorLotes(PedidoServicio pedidoServicio, int hilos) {
+        this.pedidoServicio = pedidoServicio;
+        this.hilos = Math.max(1, hilos);
+    }
+
+    /**
+     * Procesa todos los pedidos pendientes
+     *
+     * @return un resultado por pedido, ordenados por número de pedido
+     */
+    public List<ResultadoProcesamiento> procesarPendientes() {
+        return procesar(pedidoServicio.getPedidosPendientes());
+    }
+
+    public List<ResultadoProcesamiento> procesar(Collection<Pedido> pedidos) {
+        List<Pedido> ordenados = new ArrayList<>(pedidos);
+        ordenados.sort(Comparator.comparing(Pedido::getNumeroPedido));
+
+        List<List<Pedido>> componentes = agrupar(ordenados);
+        ResultadoProcesamiento[] resultados = new ResultadoProcesamiento[ordenados.size()];
+        Map<Pedido, Integer> posiciones = new IdentityHashMap<>();
+        for (int i = 0; i < ordenados.size(); i++) {
+            posiciones.put(ordenados.get(i), i);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(hilos, Math.max(1, componentes.size())),
+                tarea -> {
+                    Thread hilo = new Thread(tarea, "procesador-lotes");
+                    hilo.setDaemon(true);
+                    return hilo;
+                });
+        try {
+            List<Future<?>> tareas = new ArrayList<>(componentes.size());
+            // Los componentes grandes primero, para que no queden solos al final
+            componentes.sort((a, b) -> Integer.compare(b.size(), a.size()));
+            for (List<Pedido> componente : componentes) {
+                tareas.add(pool.submit(() -> {
+                    for (Pedido pedido : componente) {
+                        resultados[posiciones.get(pedido)] = procesarUno(pedido);
+                    }
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Procesamiento en lote interrumpido", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error en el procesamiento en lote", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return Arrays.asList(resultados);
+    }
+
+    private ResultadoProcesamiento procesarUno(Pedido pedido) {
+        if (pedidoServicio.procesarPedido(pedido.getNumeroPedido())) {
+            return new ResultadoProcesamiento(pedido.getNumeroPedido(), true, "Pedido procesado");
+        }
+        String motivo;
+        synchronized (pedido) {
+            motivo = pedido.getEstado() != EstadoPedido.PENDIENTE
+                    ? "El pedido ya no está pendiente (estado " + pedido.getEstado() + ")"
+                    : pedido.motivoNoProcesable();
+        }
+        return new ResultadoProcesamiento(pedido.getNumeroPedido(), false, motivo);
+    }
+
+    /**
+     * Agrupa los pedidos que comparten artículos o cliente; cada grupo
+     * conserva el orden de la lista recibida
+     */
+    private static List<List<Pedido>> agrupar(List<Pedido> pedidos) {
+        ConjuntosDisjuntos conjuntos = new ConjuntosDisjuntos(pedidos.size());
+        Map<Articulo, Integer> primeroPorArticulo = new IdentityHashMap<>();
+        Map<Cliente, Integer> primeroPorCliente = new IdentityHashMap<>();
+
+        for (int i = 0; i < pedidos.size(); i++) {
+            Pedido pedido = pedidos.get(i);
+            synchronized (pedido) {
+                for (int d = 0; d < pedido.getCantidadDetalles(); d++) {
+                    Integer anterior = primeroPorArticulo.putIfAbsent(pedido.getDetalle(d).getArticulo(), i);
+                    if (anterior != null) {
+                        conjuntos.unir(anterior, i);
+                    }
+                }
+            }
+            Integer anterior = primeroPorCliente.putIfAbsent(pedido.getCliente(), i);
+            if (anterior != null) {
+                conjuntos.unir(anterior, i);
+            }
+        }
+
+        Map<Integer, List<Pedido>> porRaiz = new LinkedHashMap<>();
+        for (int i = 0; i < pedidos.size(); i++) {
+            porRaiz.computeIfAbsent(conjuntos.raiz(i), r -> new ArrayList<>()).add(pedidos.get(i));
+        }
+        return new ArrayList<>(porRaiz.values());
+    }
+
+    /**
+     * Unión-búsqueda con compresión de caminos y unión por tamaño
+     */
+    private static final class ConjuntosDisjuntos {
+        private final int[] padre;
+        private final int[] tamano;
+
+        ConjuntosDisjuntos(int cantidad) {
+            padre = new int[cantidad];
+            tamano = new int[cantidad];
+            for (int i = 0; i < cantidad; i++) {
+                padre[i] = i;
+                tamano[i] = 1;
+            }
+        }
+
+        int raiz(int elemento) {
+            int raiz = elemento;
+            while (padre[raiz] != raiz) {
+                raiz = padre[raiz];
+            }
+            while (padre[elemento] != raiz) {
+                int siguiente = padre[elemento];
+                padre[elemento] = raiz;
+                elemento = siguiente;
+            }
+            return raiz;
+        }
+
+        void unir(int a, int b) {
+            int raizA = raiz(a);
+            int raizB = raiz(b);
+            if (raizA == raizB) {
+                return;
+            }
+            if (tamano[raizA] < tamano[raizB]) {
+                int temporal = raizA;
+                raizA = raizB;
+                raizB = temporal;
+            }
+            padre[raizB] = raizA;
+            tamano[raizA] += tamano[raizB];
+        }
+    }
+
+    /**
+     * Resultado del procesamiento de un pedido del lote
+     */
+    public static class ResultadoProcesamiento {
+        private final String numeroPedido;
+        private final boolean procesado;
+        private final String motivo;
+
+        public ResultadoProcesamiento(String numeroPedido, boolean procesado, String motivo) {
+            this.numeroPedido = numeroPedido;
+            this.procesado = procesado;
+            this.motivo = motivo;
+        }
+
+        public String getNumeroPedido() {
+            return numeroPedido;
+        }
+
+        public boolean isProcesado() {
+            return procesado;
+        }
+
+        /**
+         * Motivo de {@link Pedido#motivoNoProcesable()} si no se procesó
+         */
+        public String getMotivo() {
+            return motivo;
+        }
+
+        @Override
+        public String toString() {
+            return numeroPedido + ": " + (procesado ? "procesado" : motivo);
+        }
+    }
+}
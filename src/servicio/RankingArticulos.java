@@ -0,0 +1,187 @@
+package servicio;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Ranking de artículos más pedidos mantenido línea a línea
+ *
+ * Cada línea agregada a un pedido suma sus unidades y cada pedido cancelado
+ * las resta, en el histórico y en las ventanas de los últimos días (según la
+ * fecha del pedido). Cada ranking guarda una tabla código → unidades y un
+ * conjunto ordenado por unidades, así que una actualización cuesta
+ * O(log artículos) y los N primeros se leen en O(N). Las ventanas se deslizan
+ * al cambiar el día: se restan los días que salen y se suman los que entran,
+ * a partir de los totales por día de los últimos {@value #DIAS_CONSERVADOS}
+ * días.
+ */
+public class RankingArticulos {
+    static final int DIAS_CONSERVADOS = 30;
+
+    public enum Ventana {
+        HOY(1),
+        ULTIMOS_7_DIAS(7),
+        ULTIMOS_30_DIAS(DIAS_CONSERVADOS),
+        HISTORICO(0); // Sin límite de fechas
+
+        private final int dias;
+
+        Ventana(int dias) {
+            this.dias = dias;
+        }
+    }
+
+    private final Clock reloj;
+    private final Map<Ventana, Conteo> conteos = new EnumMap<>(Ventana.class);
+    private final NavigableMap<LocalDate, Map<String, Long>> porDia = new TreeMap<>();
+    private LocalDate hoy;
+
+    RankingArticulos() {
+        this(Clock.systemDefaultZone());
+    }
+
+    RankingArticulos(Clock reloj) {
+        this.reloj = reloj;
+        this.hoy = LocalDate.now(reloj);
+        for (Ventana ventana : Ventana.values()) {
+            conteos.put(ventana, new Conteo());
+        }
+    }
+
+    /**
+     * Suma (o resta, con cantidad negativa) unidades pedidas de un artículo
+     * en un pedido de la fecha indicada
+     */
+    synchronized void sumar(LocalDate fecha, String codigoArticulo, long cantidad) {
+        avanzar();
+        conteos.get(Ventana.HISTORICO).sumar(codigoArticulo, cantidad);
+        if (fecha.isBefore(inicio(Ventana.ULTIMOS_30_DIAS, hoy))) {
+            return; // Fuera de todas las ventanas
+        }
+        Map<String, Long> dia = porDia.computeIfAbsent(fecha, f -> new HashMap<>());
+        if (dia.merge(codigoArticulo, cantidad, Long::sum) == 0) {
+            dia.remove(codigoArticulo);
+        }
+        for (Ventana ventana : Ventana.values()) {
+            if (ventana != Ventana.HISTORICO && !fecha.isBefore(inicio(ventana, hoy)) && !fecha.isAfter(hoy)) {
+                conteos.get(ventana).sumar(codigoArticulo, cantidad);
+            }
+        }
+    }
+
+    /**
+     * Códigos de los artículos con más unidades pedidas en la ventana, de
+     * mayor a menor (a igualdad, por código)
+     */
+    public List<String> getTop(Ventana ventana, int limite) {
+        return getTop(ventana, limite, codigo -> true);
+    }
+
+    /**
+     * Como {@link #getTop(Ventana, int)}, salteando los códigos que no cumplen
+     * {@code incluir} sin que ocupen lugar en el resultado
+     */
+    public synchronized List<String> getTop(Ventana ventana, int limite, Predicate<String> incluir) {
+        avanzar();
+        List<String> codigos = new ArrayList<>(Math.min(limite, 64));
+        for (Entrada entrada : conteos.get(ventana).orden) {
+            if (codigos.size() >= limite) {
+                break;
+            }
+            if (incluir.test(entrada.codigo)) {
+                codigos.add(entrada.codigo);
+            }
+        }
+        return codigos;
+    }
+
+    /**
+     * Unidades pedidas del artículo en la ventana, sin contar pedidos cancelados
+     */
+    public synchronized long getUnidades(Ventana ventana, String codigoArticulo) {
+        avanzar();
+        Entrada entrada = conteos.get(ventana).porCodigo.get(codigoArticulo);
+        return entrada != null ? entrada.unidades : 0;
+    }
+
+    /**
+     * Desliza las ventanas hasta la fecha actual del reloj
+     */
+    private void avanzar() {
+        LocalDate actual = LocalDate.now(reloj);
+        if (!actual.isAfter(hoy)) {
+            return;
+        }
+        for (Ventana ventana : Ventana.values()) {
+            if (ventana == Ventana.HISTORICO) {
+                continue;
+            }
+            Conteo conteo = conteos.get(ventana);
+            LocalDate inicioAnterior = inicio(ventana, hoy);
+            LocalDate inicioNuevo = inicio(ventana, actual);
+            // Salen los días de la ventana anterior previos al nuevo inicio; entran los posteriores a hoy
+            NavigableMap<LocalDate, Map<String, Long>> salen = inicioNuevo.isAfter(hoy)
+                    ? porDia.subMap(inicioAnterior, true, hoy, true)
+                    : porDia.subMap(inicioAnterior, true, inicioNuevo, false);
+            for (Map<String, Long> dia : salen.values()) {
+                for (Map.Entry<String, Long> entry : dia.entrySet()) {
+                    conteo.sumar(entry.getKey(), -entry.getValue());
+                }
+            }
+            LocalDate desde = inicioNuevo.isAfter(hoy) ? inicioNuevo : hoy.plusDays(1);
+            for (Map<String, Long> dia : porDia.subMap(desde, true, actual, true).values()) {
+                for (Map.Entry<String, Long> entry : dia.entrySet()) {
+                    conteo.sumar(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        porDia.headMap(inicio(Ventana.ULTIMOS_30_DIAS, actual), false).clear();
+        hoy = actual;
+    }
+
+    private static LocalDate inicio(Ventana ventana, LocalDate dia) {
+        return dia.minusDays(ventana.dias - 1);
+    }
+
+    /**
+     * Unidades por código con su orden de mayor a menor
+     */
+    private static final class Conteo {
+        private final Map<String, Entrada> porCodigo = new HashMap<>();
+        private final TreeSet<Entrada> orden = new TreeSet<>();
+
+        void sumar(String codigo, long cantidad) {
+            Entrada anterior = porCodigo.get(codigo);
+            long unidades = cantidad;
+            if (anterior != null) {
+                orden.remove(anterior);
+                unidades += anterior.unidades;
+            }
+            if (unidades > 0) {
+                Entrada nueva = new Entrada(codigo, unidades);
+                porCodigo.put(codigo, nueva);
+                orden.add(nueva);
+            } else {
+                porCodigo.remove(codigo);
+            }
+        }
+    }
+
+    private static final class Entrada implements Comparable<Entrada> {
+        private final String codigo;
+        private final long unidades;
+
+        Entrada(String codigo, long unidades) {
+            this.codigo = codigo;
+            this.unidades = unidades;
+        }
+
+        @Override
+        public int compareTo(Entrada otra) {
+            int porUnidades = Long.compare(otra.unidades, unidades);
+            return porUnidades != 0 ? porUnidades : codigo.compareTo(otra.codigo);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package servicio;
+
+import modelo.*;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Motor de reserva de stock con bloqueos por franjas
+ *
+ * Cada artículo se asigna a una franja según su código. Para procesar un pedido
+ * se toman las franjas de todos los artículos que toca, siempre en orden
+ * ascendente (orden global, sin riesgo de interbloqueo), se verifica la
+ * disponibilidad y se aplican todas las reducciones como un solo paso.
+ * Pedidos sin artículos en común se procesan en paralelo. Las líneas se
+ * recorren por posición, sin copiar la lista ni crear mapas; lo único que se
+ * reserva por pedido es el arreglo de franjas.
+ */
+public class ReservaStock {
+    private static final int FRANJAS_POR_DEFECTO = 64;
+    private static final int MAXIMO_LINEAS_SIN_MAPA = 32;
+
+    private final ReentrantLock[] franjas;
+    private volatile EstrategiaSeleccionPlanta estrategia = EstrategiaSeleccionPlanta.PLANTA_UNICA;
+
+    public ReservaStock() {
+        this(FRANJAS_POR_DEFECTO);
+    }
+
+    public ReservaStock(int cantidadFranjas) {
+        this.franjas = new ReentrantLock[cantidadFranjas];
+        for (int i = 0; i < cantidadFranjas; i++) {
+            franjas[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Procesa el pedido de forma atómica: o se descuentan todas las líneas o
+     * ninguna. El llamador debe tener bloqueados el pedido y su cliente.
+     */
+    public boolean reservar(Pedido pedido) {
+        return reservar(pedido, null);
+    }
+    
+    /**
+     * Igual que {@link #reservar(Pedido)}, pero si el pedido queda procesado
+     * ejecuta {@code alConfirmar} antes de soltar las franjas
+     */
+    public boolean reservar(Pedido pedido, Runnable alConfirmar) {
+        int[] indices = franjasDe(pedido);
+        bloquear(indices);
+        try {
+            if (!pedido.puedeSerProcesado() || !hayDisponibilidadAgregada(pedido)) {
+                return false;
+            }
+            pedido.procesarPedido(estrategia);
+            if (pedido.getEstado() != EstadoPedido.PROCESADO) {
+                return false;
+            }
+            if (alConfirmar != null) {
+                alConfirmar.run();
+            }
+            return true;
+        } finally {
+            desbloquear(indices);
+        }
+    }
+
+    public EstrategiaSeleccionPlanta getEstrategia() {
+        return estrategia;
+    }
+
+    /**
+     * Estrategia con la que se eligen las plantas al descontar stock. Como la
+     * elección no queda en el registro de eventos, debe configurarse antes de
+     * la recuperación para que al reproducir se descuente de las mismas plantas.
+     */
+    public void setEstrategia(EstrategiaSeleccionPlanta estrategia) {
+        this.estrategia = Objects.requireNonNull(estrategia);
+    }
+
+    /**
+     * Ejecuta una acción con las franjas de todos los artículos del pedido bloqueadas
+     */
+    public void ejecutarConBloqueo(Pedido pedido, Runnable accion) {
+        int[] indices = franjasDe(pedido);
+        bloquear(indices);
+        try {
+            accion.run();
+        } finally {
+            desbloquear(indices);
+        }
+    }
+
+    /**
+     * Ejecuta una acción con la franja de un único artículo bloqueada
+     */
+    public void ejecutarConBloqueo(String codigoArticulo, Runnable accion) {
+        ReentrantLock franja = franjas[indiceFranja(codigoArticulo)];
+        franja.lock();
+        try {
+            accion.run();
+        } finally {
+            franja.unlock();
+        }
+    }
+
+    /**
+     * Calcula un resultado con la franja de un único artículo bloqueada
+     */
+    public <T> T calcularConBloqueo(String codigoArticulo, Supplier<T> calculo) {
+        ReentrantLock franja = franjas[indiceFranja(codigoArticulo)];
+        franja.lock();
+        try {
+            return calculo.get();
+        } finally {
+            franja.unlock();
+        }
+    }
+    
+    /**
+     * Verifica la disponibilidad sumando todas las líneas de un mismo artículo,
+     * de modo que dos líneas del mismo artículo no puedan sobrevender. Cada
+     * artículo se suma al encontrar su primera línea; con pocas líneas el
+     * recorrido doble es más barato que un mapa.
+     */
+    private boolean hayDisponibilidadAgregada(Pedido pedido) {
+        int lineas = pedido.getCantidadDetalles();
+        if (lineas > MAXIMO_LINEAS_SIN_MAPA) {
+            return hayDisponibilidadAgregadaConMapa(pedido);
+        }
+        lineas:
+        for (int i = 0; i < lineas; i++) {
+            Articulo articulo = pedido.getDetalle(i).getArticulo();
+            for (int j = 0; j < i; j++) {
+                if (pedido.getDetalle(j).getArticulo() == articulo) {
+                    continue lineas; // Ya sumado en su primera línea
+                }
+            }
+            int demanda = 0;
+            for (int j = i; j < lineas; j++) {
+                DetallePedido detalle = pedido.getDetalle(j);
+                if (detalle.getArticulo() == articulo) {
+                    demanda += detalle.getCantidadOrdenada();
+                }
+            }
+            if (!articulo.hayDisponibilidad(demanda)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean hayDisponibilidadAgregadaConMapa(Pedido pedido) {
+        Map<Articulo, Integer> demanda = new HashMap<>();
+        for (int i = 0; i < pedido.getCantidadDetalles(); i++) {
+            DetallePedido detalle = pedido.getDetalle(i);
+            demanda.merge(detalle.getArticulo(), detalle.getCantidadOrdenada(), Integer::sum);
+        }
+        for (Map.Entry<Articulo, Integer> entry : demanda.entrySet()) {
+            if (!entry.getKey().hayDisponibilidad(entry.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Franjas de los artículos del pedido en orden ascendente; las repetidas
+     * quedan contiguas y se bloquean una sola vez
+     */
+    private int[] franjasDe(Pedido pedido) {
+        int[] indices = new int[pedido.getCantidadDetalles()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = indiceFranja(pedido.getDetalle(i).getArticulo().getCodigo());
+        }
+        Arrays.sort(indices); // Orden global
+        return indices;
+    }
+
+    private int indiceFranja(String codigo) {
+        return (codigo.hashCode() & 0x7fffffff) % franjas.length;
+    }
+
+    private void bloquear(int[] indices) {
+        for (int i = 0; i < indices.length; i++) {
+            if (i == 0 || indices[i] != indices[i - 1]) {
+                franjas[indices[i]].lock();
+            }
+        }
+    }
+
+    private void desbloquear(int[] indices) {
+        for (int i = indices.length - 1; i >= 0; i--) {
+            if (i == 0 || indices[i] != indices[i - 1]) {
+                franjas[indices[i]].unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package servicio;
+
+import java.util.List;
+
+/**
+ * Recibe los eventos de un tipo publicados en el {@link BusEventos}, en lotes
+ * y en el orden en que se publicaron
+ */
+@FunctionalInterface
+public interface SuscriptorEventos<T extends EventoDominio> {
+    void eventosRecibidos(List<T> eventos);
+}